@@ -4,6 +4,8 @@ if [ $1 = "test-orcl" ]; then
     mvn clean test -DtestConfigPath="./config/orcl-example.yml"
 elif [ $1 = "test-postgres" ]; then
     mvn clean test -DtestConfigPath="./config/postgres-example.yml"
+elif [ $1 = "bench-postgres" ]; then
+    mvn clean test -Dtest="*Benchmark" -DbenchConfigPath="config/example-postgres-config.yml"
 elif [ $1 = "compile" ]; then
     mvn package shade:shade -DskipTests=true
 else
@@ -0,0 +1,44 @@
+package com.dbw.actions;
+
+import com.dbw.db.Postgres;
+import com.dbw.log.ErrorMessages;
+import com.dbw.log.Level;
+import com.dbw.log.Logger;
+import com.dbw.log.WarningMessages;
+import com.dbw.watcher.Watcher;
+
+import java.sql.SQLException;
+
+/**
+ * Drops whole partitions of a partitioned audit table instead of deleting rows,
+ * keeping at least the operations minimum of the latest records.
+ */
+public class PartitionRetentionAction implements Runnable {
+    private final Watcher watcher;
+    private final int maxId;
+    private final int opMin;
+
+    public PartitionRetentionAction(Watcher watcher, int maxId, int opMin) {
+        this.watcher = watcher;
+        this.maxId = maxId;
+        this.opMin = opMin;
+    }
+
+    @Override
+    public void run() {
+        int keepFromId = maxId - opMin + 1;
+        if (watcher.isRemovingAuditRecords()) {
+            return;
+        }
+        watcher.setRemovingAuditRecords(true);
+        try {
+            int droppedPartitions = ((Postgres) watcher.getDb()).dropAuditPartitions(keepFromId);
+            String warnMsg = String.format(WarningMessages.OP_LIMIT_REACHED_PARTITIONS, droppedPartitions, keepFromId);
+            Logger.log(Level.WARNING, watcher.getDb().getDbConfig().getName(), warnMsg);
+        } catch (SQLException e) {
+            String errMsg = String.format(ErrorMessages.OP_LIMIT_REACHED_DROP_PARTITIONS_ATTEMPT, keepFromId, e.getMessage());
+            Logger.log(Level.ERROR, watcher.getDb().getDbConfig().getName(), errMsg);
+        }
+        watcher.setRemovingAuditRecords(false);
+    }
+}
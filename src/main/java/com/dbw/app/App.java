@@ -72,7 +72,6 @@ public class App {
             List<Config> cfgs = Lists.newArrayList();
             for (String configPath : configPaths) {
                 Config cfg = loadConfig(configPath);
-                cfg.validate();
                 watcherManager.addWatcher(cfg);
                 cfgs.add(cfg);
             }
@@ -87,13 +86,17 @@ public class App {
         }
     }
 
-    private Config loadConfig(String configPath) throws IOException, NoSuchAlgorithmException {
+    private Config loadConfig(String configPath) throws IOException, NoSuchAlgorithmException, UnrecoverableException {
         File configFile = new File(configPath);
         Config cfg = ConfigParser.fromYMLFile(configFile);
+        cfg.validate();
         String configFileChecksum = ConfigParser.getFileChecksum(configFile);
         boolean configChanged = cache.compareConfigFileChecksums(cfg.getPath(), configFileChecksum);
-        cfg.setChanged(configChanged);
         cfg.setCheckSum(configFileChecksum);
+        cfg.setTableChecksums(ConfigParser.getTableChecksums(cfg));
+        Set<String> changedTables = cache.findChangedTables(cfg.getPath(), cfg.getTableChecksums());
+        cfg.setChangedTables(changedTables);
+        cfg.setChanged(configChanged || !changedTables.isEmpty());
         return cfg;
     }
 
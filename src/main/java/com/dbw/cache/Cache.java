@@ -9,8 +9,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 
 @Singleton
 public class Cache {
@@ -51,6 +50,20 @@ public class Cache {
         return areNotEqual;
     }
 
+    public Set<String> findChangedTables(String path, Map<String, String> currentTableChecksums) {
+        Map<String, String> previousTableChecksums = getPersistentCache()
+                .flatMap(cache -> cache.getConfig(path))
+                .map(ConfigCache::getTableChecksums)
+                .orElse(Collections.emptyMap());
+        Set<String> changedTables = new LinkedHashSet<>();
+        for (Map.Entry<String, String> tableChecksum : currentTableChecksums.entrySet()) {
+            if (!tableChecksum.getValue().equals(previousTableChecksums.get(tableChecksum.getKey()))) {
+                changedTables.add(tableChecksum.getKey());
+            }
+        }
+        return changedTables;
+    }
+
     public ConfigCache createOrGetConfigCache(String path) {
         Optional<ConfigCache> persistedConfigCache = getPersistentCache().get().getConfig(path);
         return persistedConfigCache.orElseGet(ConfigCache::new);
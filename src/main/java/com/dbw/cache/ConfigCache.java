@@ -1,7 +1,9 @@
 package com.dbw.cache;
 
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -9,6 +11,7 @@ public class ConfigCache implements Serializable {
     private static final long serialVersionUID = 2L;
     private String checksum;
     private Set<String> tables;
+    private Map<String, String> tableChecksums;
 
     public String getChecksum() {
         return checksum;
@@ -30,4 +33,12 @@ public class ConfigCache implements Serializable {
         }
         this.tables = newTablesSet;
     }
+
+    public Map<String, String> getTableChecksums() {
+        return tableChecksums;
+    }
+
+    public void setTableChecksums(Map<String, String> tableChecksums) {
+        this.tableChecksums = new HashMap<>(tableChecksums);
+    }
 }
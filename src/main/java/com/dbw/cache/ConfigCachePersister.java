@@ -24,6 +24,7 @@ public class ConfigCachePersister implements Runnable {
             ConfigCache configCache = cache.createOrGetConfigCache(cfg.getPath());
             configCache.setChecksum(cfg.getCheckSum());
             configCache.setTables(cfg.getTables());
+            configCache.setTableChecksums(cfg.getTableChecksums());
             cache.getPersistentCache().get().setConfig(cfg.getPath(), configCache);
         }
         cache.persist();
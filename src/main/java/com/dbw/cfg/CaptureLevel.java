@@ -0,0 +1,37 @@
+package com.dbw.cfg;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * How much of a single table's operations is captured.
+ */
+public enum CaptureLevel {
+    COUNTS("counts"),
+    SAMPLED("sampled"),
+    FULL("full");
+
+    public final String level;
+
+    CaptureLevel(String level) {
+        this.level = level;
+    }
+
+    public static CaptureLevel valueOfLevel(String level) {
+        for (CaptureLevel e : values()) {
+            if (e.level.equals(level.trim().toLowerCase())) {
+                return e;
+            }
+        }
+        throw new IllegalArgumentException(level);
+    }
+
+    public static List<String> getLevelList() {
+        List<String> levels = Lists.newArrayList();
+        for (CaptureLevel e : values()) {
+            levels.add(e.level);
+        }
+        return levels;
+    }
+}
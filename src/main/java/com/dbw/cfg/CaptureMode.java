@@ -0,0 +1,42 @@
+package com.dbw.cfg;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+public enum CaptureMode {
+    ROW("row"),
+    STATEMENT("statement"),
+    LOGICAL("logical"),
+    SHADOW("shadow");
+
+    public final String mode;
+
+    CaptureMode(String mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Only the row and statement modes write serialized row states to the audit table.
+     */
+    public boolean writesAuditTable() {
+        return this.equals(ROW) || this.equals(STATEMENT);
+    }
+
+    public static CaptureMode valueOfMode(String mode) {
+        for (CaptureMode e : values()) {
+            if (e.mode.equals(mode.trim().toLowerCase())) {
+                return e;
+            }
+        }
+        throw new IllegalArgumentException(mode);
+    }
+
+    public static List<String> getModeList() {
+        List<String> modes = Lists.newArrayList();
+        for (CaptureMode e : values()) {
+            modes.add(e.mode);
+        }
+        return modes;
+    }
+}
@@ -1,18 +1,26 @@
 package com.dbw.cfg;
 
+import com.dbw.db.DatabaseType;
 import com.dbw.err.UnrecoverableException;
 
 import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 public class Config {
+    private static final int DEFAULT_GAP_TIMEOUT = 10000;
+
     private String path;
     private DatabaseConfig database;
     private SettingsConfig settings;
-    private Set<String> tables;
+    private List<TableConfig> tables;
     private boolean changed;
     private String checkSum;
+    private Map<String, String> tableChecksums;
+    private Set<String> changedTables;
 
     public String getPath() {
         return path;
@@ -42,8 +50,106 @@ public class Config {
         return settings != null && settings.getOperationsMinimum() != null && settings.getOperationsLimit() != null;
     }
 
+    public boolean areNotificationsEnabled() {
+        return settings != null && Boolean.TRUE.equals(settings.getNotifications());
+    }
+
+    public boolean isChangedColumnsOnly() {
+        return settings != null && Boolean.TRUE.equals(settings.getChangedColumnsOnly());
+    }
+
+    public boolean isSkipUnchangedUpdates() {
+        return settings != null && Boolean.TRUE.equals(settings.getSkipUnchangedUpdates());
+    }
+
+    public boolean isUnloggedAuditTable() {
+        return settings != null && Boolean.TRUE.equals(settings.getUnloggedAuditTable());
+    }
+
+    public Optional<Integer> getAuditTablePartitionSize() {
+        return Optional.ofNullable(settings).map(SettingsConfig::getAuditTablePartitionSize);
+    }
+
+    public boolean isAuditTablePartitioned() {
+        return getAuditTablePartitionSize().isPresent();
+    }
+
+    public Optional<Integer> getAuditTableShards() {
+        return Optional.ofNullable(settings).map(SettingsConfig::getAuditTableShards);
+    }
+
+    public boolean isAuditTableSharded() {
+        return getAuditTableShards().isPresent();
+    }
+
+    public boolean isRingBufferAuditTable() {
+        return settings != null && Boolean.TRUE.equals(settings.getRingBufferAuditTable());
+    }
+
+    public Optional<Integer> getMaxColumnValueBytes() {
+        return Optional.ofNullable(settings).map(SettingsConfig::getMaxColumnValueBytes);
+    }
+
+    public int getGapTimeout() {
+        return Optional.ofNullable(settings).map(SettingsConfig::getGapTimeout).orElse(DEFAULT_GAP_TIMEOUT);
+    }
+
+    public CaptureMode getCaptureMode() {
+        return Optional.ofNullable(settings)
+                .map(SettingsConfig::getCaptureMode)
+                .map(CaptureMode::valueOfMode)
+                .orElse(CaptureMode.ROW);
+    }
+
+    public StateFormat getStateFormat() {
+        return Optional.ofNullable(settings)
+                .map(SettingsConfig::getStateFormat)
+                .map(StateFormat::valueOfFormat)
+                .orElse(StateFormat.XML);
+    }
+
+    public boolean isPostgres() {
+        return DatabaseType.POSTGRES.type.equals(database.getType().trim().toLowerCase());
+    }
+
     public Set<String> getTables() {
-        return Collections.unmodifiableSet(tables);
+        Set<String> tableNames = new LinkedHashSet<>();
+        for (TableConfig table : tables) {
+            tableNames.add(table.getName());
+        }
+        return Collections.unmodifiableSet(tableNames);
+    }
+
+    public TableConfig getTableConfig(String tableName) {
+        return tables.stream()
+                .filter(table -> table.getName().equals(tableName))
+                .findFirst()
+                .orElse(TableConfig.fromName(tableName));
+    }
+
+    public boolean arePredicatesPresent() {
+        return tables.stream().anyMatch(table -> table.getWhere().isPresent());
+    }
+
+    public boolean areColumnFiltersPresent() {
+        return tables.stream().anyMatch(TableConfig::isColumnFilterPresent);
+    }
+
+    public boolean areCountedTablesPresent() {
+        return tables.stream().anyMatch(table -> table.getCaptureLevel().equals(CaptureLevel.COUNTS));
+    }
+
+    /**
+     * The watched tables whose operations are captured row by row, i.e. all but the counted ones.
+     */
+    public Set<String> getCapturedTables() {
+        Set<String> capturedTables = new LinkedHashSet<>();
+        for (String tableName : getTables()) {
+            if (!getTableConfig(tableName).getCaptureLevel().equals(CaptureLevel.COUNTS)) {
+                capturedTables.add(tableName);
+            }
+        }
+        return Collections.unmodifiableSet(capturedTables);
     }
 
     public boolean isChanged() {
@@ -62,6 +168,38 @@ public class Config {
         this.checkSum = checkSum;
     }
 
+    public Map<String, String> getTableChecksums() {
+        return tableChecksums;
+    }
+
+    public void setTableChecksums(Map<String, String> tableChecksums) {
+        this.tableChecksums = tableChecksums;
+    }
+
+    public boolean isTableChanged(String tableName) {
+        return changedTables == null || changedTables.contains(tableName);
+    }
+
+    public void setChangedTables(Set<String> changedTables) {
+        this.changedTables = changedTables;
+    }
+
+    /**
+     * Everything an audit trigger of the given table is generated from.
+     * When it changes, the table's trigger has to be recreated.
+     */
+    public String getTableTriggerSignature(String tableName) {
+        return String.join(
+                ",",
+                tableName,
+                getCaptureMode().mode,
+                Boolean.toString(isSkipUnchangedUpdates()),
+                getMaxColumnValueBytes().map(String::valueOf).orElse(""),
+                getStateFormat().format,
+                getTableConfig(tableName).getSignature()
+        );
+    }
+
     public void validate() throws UnrecoverableException {
         ConfigValidator.ValidationResult result =
                 ConfigValidator.isAuditTableOnWatchList()
@@ -69,6 +207,30 @@ public class Config {
                 .and(ConfigValidator.areOperationsSettingsBothDeclared())
                 .and(ConfigValidator.areOperationsSettingsGtZero())
                 .and(ConfigValidator.isOperationsLimitGtMinimum())
+                .and(ConfigValidator.isCaptureModeKnown())
+                .and(ConfigValidator.isCaptureModeSupported())
+                .and(ConfigValidator.areNotificationsSupported())
+                .and(ConfigValidator.isChangedColumnsOnlySupported())
+                .and(ConfigValidator.isUnloggedAuditTableSupported())
+                .and(ConfigValidator.isAuditTablePartitioningSupported())
+                .and(ConfigValidator.isAuditTablePartitionSizeGtZero())
+                .and(ConfigValidator.isAuditTablePartitionSizeWithinOperationsRange())
+                .and(ConfigValidator.isAuditTableShardingSupported())
+                .and(ConfigValidator.areAuditTableShardsGtZero())
+                .and(ConfigValidator.isRingBufferAuditTableSupported())
+                .and(ConfigValidator.isMaxColumnValueBytesSupported())
+                .and(ConfigValidator.isMaxColumnValueBytesGtZero())
+                .and(ConfigValidator.isStateFormatKnown())
+                .and(ConfigValidator.isStateFormatSupported())
+                .and(ConfigValidator.areColumnFiltersSupported())
+                .and(ConfigValidator.isOnlyOneColumnFilterDeclared())
+                .and(ConfigValidator.arePredicatesSupported())
+                .and(ConfigValidator.arePredicatesValid())
+                .and(ConfigValidator.areCaptureLevelsKnown())
+                .and(ConfigValidator.areCountedTablesSupported())
+                .and(ConfigValidator.areSampledTablesSupported())
+                .and(ConfigValidator.isSampleEveryGtZero())
+                .and(ConfigValidator.isGapTimeoutGteZero())
                 .apply(this);
         if (!result.equals(ConfigValidator.ValidationResult.SUCCESS)) {
             throw new UnrecoverableException("ConfigValidationException", String.format(result.msg, path));
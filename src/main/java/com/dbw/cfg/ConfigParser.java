@@ -10,12 +10,15 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.google.common.collect.Sets;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -102,7 +105,23 @@ public class ConfigParser {
             digest.update(byteArray, 0, bytesCount);
         }
         fis.close();
-        byte[] bytes = digest.digest();
+        return toHexString(digest.digest());
+    }
+
+    public static String getStringChecksum(String value) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return toHexString(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static Map<String, String> getTableChecksums(Config config) throws NoSuchAlgorithmException {
+        Map<String, String> tableChecksums = new LinkedHashMap<>();
+        for (String tableName : config.getTables()) {
+            tableChecksums.put(tableName, getStringChecksum(config.getTableTriggerSignature(tableName)));
+        }
+        return tableChecksums;
+    }
+
+    private static String toHexString(byte[] bytes) {
         StringBuilder sb = new StringBuilder();
         for (byte aByte : bytes) {
             sb.append(Integer.toString((aByte & 0xff) + 0x100, 16).substring(1));
@@ -2,8 +2,10 @@ package com.dbw.cfg;
 
 import com.dbw.db.Common;
 import com.dbw.db.DatabaseType;
+import com.dbw.db.query.PredicateCompiler;
 import com.dbw.log.ErrorMessages;
 
+import java.util.Optional;
 import java.util.function.Function;
 
 interface ConfigValidator extends Function<Config, ConfigValidator.ValidationResult> {
@@ -13,7 +15,31 @@ interface ConfigValidator extends Function<Config, ConfigValidator.ValidationRes
         AUDIT_TABLE_WATCH_ATTEMPT(ErrorMessages.CFG_AUDIT_TABLE_WATCH_ATTEMPT),
         CFG_BOTH_OP_SETTINGS_NOT_DECLARED(ErrorMessages.CFG_BOTH_OP_SETTINGS_NOT_DECLARED),
         CFG_OP_SETTINGS_LT_ZERO(ErrorMessages.CFG_OP_SETTINGS_LT_ZERO),
-        CFG_OP_SETTINGS_MIN_GT_LIMIT(ErrorMessages.CFG_OP_SETTINGS_MIN_GT_LIMIT);
+        CFG_OP_SETTINGS_MIN_GT_LIMIT(ErrorMessages.CFG_OP_SETTINGS_MIN_GT_LIMIT),
+        CFG_UNKNOWN_CAPTURE_MODE(ErrorMessages.CFG_UNKNOWN_CAPTURE_MODE),
+        CFG_CAPTURE_MODE_NOT_SUPPORTED(ErrorMessages.CFG_CAPTURE_MODE_NOT_SUPPORTED),
+        CFG_NOTIFICATIONS_NOT_SUPPORTED(ErrorMessages.CFG_NOTIFICATIONS_NOT_SUPPORTED),
+        CFG_CHANGED_COLUMNS_ONLY_NOT_SUPPORTED(ErrorMessages.CFG_CHANGED_COLUMNS_ONLY_NOT_SUPPORTED),
+        CFG_UNLOGGED_AUDIT_TABLE_NOT_SUPPORTED(ErrorMessages.CFG_UNLOGGED_AUDIT_TABLE_NOT_SUPPORTED),
+        CFG_AUDIT_TABLE_PARTITIONING_NOT_SUPPORTED(ErrorMessages.CFG_AUDIT_TABLE_PARTITIONING_NOT_SUPPORTED),
+        CFG_AUDIT_TABLE_PARTITION_SIZE_LT_ZERO(ErrorMessages.CFG_AUDIT_TABLE_PARTITION_SIZE_LT_ZERO),
+        CFG_AUDIT_TABLE_PARTITION_SIZE_GT_OP_RANGE(ErrorMessages.CFG_AUDIT_TABLE_PARTITION_SIZE_GT_OP_RANGE),
+        CFG_AUDIT_TABLE_SHARDING_NOT_SUPPORTED(ErrorMessages.CFG_AUDIT_TABLE_SHARDING_NOT_SUPPORTED),
+        CFG_AUDIT_TABLE_SHARDS_LT_ZERO(ErrorMessages.CFG_AUDIT_TABLE_SHARDS_LT_ZERO),
+        CFG_RING_BUFFER_AUDIT_TABLE_NOT_SUPPORTED(ErrorMessages.CFG_RING_BUFFER_AUDIT_TABLE_NOT_SUPPORTED),
+        CFG_UNKNOWN_STATE_FORMAT(ErrorMessages.CFG_UNKNOWN_STATE_FORMAT),
+        CFG_STATE_FORMAT_NOT_SUPPORTED(ErrorMessages.CFG_STATE_FORMAT_NOT_SUPPORTED),
+        CFG_MAX_COLUMN_VALUE_BYTES_NOT_SUPPORTED(ErrorMessages.CFG_MAX_COLUMN_VALUE_BYTES_NOT_SUPPORTED),
+        CFG_MAX_COLUMN_VALUE_BYTES_LT_ZERO(ErrorMessages.CFG_MAX_COLUMN_VALUE_BYTES_LT_ZERO),
+        CFG_COLUMN_FILTERS_NOT_SUPPORTED(ErrorMessages.CFG_COLUMN_FILTERS_NOT_SUPPORTED),
+        CFG_BOTH_COLUMN_FILTERS_DECLARED(ErrorMessages.CFG_BOTH_COLUMN_FILTERS_DECLARED),
+        CFG_PREDICATES_NOT_SUPPORTED(ErrorMessages.CFG_PREDICATES_NOT_SUPPORTED),
+        CFG_INVALID_PREDICATE(ErrorMessages.CFG_INVALID_PREDICATE),
+        CFG_UNKNOWN_CAPTURE_LEVEL(ErrorMessages.CFG_UNKNOWN_CAPTURE_LEVEL),
+        CFG_COUNTS_CAPTURE_NOT_SUPPORTED(ErrorMessages.CFG_COUNTS_CAPTURE_NOT_SUPPORTED),
+        CFG_SAMPLED_CAPTURE_NOT_SUPPORTED(ErrorMessages.CFG_SAMPLED_CAPTURE_NOT_SUPPORTED),
+        CFG_SAMPLE_EVERY_LT_ZERO(ErrorMessages.CFG_SAMPLE_EVERY_LT_ZERO),
+        CFG_GAP_TIMEOUT_LT_ZERO(ErrorMessages.CFG_GAP_TIMEOUT_LT_ZERO);
 
         public final String msg;
 
@@ -58,6 +84,178 @@ interface ConfigValidator extends Function<Config, ConfigValidator.ValidationRes
                         ValidationResult.SUCCESS : ValidationResult.CFG_OP_SETTINGS_MIN_GT_LIMIT;
     }
 
+    static ConfigValidator isCaptureModeKnown() {
+        return config ->
+                config.getSettings() == null || config.getSettings().getCaptureMode() == null ||
+                        CaptureMode.getModeList().contains(config.getSettings().getCaptureMode().trim().toLowerCase()) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_UNKNOWN_CAPTURE_MODE;
+    }
+
+    static ConfigValidator isCaptureModeSupported() {
+        return config ->
+                config.getCaptureMode().equals(CaptureMode.ROW) || config.isPostgres() ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_CAPTURE_MODE_NOT_SUPPORTED;
+    }
+
+    static ConfigValidator areNotificationsSupported() {
+        return config ->
+                !config.areNotificationsEnabled() ||
+                        (config.isPostgres() && !config.getCaptureMode().equals(CaptureMode.LOGICAL)) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_NOTIFICATIONS_NOT_SUPPORTED;
+    }
+
+    static ConfigValidator isChangedColumnsOnlySupported() {
+        return config ->
+                !config.isChangedColumnsOnly() || (config.isPostgres() && config.getCaptureMode().writesAuditTable()) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_CHANGED_COLUMNS_ONLY_NOT_SUPPORTED;
+    }
+
+    static ConfigValidator isUnloggedAuditTableSupported() {
+        return config ->
+                !config.isUnloggedAuditTable() || config.isPostgres() ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_UNLOGGED_AUDIT_TABLE_NOT_SUPPORTED;
+    }
+
+    static ConfigValidator isAuditTablePartitioningSupported() {
+        return config ->
+                !config.isAuditTablePartitioned() || (config.isPostgres() && config.getCaptureMode().writesAuditTable()) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_AUDIT_TABLE_PARTITIONING_NOT_SUPPORTED;
+    }
+
+    static ConfigValidator isAuditTablePartitionSizeGtZero() {
+        return config ->
+                config.getAuditTablePartitionSize().map(size -> size > 0).orElse(true) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_AUDIT_TABLE_PARTITION_SIZE_LT_ZERO;
+    }
+
+    static ConfigValidator isAuditTablePartitionSizeWithinOperationsRange() {
+        return config ->
+                !config.areOperationsSettingsPresent() ||
+                        config.getAuditTablePartitionSize()
+                                .map(size -> size <= config.getOperationsLimit().get() - config.getOperationsMinimum().get())
+                                .orElse(true) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_AUDIT_TABLE_PARTITION_SIZE_GT_OP_RANGE;
+    }
+
+    static ConfigValidator isAuditTableShardingSupported() {
+        return config ->
+                !config.isAuditTableSharded() ||
+                        (config.isPostgres() && config.getCaptureMode().writesAuditTable() && !config.isAuditTablePartitioned()) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_AUDIT_TABLE_SHARDING_NOT_SUPPORTED;
+    }
+
+    static ConfigValidator areAuditTableShardsGtZero() {
+        return config ->
+                config.getAuditTableShards().map(shards -> shards > 0).orElse(true) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_AUDIT_TABLE_SHARDS_LT_ZERO;
+    }
+
+    static ConfigValidator isRingBufferAuditTableSupported() {
+        return config ->
+                !config.isRingBufferAuditTable() ||
+                        (config.isPostgres() && config.getCaptureMode().writesAuditTable() && config.areOperationsSettingsPresent()
+                                && !config.isAuditTablePartitioned() && !config.isAuditTableSharded()) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_RING_BUFFER_AUDIT_TABLE_NOT_SUPPORTED;
+    }
+
+    static ConfigValidator isStateFormatKnown() {
+        return config ->
+                config.getSettings() == null || config.getSettings().getStateFormat() == null ||
+                        StateFormat.getFormatList().contains(config.getSettings().getStateFormat().trim().toLowerCase()) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_UNKNOWN_STATE_FORMAT;
+    }
+
+    static ConfigValidator isStateFormatSupported() {
+        return config ->
+                config.getStateFormat().equals(StateFormat.XML) || !config.isPostgres() ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_STATE_FORMAT_NOT_SUPPORTED;
+    }
+
+    static ConfigValidator isMaxColumnValueBytesSupported() {
+        return config ->
+                !config.getMaxColumnValueBytes().isPresent() || config.getCaptureMode().writesAuditTable() ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_MAX_COLUMN_VALUE_BYTES_NOT_SUPPORTED;
+    }
+
+    static ConfigValidator isMaxColumnValueBytesGtZero() {
+        return config ->
+                config.getMaxColumnValueBytes().map(maxBytes -> maxBytes > 0).orElse(true) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_MAX_COLUMN_VALUE_BYTES_LT_ZERO;
+    }
+
+    static ConfigValidator areColumnFiltersSupported() {
+        return config ->
+                !config.areColumnFiltersPresent() || config.getCaptureMode().writesAuditTable() ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_COLUMN_FILTERS_NOT_SUPPORTED;
+    }
+
+    static ConfigValidator isOnlyOneColumnFilterDeclared() {
+        return config ->
+                config.getTables().stream()
+                        .map(config::getTableConfig)
+                        .noneMatch(table -> !table.getColumns().isEmpty() && !table.getExcludeColumns().isEmpty()) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_BOTH_COLUMN_FILTERS_DECLARED;
+    }
+
+    static ConfigValidator arePredicatesSupported() {
+        return config ->
+                !config.arePredicatesPresent() || config.getCaptureMode().equals(CaptureMode.ROW) || config.getCaptureMode().equals(CaptureMode.SHADOW) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_PREDICATES_NOT_SUPPORTED;
+    }
+
+    static ConfigValidator arePredicatesValid() {
+        return config -> {
+            for (String tableName : config.getTables()) {
+                Optional<String> predicate = config.getTableConfig(tableName).getWhere();
+                try {
+                    predicate.ifPresent(where -> new PredicateCompiler(where).compile(""));
+                } catch (IllegalArgumentException e) {
+                    return ValidationResult.CFG_INVALID_PREDICATE;
+                }
+            }
+            return ValidationResult.SUCCESS;
+        };
+    }
+
+    static ConfigValidator areCaptureLevelsKnown() {
+        return config ->
+                config.getTables().stream()
+                        .map(tableName -> config.getTableConfig(tableName).getCapture())
+                        .allMatch(capture -> capture == null || CaptureLevel.getLevelList().contains(capture.trim().toLowerCase())) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_UNKNOWN_CAPTURE_LEVEL;
+    }
+
+    static ConfigValidator areCountedTablesSupported() {
+        return config ->
+                !config.areCountedTablesPresent() || (config.isPostgres() && !config.getCaptureMode().equals(CaptureMode.LOGICAL)) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_COUNTS_CAPTURE_NOT_SUPPORTED;
+    }
+
+    static ConfigValidator areSampledTablesSupported() {
+        return config ->
+                config.getTables().stream().noneMatch(tableName -> isSampled(config, tableName)) ||
+                        config.getCaptureMode().equals(CaptureMode.ROW) || config.getCaptureMode().equals(CaptureMode.SHADOW) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_SAMPLED_CAPTURE_NOT_SUPPORTED;
+    }
+
+    static ConfigValidator isSampleEveryGtZero() {
+        return config ->
+                config.getTables().stream()
+                        .filter(tableName -> isSampled(config, tableName))
+                        .allMatch(tableName -> config.getTableConfig(tableName).getSampleEvery().map(sampleEvery -> sampleEvery > 0).orElse(false)) ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_SAMPLE_EVERY_LT_ZERO;
+    }
+
+    static ConfigValidator isGapTimeoutGteZero() {
+        return config ->
+                config.getGapTimeout() >= 0 ?
+                        ValidationResult.SUCCESS : ValidationResult.CFG_GAP_TIMEOUT_LT_ZERO;
+    }
+
+    static boolean isSampled(Config config, String tableName) {
+        return config.getTableConfig(tableName).getCaptureLevel().equals(CaptureLevel.SAMPLED);
+    }
+
     default ConfigValidator and(ConfigValidator other) {
         return config -> {
             ValidationResult result = this.apply(config);
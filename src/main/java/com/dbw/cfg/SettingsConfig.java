@@ -3,6 +3,17 @@ package com.dbw.cfg;
 public class SettingsConfig {
     private Integer operationsMinimum;
     private Integer operationsLimit;
+    private Boolean notifications;
+    private String captureMode;
+    private Boolean changedColumnsOnly;
+    private Boolean skipUnchangedUpdates;
+    private Boolean unloggedAuditTable;
+    private Integer auditTablePartitionSize;
+    private Integer auditTableShards;
+    private Boolean ringBufferAuditTable;
+    private Integer maxColumnValueBytes;
+    private String stateFormat;
+    private Integer gapTimeout;
 
     public Integer getOperationsMinimum() {
         return operationsMinimum;
@@ -11,4 +22,48 @@ public class SettingsConfig {
     public Integer getOperationsLimit() {
         return operationsLimit;
     }
+
+    public Boolean getNotifications() {
+        return notifications;
+    }
+
+    public String getCaptureMode() {
+        return captureMode;
+    }
+
+    public Boolean getChangedColumnsOnly() {
+        return changedColumnsOnly;
+    }
+
+    public Boolean getSkipUnchangedUpdates() {
+        return skipUnchangedUpdates;
+    }
+
+    public Boolean getUnloggedAuditTable() {
+        return unloggedAuditTable;
+    }
+
+    public Integer getAuditTablePartitionSize() {
+        return auditTablePartitionSize;
+    }
+
+    public Integer getAuditTableShards() {
+        return auditTableShards;
+    }
+
+    public Boolean getRingBufferAuditTable() {
+        return ringBufferAuditTable;
+    }
+
+    public Integer getMaxColumnValueBytes() {
+        return maxColumnValueBytes;
+    }
+
+    public String getStateFormat() {
+        return stateFormat;
+    }
+
+    public Integer getGapTimeout() {
+        return gapTimeout;
+    }
 }
@@ -0,0 +1,36 @@
+package com.dbw.cfg;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * How the Oracle audit triggers serialize row states.
+ */
+public enum StateFormat {
+    XML("xml"),
+    JSON("json");
+
+    public final String format;
+
+    StateFormat(String format) {
+        this.format = format;
+    }
+
+    public static StateFormat valueOfFormat(String format) {
+        for (StateFormat e : values()) {
+            if (e.format.equals(format.trim().toLowerCase())) {
+                return e;
+            }
+        }
+        throw new IllegalArgumentException(format);
+    }
+
+    public static List<String> getFormatList() {
+        List<String> formats = Lists.newArrayList();
+        for (StateFormat e : values()) {
+            formats.add(e.format);
+        }
+        return formats;
+    }
+}
@@ -0,0 +1,112 @@
+package com.dbw.cfg;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * An entry of the tables list. It's either a plain table name or a mapping with the table name and its options.
+ */
+public class TableConfig {
+    private String name;
+    private List<String> columns;
+    private List<String> excludeColumns;
+    private String where;
+    private String capture;
+    private Integer sampleEvery;
+
+    public TableConfig() {
+    }
+
+    private TableConfig(String name) {
+        this.name = name;
+    }
+
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static TableConfig fromName(String name) {
+        return new TableConfig(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getColumns() {
+        return columns == null ? Collections.emptyList() : columns;
+    }
+
+    public List<String> getExcludeColumns() {
+        return excludeColumns == null ? Collections.emptyList() : excludeColumns;
+    }
+
+    public Optional<String> getWhere() {
+        return Optional.ofNullable(where).map(String::trim).filter(predicate -> !predicate.isEmpty());
+    }
+
+    public String getCapture() {
+        return capture;
+    }
+
+    public CaptureLevel getCaptureLevel() {
+        return Optional.ofNullable(capture).map(CaptureLevel::valueOfLevel).orElse(CaptureLevel.FULL);
+    }
+
+    /**
+     * A sampled table has one in this many of its rows captured.
+     */
+    public Optional<Integer> getSampleEvery() {
+        return Optional.ofNullable(sampleEvery);
+    }
+
+    public boolean isColumnFilterPresent() {
+        return !getColumns().isEmpty() || !getExcludeColumns().isEmpty();
+    }
+
+    public List<String> filterColumns(List<String> tableColumnNames) {
+        if (!isColumnFilterPresent()) {
+            return tableColumnNames;
+        }
+        List<String> capturedColumnNames = new ArrayList<>();
+        for (String columnName : tableColumnNames) {
+            if (isColumnCaptured(columnName)) {
+                capturedColumnNames.add(columnName);
+            }
+        }
+        return capturedColumnNames;
+    }
+
+    /**
+     * The first column of the columns or excludeColumns list which isn't one of the given table columns.
+     */
+    public Optional<String> findUnknownColumn(List<String> tableColumnNames) {
+        return Stream.concat(getColumns().stream(), getExcludeColumns().stream())
+                .map(String::trim)
+                .filter(columnName -> !containsIgnoreCase(tableColumnNames, columnName))
+                .findFirst();
+    }
+
+    private boolean isColumnCaptured(String columnName) {
+        if (!getColumns().isEmpty()) {
+            return containsIgnoreCase(getColumns(), columnName);
+        }
+        return !containsIgnoreCase(getExcludeColumns(), columnName);
+    }
+
+    private boolean containsIgnoreCase(List<String> columnNames, String columnName) {
+        return columnNames.stream().anyMatch(name -> name.trim().equalsIgnoreCase(columnName));
+    }
+
+    public String getSignature() {
+        return String.join(",",
+                String.join(" ", getColumns()),
+                String.join(" ", getExcludeColumns()),
+                getWhere().orElse(""),
+                getCaptureLevel().level,
+                getSampleEvery().map(String::valueOf).orElse("")
+        );
+    }
+}
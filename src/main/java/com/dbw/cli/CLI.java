@@ -59,6 +59,8 @@ public class CLI {
             parsedOptions.interval = getInterval();
             parsedOptions.maxColumnWidth = getMaxColumnWidthOption();
             parsedOptions.maxRowWidth = getMaxRowWidthOption();
+            parsedOptions.maxTransactionSize = getMaxTransactionSizeOption();
+            parsedOptions.rowHistory = getRowHistoryOption();
             parsedOptions.oneOff = getOneOff();
             parsedOptions.showLatestOperations = getShowLatestOperationsOption();
             parsedOptions.tables = getTables();
@@ -139,12 +141,32 @@ public class CLI {
         return null;
     }
 
+    private Integer getMaxTransactionSizeOption() throws Exception {
+        if (cmd.hasOption(Opts.MAX_TRANSACTION_SIZE)) {
+            String optionValue = cmd.getOptionValue(Opts.MAX_TRANSACTION_SIZE);
+            Integer value = Integer.parseInt(optionValue);
+            if (value < 1) {
+                throw new Exception(ErrorMessages.CLI_INVALID_MAX_TRANSACTION_SIZE);
+            }
+            return value;
+        }
+        return null;
+    }
+
+    private RowHistoryOption getRowHistoryOption() throws Exception {
+        if (cmd.hasOption(Opts.HISTORY)) {
+            String value = cmd.getOptionValue(Opts.HISTORY);
+            return RowHistoryOption.create(value);
+        }
+        return null;
+    }
+
     private boolean getOneOff() throws Exception {
         boolean hasOneOffOption = cmd.hasOption(Opts.ONE_OFF);
         if (hasOneOffOption && !cmd.hasOption(Opts.LATEST)) {
             throw new Exception(ErrorMessages.CLI_ONE_OFF_NO_LASTEST_OP);
         }
-        return hasOneOffOption;
+        return hasOneOffOption || cmd.hasOption(Opts.HISTORY);
     }
 
     private boolean getPurgeOption() {
@@ -206,9 +228,11 @@ public class CLI {
         private Short interval;
         private Short maxColumnWidth;
         private Short maxRowWidth;
+        private Integer maxTransactionSize;
         private boolean oneOff;
         private boolean purge;
         private boolean reuseConfig;
+        private RowHistoryOption rowHistory;
         private boolean showQuery;
         private ShowLatestOperationsOption showLatestOperations;
         private Optional<Set<String>> tables;
@@ -247,6 +271,10 @@ public class CLI {
             return maxRowWidth;
         }
 
+        public Integer getMaxTransactionSize() {
+            return maxTransactionSize;
+        }
+
         public boolean getOneOff() {
             return oneOff;
         }
@@ -259,6 +287,10 @@ public class CLI {
             return reuseConfig;
         }
 
+        public RowHistoryOption getRowHistory() {
+            return rowHistory;
+        }
+
         public boolean getShowQuery() {
             return showQuery;
         }
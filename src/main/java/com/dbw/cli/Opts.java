@@ -21,6 +21,7 @@ public class Opts extends Options {
     public static final String DEBUG = "d";
     public static final String DELETE_FIRST_N_ROWS = "D";
     public static final String SHOW_HELP = "h";
+    public static final String HISTORY = "H";
     public static final String INTERVAL = "i";
     public static final String LATEST = "l";
     public static final String MAX_COL_WIDTH = "w";
@@ -32,6 +33,7 @@ public class Opts extends Options {
     public static final String TABLES = "t";
     public static final String TIME_DIFF_SEPARATOR = "T";
     public static final String VERBOSE_DIFF = "V";
+    public static final String MAX_TRANSACTION_SIZE = "x";
 
     public Opts() {
         super();
@@ -74,6 +76,14 @@ public class Opts extends Options {
                     false,
                     "show help"
             ),
+            buildOption(
+                    HISTORY,
+                    "history",
+                    true,
+                    "show the history of a single row and close the application. Accepts a table name and the row's primary key " +
+                            "value separated with a colon, e.g. film:42 - separate the values of a composite key with commas. " +
+                            "Can be narrowed down with the -" + LATEST + " flag"
+            ),
             buildOption(
                     INTERVAL,
                     "interval",
@@ -141,6 +151,12 @@ public class Opts extends Options {
                     "verbose-diff",
                     false,
                     "show verbose output, i.e. with full before and after states of column values that exceeded the maximum column width"
+            ),
+            buildOption(
+                    MAX_TRANSACTION_SIZE,
+                    "max-transaction-size",
+                    true,
+                    "collapse transactions with more operations than the given number into a single summary line"
             ));
     }
 
@@ -0,0 +1,31 @@
+package com.dbw.cli;
+
+import com.dbw.log.ErrorMessages;
+
+public class RowHistoryOption {
+    private static final String TABLE_DELIMITER = ":";
+
+    private final String tableName;
+    private final String rowKey;
+
+    private RowHistoryOption(String tableName, String rowKey) {
+        this.tableName = tableName;
+        this.rowKey = rowKey;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getRowKey() {
+        return rowKey;
+    }
+
+    public static RowHistoryOption create(String input) throws Exception {
+        int delimiterIndex = input.indexOf(TABLE_DELIMITER);
+        if (delimiterIndex <= 0 || delimiterIndex == input.length() - 1) {
+            throw new Exception(ErrorMessages.CLI_INVALID_HISTORY);
+        }
+        return new RowHistoryOption(input.substring(0, delimiterIndex).trim(), input.substring(delimiterIndex + 1).trim());
+    }
+}
@@ -0,0 +1,36 @@
+package com.dbw.db;
+
+import java.sql.Timestamp;
+
+/**
+ * The number of rows affected by a single operation type on a counted table since the previously read counts.
+ */
+public class AuditCount {
+    private final String tableName;
+    private final Operation operation;
+    private final long rowCount;
+    private final Timestamp firstTimestamp;
+
+    public AuditCount(String tableName, Operation operation, long rowCount, Timestamp firstTimestamp) {
+        this.tableName = tableName;
+        this.operation = operation;
+        this.rowCount = rowCount;
+        this.firstTimestamp = firstTimestamp;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public Timestamp getFirstTimestamp() {
+        return firstTimestamp;
+    }
+}
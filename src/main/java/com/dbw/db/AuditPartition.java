@@ -0,0 +1,56 @@
+package com.dbw.db;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A partition of a range partitioned audit table, parsed from its pg_get_expr(relpartbound) expression.
+ */
+public class AuditPartition {
+    private final static String DEFAULT_BOUND = "DEFAULT";
+    private final static String UNLOGGED_PERSISTENCE = "u";
+    private final static Pattern RANGE_BOUND = Pattern.compile("FROM \\('?(-?\\d+)'?\\) TO \\('?(-?\\d+)'?\\)");
+
+    private final String name;
+    private final boolean unlogged;
+    private final boolean isDefault;
+    private final long lowerBound;
+    private final long upperBound;
+
+    public AuditPartition(String name, String persistence, String bound) {
+        this.name = name;
+        this.unlogged = UNLOGGED_PERSISTENCE.equals(persistence);
+        this.isDefault = DEFAULT_BOUND.equals(bound);
+        Matcher rangeBound = RANGE_BOUND.matcher(bound);
+        if (!isDefault && rangeBound.find()) {
+            this.lowerBound = Long.parseLong(rangeBound.group(1));
+            this.upperBound = Long.parseLong(rangeBound.group(2));
+        } else {
+            this.lowerBound = 0;
+            this.upperBound = 0;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isUnlogged() {
+        return unlogged;
+    }
+
+    public boolean isDefault() {
+        return isDefault;
+    }
+
+    public long getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Exclusive, as in the FOR VALUES FROM ... TO ... clause.
+     */
+    public long getUpperBound() {
+        return upperBound;
+    }
+}
@@ -2,14 +2,19 @@ package com.dbw.db;
 
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.util.Map;
 
 public class AuditRecord {
     private int id;
     private String tableName;
     private String oldData;
     private String newData;
+    private Map<String, Object> oldState;
+    private Map<String, Object> newState;
     private Operation operation;
     private String query;
+    private String queryHash;
+    private String transactionId;
     private Timestamp timestamp;
 
     public int getId() {
@@ -44,6 +49,29 @@ public class AuditRecord {
         this.newData = newData;
     }
 
+    public Map<String, Object> getOldState() {
+        return oldState;
+    }
+
+    public void setOldState(Map<String, Object> oldState) {
+        this.oldState = oldState;
+    }
+
+    public Map<String, Object> getNewState() {
+        return newState;
+    }
+
+    public void setNewState(Map<String, Object> newState) {
+        this.newState = newState;
+    }
+
+    /**
+     * Records read from shadow tables carry typed row states instead of serialized data.
+     */
+    public boolean hasTypedStates() {
+        return oldState != null || newState != null;
+    }
+
     public Operation getOperation() {
         return operation;
     }
@@ -60,6 +88,25 @@ public class AuditRecord {
         this.query = query;
     }
 
+    public String getQueryHash() {
+        return queryHash;
+    }
+
+    public void setQueryHash(String queryHash) {
+        this.queryHash = queryHash;
+    }
+
+    /**
+     * Empty for records written before the transaction ID was captured and for records read from shadow tables.
+     */
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
+
     public Timestamp getTimestamp() {
         return timestamp;
     }
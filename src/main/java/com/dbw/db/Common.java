@@ -9,15 +9,65 @@ public class Common {
     public final static String ITEM = "item";
     public final static String COLNAME_ID = "id";
     public final static String DBW_AUDIT_TABLE_NAME = "DBW_AUDIT";
+    public final static String DBW_AUDIT_SEQ_NAME = "DBW_AUDIT_SEQ";
+    public final static String DBW_AUDIT_QUERY_TABLE_NAME = "DBW_AUDIT_QUERY";
+    public final static String DBW_AUDIT_PARTITION_PREFIX = "DBW_AUDIT_P";
+    public final static String DBW_AUDIT_SHARD_PREFIX = "DBW_AUDIT_S";
+    public final static String DBW_AUDIT_DEFAULT_PARTITION_NAME = "DBW_AUDIT_DEFAULT";
     public final static String DBW_AUDIT_FUNC_NAME = "DBW_AUDIT_FUNC";
+    public final static String DBW_AUDIT_STMT_FUNC_NAME = "DBW_AUDIT_STMT_FUNC";
+    public final static String DBW_CHANGED_COLUMNS_FUNC_NAME = "DBW_CHANGED_COLUMNS";
+    public final static String DBW_TRUNCATE_STATE_FUNC_NAME = "DBW_TRUNCATE_STATE";
+    public final static String DBW_FILTER_STATE_FUNC_NAME = "DBW_FILTER_STATE";
+    public final static String DBW_TRUNCATE_VALUE_FUNC_NAME = "DBW_TRUNCATE_VALUE";
+    public final static String DBW_AUDIT_RING_FUNC_NAME = "DBW_AUDIT_RING_FUNC";
+    public final static String DBW_AUDIT_RING_TRIGGER_NAME = "DBW_AUDIT_RING_TRG";
+    public final static String DBW_ROW_KEY_FUNC_NAME = "DBW_ROW_KEY";
+    public final static String DBW_AUDIT_COUNTS_TABLE_NAME = "DBW_AUDIT_COUNTS";
+    public final static String DBW_AUDIT_COUNT_FUNC_NAME = "DBW_AUDIT_COUNT_FUNC";
+    public final static String DBW_REPLICA_IDENTITY_TABLE_NAME = "DBW_REPLICA_IDENTITY";
+    public final static String DBW_DDL_LOG_TABLE_NAME = "DBW_DDL_LOG";
+    public final static String DBW_DDL_LOG_SEQ_NAME = "DBW_DDL_LOG_SEQ";
+    public final static String DBW_DDL_FUNC_NAME = "DBW_DDL_FUNC";
+    public final static String DBW_DDL_TRIGGER_NAME = "DBW_DDL_TRG";
+    public final static String DBW_SHADOW_POSTFIX = "_SHADOW";
+    public final static String DBW_SHADOW_FUNC_POSTFIX = "_SHADOW_FUNC";
+    public final static String DBW_SHADOW_SEQ_NAME = "DBW_SHADOW_SEQ";
+    public final static String DBW_SHADOW_AUDIT_VIEW_NAME = "DBW_SHADOW_AUDIT";
+    public final static String TRUNCATED_VALUE_DIGEST_START = "...[";
+    public final static String TRUNCATED_VALUE_DIGEST_END = "]";
+    public final static String DBW_AUDIT_CHANNEL = "dbw_audit";
+    public final static String DBW_QUERY_HASH_SETTING = "dbw.query_hash";
+    public final static String DBW_QUERY_MARKER_SETTING = "dbw.query_marker";
+    public final static String DBW_OLD_ROWS = "dbw_old_rows";
+    public final static String DBW_NEW_ROWS = "dbw_new_rows";
     public final static String COLNAME_TABLE_NAME = "table_name";
     public final static String COLNAME_OLD_STATE = "old_state";
     public final static String COLNAME_NEW_STATE = "new_state";
     public final static String COLNAME_OPERATION = "operation";
     public final static String COLNAME_QUERY = "query";
+    public final static String COLNAME_QUERY_HASH = "query_hash";
+    public final static String COLNAME_TRANSACTION_ID = "transaction_id";
+    public final static String COLNAME_ROW_KEY = "row_key";
+    public final static String COLNAME_SLOT = "slot";
+    public final static String COLNAME_COMMAND_TAG = "command_tag";
+    public final static String COLNAME_HASH = "hash";
+    public final static String COLNAME_LAST_USED = "last_used";
+    public final static String COLNAME_REPLICA_IDENTITY = "replica_identity";
+    public final static String COLNAME_PARTITION_NAME = "partition_name";
+    public final static String COLNAME_PARTITION_PERSISTENCE = "partition_persistence";
+    public final static String COLNAME_PARTITION_BOUND = "partition_bound";
     public final static String COLNAME_TIMESTAMP = "timestamp";
+    public final static String COLNAME_ROW_COUNT = "row_count";
+    public final static String COLNAME_FIRST_TIMESTAMP = "first_timestamp";
+    public final static String COLNAME_SHADOW_ID = "dbw_id";
+    public final static String COLNAME_SHADOW_OPERATION = "dbw_operation";
+    public final static String COLNAME_SHADOW_STATE = "dbw_state";
+    public final static String COLNAME_SHADOW_TIMESTAMP = "dbw_timestamp";
     public final static String NULL_AS_STRING = "null";
     public final static String COMMA_DELIMITER = ", ";
+    public final static String ROW_KEY_DELIMITER = ",";
     public final static String SPACE_DELIMITER = " ";
     public final static String SINGLE_QUOTE = "'";
+    public final static String DOUBLE_QUOTE = "\"";
 }
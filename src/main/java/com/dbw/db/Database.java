@@ -15,13 +15,16 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
 
 public abstract class Database {
     protected DatabaseConfig dbConfig;
     private Connection conn;
+    private final Config config;
     private final Set<String> watchedTables;
 
     public Database(Config config) {
+        this.config = config;
         this.dbConfig = config.getDatabase();
         this.watchedTables = config.getTables();
     }
@@ -40,6 +43,11 @@ public abstract class Database {
 
     public abstract List<AuditRecord> selectAuditRecords(int fromId) throws SQLException, UnknownDbOperationException;
 
+    /**
+     * Reads the records with the given IDs, which are the gaps left by transactions that committed out of ID order.
+     */
+    public abstract List<AuditRecord> selectAuditRecords(SortedSet<Integer> ids) throws SQLException, UnknownDbOperationException;
+
     public abstract int selectMaxId() throws SQLException;
 
     public abstract void connect() throws UnrecoverableException;
@@ -48,6 +56,33 @@ public abstract class Database {
 
     public abstract boolean purge(Set<String> watchedTables);
 
+    public abstract boolean ddlTriggerExists() throws SQLException;
+
+    public abstract int selectMaxDdlChangeId() throws SQLException;
+
+    public abstract List<DdlChange> selectDdlChanges(int fromId) throws SQLException;
+
+    /**
+     * Regenerates the audit trigger of a table altered during the session, without preparing the other tables again.
+     */
+    public abstract void refreshAuditTrigger(String tableName) throws SQLException, PreparationException;
+
+    protected List<DdlChange> selectDdlChanges(String query, int fromId) throws SQLException {
+        List<DdlChange> ddlChanges = new ArrayList<>();
+        PreparedStatement pstmt = conn.prepareStatement(query);
+        pstmt.setInt(1, fromId);
+        ResultSet rs = pstmt.executeQuery();
+        while (rs.next()) {
+            ddlChanges.add(new DdlChange(
+                    rs.getInt(Common.COLNAME_ID),
+                    rs.getString(Common.COLNAME_TABLE_NAME),
+                    rs.getString(Common.COLNAME_COMMAND_TAG)
+            ));
+        }
+        pstmt.close();
+        return ddlChanges;
+    }
+
     protected String deleteFirstNRows(String nRows, String deleteAllQuery, String deleteAllLteQuery) throws SQLException {
         int rowCount = getAuditRecordCount();
         if (rowCount == 0) {
@@ -111,9 +146,29 @@ public abstract class Database {
     }
 
     protected List<AuditRecord> selectAuditRecords(String query, int fromId) throws SQLException, UnknownDbOperationException {
-        List<AuditRecord> result = new ArrayList<>();
         PreparedStatement pstmt = conn.prepareStatement(query);
         pstmt.setInt(1, fromId);
+        return executeAuditRecordsQuery(pstmt);
+    }
+
+    /**
+     * Looks the changes of a single row up by the table name and the row's primary key value, optionally limited
+     * to the given number of latest seconds.
+     */
+    public List<AuditRecord> selectRowHistory(String tableName, String rowKey, Long seconds) throws SQLException, UnknownDbOperationException {
+        PreparedStatement pstmt = conn.prepareStatement(buildRowHistoryQuery(seconds != null));
+        pstmt.setString(1, tableName);
+        pstmt.setString(2, rowKey);
+        if (seconds != null) {
+            pstmt.setLong(3, seconds);
+        }
+        return executeAuditRecordsQuery(pstmt);
+    }
+
+    protected abstract String buildRowHistoryQuery(boolean withinPeriod);
+
+    private List<AuditRecord> executeAuditRecordsQuery(PreparedStatement pstmt) throws SQLException, UnknownDbOperationException {
+        List<AuditRecord> result = new ArrayList<>();
         ResultSet rs = pstmt.executeQuery();
         while (rs.next()) {
             AuditRecord auditRecord = new AuditRecord();
@@ -126,6 +181,12 @@ public abstract class Database {
             if (columnExists(rs, Common.COLNAME_QUERY)) {
                 auditRecord.setQuery(rs.getString(Common.COLNAME_QUERY));
             }
+            if (columnExists(rs, Common.COLNAME_QUERY_HASH)) {
+                auditRecord.setQueryHash(rs.getString(Common.COLNAME_QUERY_HASH));
+            }
+            if (columnExists(rs, Common.COLNAME_TRANSACTION_ID)) {
+                auditRecord.setTransactionId(rs.getString(Common.COLNAME_TRANSACTION_ID));
+            }
             auditRecord.setTimestamp(rs.getTimestamp(Common.COLNAME_TIMESTAMP));
             result.add(auditRecord);
         }
@@ -197,6 +258,10 @@ public abstract class Database {
         this.conn = conn;
     }
 
+    public Config getConfig() {
+        return config;
+    }
+
     public DatabaseConfig getDbConfig() {
         return dbConfig;
     }
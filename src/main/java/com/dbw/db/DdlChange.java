@@ -0,0 +1,28 @@
+package com.dbw.db;
+
+/**
+ * A DDL command executed on a table, as recorded by the DDL trigger.
+ */
+public class DdlChange {
+    private final int id;
+    private final String tableName;
+    private final String commandTag;
+
+    public DdlChange(int id, String tableName, String commandTag) {
+        this.id = id;
+        this.tableName = tableName;
+        this.commandTag = commandTag;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getCommandTag() {
+        return commandTag;
+    }
+}
@@ -0,0 +1,249 @@
+package com.dbw.db;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.*;
+
+/**
+ * Turns the text output of the test_decoding plugin into audit records.
+ * Changes are buffered until their transaction commits and are then stamped with the commit time.
+ */
+public class DecodedChangeParser {
+    private final static String BEGIN = "BEGIN";
+    private final static String COMMIT = "COMMIT";
+    private final static String TABLE = "table ";
+    private final static String OLD_KEY = "old-key:";
+    private final static String NEW_TUPLE = "new-tuple:";
+    private final static String NULL_VALUE = "null";
+    private final static String UNCHANGED_TOAST_VALUE = "unchanged-toast-datum";
+    private final static String COMMIT_TIMESTAMP_PREFIX = "(at ";
+    private final static DateTimeFormatter COMMIT_TIMESTAMP_FORMAT = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd HH:mm:ss")
+            .optionalStart()
+            .appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)
+            .optionalEnd()
+            .appendOffset("+HH:mm", "+00")
+            .toFormatter();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String schema;
+    private final Set<String> tables;
+    private final boolean skipUnchangedUpdates;
+    private final List<AuditRecord> pending = new ArrayList<>();
+    private String transactionId;
+    private int lastId;
+
+    public DecodedChangeParser(String schema, Set<String> tables, boolean skipUnchangedUpdates) {
+        this.schema = schema;
+        this.tables = tables;
+        this.skipUnchangedUpdates = skipUnchangedUpdates;
+    }
+
+    public List<AuditRecord> parse(String message) throws JsonProcessingException {
+        if (message.startsWith(BEGIN)) {
+            pending.clear();
+            transactionId = message.substring(BEGIN.length()).trim();
+        } else if (message.startsWith(TABLE)) {
+            parseChange(message).ifPresent(pending::add);
+        } else if (message.startsWith(COMMIT)) {
+            Timestamp commitTimestamp = parseCommitTimestamp(message);
+            List<AuditRecord> committed = new ArrayList<>(pending);
+            for (AuditRecord auditRecord : committed) {
+                auditRecord.setId(++lastId);
+                auditRecord.setTimestamp(commitTimestamp);
+                auditRecord.setTransactionId(transactionId);
+            }
+            pending.clear();
+            return committed;
+        }
+        return Collections.emptyList();
+    }
+
+    private Optional<AuditRecord> parseChange(String message) throws JsonProcessingException {
+        Cursor cursor = new Cursor(message, TABLE.length());
+        String tableSchema = cursor.readIdentifier();
+        cursor.expect('.');
+        String tableName = cursor.readIdentifier();
+        cursor.expect(':');
+        cursor.skipSpaces();
+        String operationName = cursor.readUntil(':');
+        cursor.expect(':');
+        cursor.skipSpaces();
+        if (!tableSchema.equals(schema) || !tables.contains(tableName)) {
+            return Optional.empty();
+        }
+
+        AuditRecord auditRecord = new AuditRecord();
+        auditRecord.setTableName(tableName);
+        switch (operationName) {
+            case "INSERT":
+                auditRecord.setOperation(Operation.INSERT);
+                auditRecord.setNewData(toJson(parseTuple(cursor, null)));
+                break;
+            case "UPDATE":
+                auditRecord.setOperation(Operation.UPDATE);
+                ObjectNode oldTuple = null;
+                if (cursor.skip(OLD_KEY)) {
+                    oldTuple = parseTuple(cursor, null);
+                    auditRecord.setOldData(toJson(oldTuple));
+                    cursor.skip(NEW_TUPLE);
+                }
+                auditRecord.setNewData(toJson(parseTuple(cursor, oldTuple)));
+                if (skipUnchangedUpdates && auditRecord.getNewData().equals(auditRecord.getOldData())) {
+                    return Optional.empty();
+                }
+                break;
+            case "DELETE":
+                auditRecord.setOperation(Operation.DELETE);
+                auditRecord.setOldData(toJson(parseTuple(cursor, null)));
+                break;
+            default:
+                return Optional.empty();
+        }
+        return Optional.of(auditRecord);
+    }
+
+    /**
+     * Values of TOASTed columns that an update didn't change aren't decoded.
+     * They are carried over from the old tuple when it has them, otherwise the columns are left out.
+     */
+    private ObjectNode parseTuple(Cursor cursor, ObjectNode oldTuple) {
+        ObjectNode tuple = mapper.createObjectNode();
+        cursor.skipSpaces();
+        while (!cursor.isAtEnd() && !cursor.startsWith(NEW_TUPLE) && !cursor.startsWith("(")) {
+            String columnName = cursor.readIdentifier();
+            cursor.expect('[');
+            cursor.readUntil("]:");
+            cursor.expect(']');
+            cursor.expect(':');
+            if (cursor.startsWith("'")) {
+                tuple.put(columnName, cursor.readQuoted());
+            } else {
+                String value = cursor.readUntil(' ');
+                if (value.equals(NULL_VALUE)) {
+                    tuple.putNull(columnName);
+                } else if (value.equals(UNCHANGED_TOAST_VALUE)) {
+                    if (oldTuple != null && oldTuple.has(columnName)) {
+                        tuple.set(columnName, oldTuple.get(columnName));
+                    }
+                } else {
+                    tuple.put(columnName, value);
+                }
+            }
+            cursor.skipSpaces();
+        }
+        return tuple;
+    }
+
+    private String toJson(ObjectNode tuple) throws JsonProcessingException {
+        return mapper.writeValueAsString(tuple);
+    }
+
+    private Timestamp parseCommitTimestamp(String message) {
+        int timestampStart = message.indexOf(COMMIT_TIMESTAMP_PREFIX);
+        if (timestampStart < 0) {
+            return new Timestamp(System.currentTimeMillis());
+        }
+        timestampStart += COMMIT_TIMESTAMP_PREFIX.length();
+        String rawTimestamp = message.substring(timestampStart, message.indexOf(')', timestampStart));
+        return Timestamp.from(OffsetDateTime.parse(rawTimestamp, COMMIT_TIMESTAMP_FORMAT).toInstant());
+    }
+
+    private static class Cursor {
+        private final String text;
+        private int position;
+
+        Cursor(String text, int position) {
+            this.text = text;
+            this.position = position;
+        }
+
+        boolean isAtEnd() {
+            return position >= text.length();
+        }
+
+        boolean startsWith(String prefix) {
+            return text.startsWith(prefix, position);
+        }
+
+        boolean skip(String prefix) {
+            if (!startsWith(prefix)) {
+                return false;
+            }
+            position += prefix.length();
+            skipSpaces();
+            return true;
+        }
+
+        void skipSpaces() {
+            while (!isAtEnd() && text.charAt(position) == ' ') {
+                position++;
+            }
+        }
+
+        void expect(char c) {
+            if (isAtEnd() || text.charAt(position) != c) {
+                throw new IllegalArgumentException(String.format("Expected '%s' at position %d: %s", c, position, text));
+            }
+            position++;
+        }
+
+        String readIdentifier() {
+            if (startsWith("\"")) {
+                return readDelimited('"');
+            }
+            int start = position;
+            while (!isAtEnd() && ".:[".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            return text.substring(start, position);
+        }
+
+        String readQuoted() {
+            return readDelimited('\'');
+        }
+
+        private String readDelimited(char delimiter) {
+            StringBuilder value = new StringBuilder();
+            position++;
+            while (!isAtEnd()) {
+                char c = text.charAt(position++);
+                if (c != delimiter) {
+                    value.append(c);
+                } else if (!isAtEnd() && text.charAt(position) == delimiter) {
+                    value.append(c);
+                    position++;
+                } else {
+                    break;
+                }
+            }
+            return value.toString();
+        }
+
+        String readUntil(char c) {
+            int end = text.indexOf(c, position);
+            return readTo(end);
+        }
+
+        String readUntil(String s) {
+            int end = text.indexOf(s, position);
+            return readTo(end);
+        }
+
+        private String readTo(int end) {
+            if (end < 0) {
+                end = text.length();
+            }
+            String value = text.substring(position, end);
+            position = end;
+            return value;
+        }
+    }
+}
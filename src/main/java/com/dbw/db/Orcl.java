@@ -17,9 +17,11 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.SortedSet;
 
 public class Orcl extends Database {
     private final String DRIVER = "oracle.jdbc.driver.OracleDriver";
@@ -73,6 +75,10 @@ public class Orcl extends Database {
         orclPrepareService.prepare();
     }
 
+    public int getServerMajorVersion() throws SQLException {
+        return getConn().getMetaData().getDatabaseMajorVersion();
+    }
+
     public boolean auditTableExists() throws SQLException {
         String[] stringArgs = {dbConfig.getUser().toUpperCase(), Common.DBW_AUDIT_TABLE_NAME};
         return objectExists(OrclQueries.FIND_AUDIT_TABLE, stringArgs);
@@ -80,7 +86,62 @@ public class Orcl extends Database {
 
     public void createAuditTable() throws SQLException {
         executeFormattedQueryUpdate(OrclQueries.CREATE_AUDIT_TABLE, Common.DBW_AUDIT_TABLE_NAME);
+        executeFormattedQueryUpdate(OrclQueries.CREATE_AUDIT_ROW_KEY_INDEX, Common.DBW_AUDIT_TABLE_NAME);
+        createAuditTimestampIndex();
         Logger.log(Level.INFO, dbConfig.getName(), LogMessages.AUDIT_TABLE_CREATED);
+        if (!auditSequenceExists()) {
+            createAuditSequence(1);
+        }
+    }
+
+    public boolean auditSequenceExists() throws SQLException {
+        return sequenceExists(Common.DBW_AUDIT_SEQ_NAME);
+    }
+
+    private boolean sequenceExists(String sequenceName) throws SQLException {
+        String[] stringArgs = {dbConfig.getUser().toUpperCase(), sequenceName};
+        return objectExists(OrclQueries.FIND_AUDIT_SEQUENCE, stringArgs);
+    }
+
+    /**
+     * The sequence continues from the given ID, so that an audit table filled by the former triggers keeps its order.
+     */
+    public void createAuditSequence(int startWith) throws SQLException {
+        executeFormattedQueryUpdate(OrclQueries.CREATE_AUDIT_SEQUENCE, Common.DBW_AUDIT_SEQ_NAME, startWith);
+        Logger.log(Level.INFO, dbConfig.getName(), LogMessages.AUDIT_SEQUENCE_CREATED);
+    }
+
+    public void createTruncateValueFunction() throws SQLException {
+        executeFormattedQueryUpdate(OrclQueries.CREATE_TRUNCATE_VALUE_FUNCTION, Common.DBW_TRUNCATE_VALUE_FUNC_NAME);
+    }
+
+    public boolean auditTimestampIndexExists() throws SQLException {
+        String indexName = (Common.DBW_AUDIT_TABLE_NAME + "_" + Common.COLNAME_TIMESTAMP + "_IDX").toUpperCase();
+        String[] stringArgs = {dbConfig.getUser().toUpperCase(), indexName};
+        return objectExists(OrclQueries.FIND_AUDIT_INDEX, stringArgs);
+    }
+
+    public void createAuditTimestampIndex() throws SQLException {
+        executeFormattedQueryUpdate(OrclQueries.CREATE_AUDIT_TIMESTAMP_INDEX, Common.DBW_AUDIT_TABLE_NAME);
+    }
+
+    public boolean auditColumnExists(String columnName) throws SQLException {
+        return Arrays.stream(selectTableColumns(Common.DBW_AUDIT_TABLE_NAME))
+                .anyMatch(column -> column.getName().equalsIgnoreCase(columnName));
+    }
+
+    public void addAuditTransactionIdColumn() throws SQLException {
+        executeFormattedQueryUpdate(OrclQueries.ADD_AUDIT_TRANSACTION_ID_COLUMN, Common.DBW_AUDIT_TABLE_NAME);
+    }
+
+    public void addAuditRowKeyColumn() throws SQLException {
+        executeFormattedQueryUpdate(OrclQueries.ADD_AUDIT_ROW_KEY_COLUMN, Common.DBW_AUDIT_TABLE_NAME);
+        executeFormattedQueryUpdate(OrclQueries.CREATE_AUDIT_ROW_KEY_INDEX, Common.DBW_AUDIT_TABLE_NAME);
+    }
+
+    public List<String> selectPrimaryKeyColumns(String tableName) throws SQLException {
+        String[] stringArgs = {dbConfig.getUser().toUpperCase(), tableName};
+        return selectStringArray(OrclQueries.SELECT_PRIMARY_KEY_COLUMNS, stringArgs);
     }
 
     public int getAuditRecordCount() throws SQLException {
@@ -110,8 +171,49 @@ public class Orcl extends Database {
         Logger.log(Level.INFO, dbConfig.getName(), String.format(LogMessages.AUDIT_TRIGGER_DROPPED, tableName));
     }
 
+    public void prepareDdlTrigger() throws SQLException {
+        String[] stringArgs = {dbConfig.getUser().toUpperCase(), Common.DBW_DDL_LOG_TABLE_NAME};
+        if (!objectExists(OrclQueries.FIND_AUDIT_TABLE, stringArgs)) {
+            executeFormattedQueryUpdate(OrclQueries.CREATE_DDL_LOG_TABLE, Common.DBW_DDL_LOG_TABLE_NAME);
+        }
+        if (!sequenceExists(Common.DBW_DDL_LOG_SEQ_NAME)) {
+            // Continues from the IDs given by the former trigger, so that the watched change ID stays valid.
+            executeFormattedQueryUpdate(OrclQueries.CREATE_AUDIT_SEQUENCE, Common.DBW_DDL_LOG_SEQ_NAME, selectMaxDdlChangeId() + 1);
+        }
+        executeFormattedQueryUpdate(OrclQueries.CREATE_DDL_TRIGGER, Common.DBW_DDL_TRIGGER_NAME, Common.DBW_DDL_LOG_TABLE_NAME, Common.DBW_DDL_LOG_SEQ_NAME);
+        Logger.log(Level.INFO, dbConfig.getName(), LogMessages.DDL_TRIGGER_CREATED);
+    }
+
+    public boolean ddlTriggerExists() throws SQLException {
+        String[] stringArgs = {Common.DBW_DDL_TRIGGER_NAME};
+        return objectExists(OrclQueries.FIND_AUDIT_TRIGGER, stringArgs);
+    }
+
+    public int selectMaxDdlChangeId() throws SQLException {
+        return selectSingleIntValue(OrclQueries.SELECT_DDL_LOG_MAX_ID, Common.MAX);
+    }
+
+    public List<DdlChange> selectDdlChanges(int fromId) throws SQLException {
+        return selectDdlChanges(OrclQueries.SELECT_DDL_CHANGES, fromId);
+    }
+
+    public void refreshAuditTrigger(String tableName) throws SQLException, PreparationException {
+        OrclPrepareService orclPrepareService = new OrclPrepareService(this);
+        orclPrepareService.createAuditTrigger(tableName);
+    }
+
     public boolean purge(Set<String> watchedTables) {
         boolean success = true;
+        try {
+            executeFormattedQueryUpdate(OrclQueries.DROP_AUDIT_TRIGGER, Common.DBW_DDL_TRIGGER_NAME);
+            executeFormattedQueryUpdate("DROP TABLE " + Common.DBW_DDL_LOG_TABLE_NAME);
+            if (sequenceExists(Common.DBW_DDL_LOG_SEQ_NAME)) {
+                executeFormattedQueryUpdate(OrclQueries.DROP_AUDIT_SEQUENCE, Common.DBW_DDL_LOG_SEQ_NAME);
+            }
+        } catch (SQLException e) {
+            success = false;
+            new RecoverableException("Purge", e.getMessage(), e).setRecoverable().handle();
+        }
         for (String tableName : watchedTables) {
             try {
                 dropAuditTrigger(tableName);
@@ -122,6 +224,13 @@ public class Orcl extends Database {
         }
         try {
             dropAuditTable(Common.DBW_AUDIT_TABLE_NAME);
+            if (auditSequenceExists()) {
+                executeFormattedQueryUpdate(OrclQueries.DROP_AUDIT_SEQUENCE, Common.DBW_AUDIT_SEQ_NAME);
+            }
+            String[] stringArgs = {dbConfig.getUser().toUpperCase(), Common.DBW_TRUNCATE_VALUE_FUNC_NAME};
+            if (objectExists(OrclQueries.FIND_FUNCTION, stringArgs)) {
+                executeFormattedQueryUpdate(OrclQueries.DROP_FUNCTION, Common.DBW_TRUNCATE_VALUE_FUNC_NAME);
+            }
         } catch (SQLException e) {
             success = false;
             new RecoverableException("Purge", e.getMessage(), e).setRecoverable().handle();
@@ -171,4 +280,18 @@ public class Orcl extends Database {
                 new SelectAuditRecordsQueryBuilder(OrclQueries.SELECT_AUDIT_RECORDS);
         return selectAuditRecords(selectAuditRecordsBuilder.build(), fromId);
     }
+
+    protected String buildRowHistoryQuery(boolean withinPeriod) {
+        String query = OrclQueries.SELECT_ROW_HISTORY;
+        if (withinPeriod) {
+            query += OrclQueries.ROW_HISTORY_PERIOD;
+        }
+        return query + OrclQueries.ORDER_BY_ID;
+    }
+
+    public List<AuditRecord> selectAuditRecords(SortedSet<Integer> ids) throws SQLException, UnknownDbOperationException {
+        SelectAuditRecordsQueryBuilder selectAuditRecordsBuilder =
+                new SelectAuditRecordsQueryBuilder(OrclQueries.SELECT_AUDIT_RECORDS).ids(ids).allTables();
+        return selectAuditRecords(selectAuditRecordsBuilder.build(), ids.first() - 1);
+    }
 }
@@ -1,34 +1,100 @@
 package com.dbw.db;
 
+import com.dbw.cfg.CaptureLevel;
+import com.dbw.cfg.StateFormat;
+import com.dbw.cfg.TableConfig;
+import com.dbw.db.query.PredicateCompiler;
 import com.dbw.db.query.QueryHelper;
 import com.dbw.err.PreparationException;
 import com.dbw.log.ErrorMessages;
+import com.dbw.state.JsonStateBuilder;
+import com.dbw.state.StateBuilder;
 import com.dbw.state.XmlStateBuilder;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 public class OrclPrepareService {
-    private final XmlStateBuilder xmlStateBuilder;
+    private final static int JSON_STATE_FORMAT_MIN_VERSION = 18;
+    private final StateBuilder stateBuilder;
     private final Orcl db;
+    private boolean auditSequenceCreated;
 
     public OrclPrepareService(Orcl db) {
         this.db = db;
-        this.xmlStateBuilder = new XmlStateBuilder();
+        this.stateBuilder = db.getConfig().getStateFormat().equals(StateFormat.JSON) ?
+                new JsonStateBuilder(db.getConfig().getMaxColumnValueBytes()) :
+                new XmlStateBuilder(db.getConfig().getMaxColumnValueBytes());
     }
 
     public void prepare() throws PreparationException {
+        if (db.getConfig().getStateFormat().equals(StateFormat.JSON)) {
+            checkJsonStateFormatSupport();
+        }
         try {
             prepareAuditTable();
         } catch (SQLException e) {
             String errMsg = String.format(ErrorMessages.CREATE_AUDIT_TABLE, e.getMessage());
             throw new PreparationException(errMsg, e);
         }
+        if (db.getConfig().getMaxColumnValueBytes().isPresent()) {
+            prepareTruncateValueFunction();
+        }
+        prepareDdlTrigger();
         prepareAuditTriggers();
     }
 
+    private void checkJsonStateFormatSupport() throws PreparationException {
+        try {
+            int serverMajorVersion = db.getServerMajorVersion();
+            if (serverMajorVersion < JSON_STATE_FORMAT_MIN_VERSION) {
+                String errMsg = String.format(ErrorMessages.JSON_STATE_FORMAT_UNSUPPORTED, serverMajorVersion);
+                throw new PreparationException(errMsg, null);
+            }
+        } catch (SQLException e) {
+            throw new PreparationException(e.getMessage(), e);
+        }
+    }
+
+    private void prepareTruncateValueFunction() throws PreparationException {
+        try {
+            db.createTruncateValueFunction();
+        } catch (SQLException e) {
+            throw new PreparationException(e.getMessage(), e);
+        }
+    }
+
+    private void prepareDdlTrigger() {
+        try {
+            db.prepareDdlTrigger();
+        } catch (SQLException e) {
+            String errMsg = String.format(ErrorMessages.CREATE_DDL_TRIGGER, e.getMessage());
+            new PreparationException(errMsg, e).setRecoverable().handle();
+        }
+    }
+
     private void prepareAuditTable() throws SQLException {
         if (!db.auditTableExists()) {
             db.createAuditTable();
+            return;
+        }
+        if (!db.auditColumnExists(Common.COLNAME_TRANSACTION_ID)) {
+            db.addAuditTransactionIdColumn();
+        }
+        if (!db.auditColumnExists(Common.COLNAME_ROW_KEY)) {
+            db.addAuditRowKeyColumn();
+        }
+        if (!db.auditTimestampIndexExists()) {
+            db.createAuditTimestampIndex();
+        }
+        if (!db.auditSequenceExists()) {
+            db.createAuditSequence(db.selectMaxId() + 1);
+            auditSequenceCreated = true;
         }
     }
 
@@ -50,32 +116,121 @@ public class OrclPrepareService {
         }
     }
 
+    /**
+     * Triggers generated before the audit sequence existed take the IDs from MAX(ID)+1,
+     * so all of them are recreated together with the sequence.
+     */
     private void createAuditTriggers() {
         for (String tableName : db.getWatchedTables()) {
             try {
-                if (db.auditTriggerExists(tableName)) {
+                if (!auditSequenceCreated && db.auditTriggerExists(tableName) && !db.getConfig().isTableChanged(tableName)) {
                     continue;
                 }
-                Column[] tableColumns = db.selectTableColumns(tableName);
-                String newStateConcat = xmlStateBuilder.build(OrclSpec.NEW_STATE_PREFIX, tableColumns);
-                String oldStateConcat = xmlStateBuilder.build(OrclSpec.OLD_STATE_PREFIX, tableColumns);
-                String auditTriggerName = QueryHelper.buildAuditTriggerName(tableName);
-                String auditTriggerQuery = db.formatQuery(
-                    OrclQueries.CREATE_AUDIT_TRIGGER,
-                    auditTriggerName,
-                    tableName,
-                    oldStateConcat,
-                    newStateConcat,
-                    tableName,
-                    tableName,
-                    tableName
-                );
-                db.createAuditTrigger(tableName, auditTriggerQuery);
+                createAuditTrigger(tableName);
             } catch (SQLException e) {
                 String errMsg = String.format(ErrorMessages.CREATE_AUDIT_TRIGGER, tableName, e.getMessage());
                 new PreparationException(errMsg, e).setRecoverable().handle();
+            } catch (PreparationException e) {
+                e.setRecoverable().handle();
             }
         }
     }
-    
+
+    public void createAuditTrigger(String tableName) throws SQLException, PreparationException {
+        TableConfig tableConfig = db.getConfig().getTableConfig(tableName);
+        Column[] allTableColumns = db.selectTableColumns(tableName);
+        String predicateGuard = buildPredicateGuard(tableName, tableConfig, allTableColumns) + buildSampleGuard(tableConfig);
+        Column[] tableColumns = filterColumns(tableName, tableConfig, allTableColumns);
+        String newStateConcat = stateBuilder.build(OrclSpec.NEW_STATE_PREFIX, tableColumns);
+        String oldStateConcat = stateBuilder.build(OrclSpec.OLD_STATE_PREFIX, tableColumns);
+        String auditTriggerName = QueryHelper.buildAuditTriggerName(tableName);
+        List<String> primaryKeyColumnNames = db.selectPrimaryKeyColumns(tableName);
+        String auditTriggerQuery = db.formatQuery(
+            OrclQueries.CREATE_AUDIT_TRIGGER,
+            auditTriggerName,
+            buildUpdateEvent(tableConfig, tableColumns),
+            tableName,
+            tableName,
+            predicateGuard,
+            oldStateConcat,
+            newStateConcat,
+            // With a column list, an update of ignored columns only results in identical states.
+            db.getConfig().isSkipUnchangedUpdates() || tableConfig.isColumnFilterPresent() ? OrclQueries.SKIP_UNCHANGED_UPDATE : "",
+            buildRowKey(OrclSpec.OLD_STATE_PREFIX, primaryKeyColumnNames),
+            buildRowKey(OrclSpec.NEW_STATE_PREFIX, primaryKeyColumnNames)
+        );
+        db.createAuditTrigger(tableName, auditTriggerQuery);
+    }
+
+    private String buildPredicateGuard(String tableName, TableConfig tableConfig, Column[] tableColumns) throws PreparationException {
+        if (!tableConfig.getWhere().isPresent()) {
+            return "";
+        }
+        PredicateCompiler predicateCompiler = new PredicateCompiler(tableConfig.getWhere().get());
+        String newRowCondition = predicateCompiler.compile(OrclSpec.NEW_ROW_REFERENCE);
+        String oldRowCondition = predicateCompiler.compile(OrclSpec.OLD_ROW_REFERENCE);
+        for (String predicateColumnName : predicateCompiler.getColumnNames()) {
+            if (Arrays.stream(tableColumns).noneMatch(tableColumn -> tableColumn.getName().equalsIgnoreCase(predicateColumnName))) {
+                String errMsg = String.format(ErrorMessages.PREDICATE_UNKNOWN_COLUMN, predicateColumnName, tableName);
+                throw new PreparationException(errMsg, null);
+            }
+        }
+        return String.format(OrclQueries.PREDICATE_GUARD, newRowCondition, oldRowCondition);
+    }
+
+    private String buildSampleGuard(TableConfig tableConfig) {
+        if (!tableConfig.getCaptureLevel().equals(CaptureLevel.SAMPLED)) {
+            return "";
+        }
+        return String.format(OrclQueries.SAMPLE_GUARD, tableConfig.getSampleEvery().get());
+    }
+
+    private String buildRowKey(String rowPrefix, List<String> primaryKeyColumnNames) {
+        if (primaryKeyColumnNames.isEmpty()) {
+            return "NULL";
+        }
+        List<String> keyColumns = new ArrayList<>();
+        for (String primaryKeyColumnName : primaryKeyColumnNames) {
+            keyColumns.add(QueryHelper.buildQuotedIdentifierList(rowPrefix, Collections.singletonList(primaryKeyColumnName)));
+        }
+        return String.join(OrclQueries.ROW_KEY_CONCAT, keyColumns);
+    }
+
+    private Column[] filterColumns(String tableName, TableConfig tableConfig, Column[] tableColumns) throws PreparationException {
+        List<String> tableColumnNames = Arrays.stream(tableColumns).map(Column::getName).collect(Collectors.toList());
+        Optional<String> unknownColumnName = tableConfig.findUnknownColumn(tableColumnNames);
+        if (unknownColumnName.isPresent()) {
+            String errMsg = String.format(ErrorMessages.COLUMN_FILTER_UNKNOWN_COLUMN, unknownColumnName.get(), tableName);
+            throw new PreparationException(errMsg, null);
+        }
+        List<String> capturedColumnNames = tableConfig.filterColumns(tableColumnNames);
+        if (capturedColumnNames.isEmpty()) {
+            throw new PreparationException(String.format(ErrorMessages.COLUMN_FILTER_NO_COLUMNS, tableName), null);
+        }
+        return Arrays.stream(tableColumns)
+                .filter(tableColumn -> capturedColumnNames.contains(tableColumn.getName()))
+                .toArray(Column[]::new);
+    }
+
+    /**
+     * LOB columns can't be listed in the UPDATE OF clause, so when one of them is captured,
+     * the trigger fires on every update and unchanged states are skipped in its body.
+     */
+    private String buildUpdateEvent(TableConfig tableConfig, Column[] capturedColumns) {
+        if (!tableConfig.isColumnFilterPresent()) {
+            return OrclQueries.UPDATE_EVENT;
+        }
+        List<String> updateOfColumnNames = new ArrayList<>();
+        for (Column capturedColumn : capturedColumns) {
+            if (capturedColumn.getDataType().matches(OrclSpec.LOB_DATA_TYPES_REGEXP)) {
+                return OrclQueries.UPDATE_EVENT;
+            }
+            updateOfColumnNames.add(capturedColumn.getName());
+        }
+        if (updateOfColumnNames.isEmpty()) {
+            return OrclQueries.UPDATE_EVENT;
+        }
+        return String.format(OrclQueries.UPDATE_OF_EVENT, QueryHelper.buildQuotedIdentifierList("", updateOfColumnNames));
+    }
+
 }
@@ -16,89 +16,243 @@ public class OrclQueries {
             Common.COLNAME_OLD_STATE + "     CLOB, " +
             Common.COLNAME_NEW_STATE + "     CLOB, " +
             Common.COLNAME_OPERATION + "     CHAR(1 CHAR) NOT NULL, " +
-            Common.COLNAME_TIMESTAMP + "     TIMESTAMP(3) DEFAULT LOCALTIMESTAMP(3) NOT NULL" +
+            Common.COLNAME_TIMESTAMP + "     TIMESTAMP(3) DEFAULT LOCALTIMESTAMP(3) NOT NULL, " +
+            Common.COLNAME_TRANSACTION_ID + "     VARCHAR2(64 CHAR), " +
+            Common.COLNAME_ROW_KEY + "     VARCHAR2(1000 CHAR)" +
         ")";
 
+    // The IDs only need to be unique and increasing, the watcher rereads the ones that commit out of order.
+    public static final String CREATE_AUDIT_SEQUENCE = "CREATE SEQUENCE %s START WITH %d";
+
+    public static final String FIND_AUDIT_SEQUENCE = "SELECT COUNT(*) AS \"" + Common.EXISTS + "\" FROM all_sequences WHERE SEQUENCE_OWNER = ? AND SEQUENCE_NAME = ?";
+
+    public static final String DROP_AUDIT_SEQUENCE = "DROP SEQUENCE %s";
+
+    /**
+     * Evaluates the column value once, whatever the number of its uses. STANDARD_HASH is available in SQL only
+     * and takes at most 4000 bytes, longer values are digested by their first 4000 bytes.
+     */
+    public static final String CREATE_TRUNCATE_VALUE_FUNCTION =
+        "CREATE OR REPLACE FUNCTION %s(p_value VARCHAR2, p_max_bytes PLS_INTEGER) RETURN VARCHAR2 IS\n" +
+        "v_digest VARCHAR2(32);\n" +
+        "BEGIN\n" +
+        "    IF p_value IS NULL OR LENGTHB(p_value) <= p_max_bytes THEN\n" +
+        "        RETURN p_value;\n" +
+        "    END IF;\n" +
+        "    SELECT LOWER(RAWTOHEX(STANDARD_HASH(SUBSTRB(p_value, 1, 4000), 'MD5'))) INTO v_digest FROM DUAL;\n" +
+        "    RETURN SUBSTRB(p_value, 1, p_max_bytes) || '" + Common.TRUNCATED_VALUE_DIGEST_START + "md5:' || v_digest || '" + Common.TRUNCATED_VALUE_DIGEST_END + "';\n" +
+        "END;";
+
+    public static final String FIND_FUNCTION =
+        "SELECT COUNT(*) AS \"" + Common.EXISTS + "\" FROM all_objects WHERE OWNER = ? AND OBJECT_NAME = ? AND OBJECT_TYPE = 'FUNCTION'";
+
+    public static final String DROP_FUNCTION = "DROP FUNCTION %s";
+
+    public static final String ADD_AUDIT_TRANSACTION_ID_COLUMN = "ALTER TABLE %s ADD (" + Common.COLNAME_TRANSACTION_ID + " VARCHAR2(64 CHAR))";
+
+    public static final String ADD_AUDIT_ROW_KEY_COLUMN = "ALTER TABLE %s ADD (" + Common.COLNAME_ROW_KEY + " VARCHAR2(1000 CHAR))";
+
+    public static final String CREATE_AUDIT_ROW_KEY_INDEX =
+        "CREATE INDEX " + Common.DBW_AUDIT_TABLE_NAME + "_" + Common.COLNAME_ROW_KEY + "_IDX" +
+        " ON %s (" + Common.COLNAME_TABLE_NAME + ", " + Common.COLNAME_ROW_KEY + ")";
+
+    public static final String CREATE_AUDIT_TIMESTAMP_INDEX =
+        "CREATE INDEX " + Common.DBW_AUDIT_TABLE_NAME + "_" + Common.COLNAME_TIMESTAMP + "_IDX" +
+        " ON %s (\"" + Common.COLNAME_TIMESTAMP.toUpperCase() + "\")";
+
+    public static final String FIND_AUDIT_INDEX = "SELECT COUNT(*) AS \"" + Common.EXISTS + "\" FROM all_indexes WHERE OWNER = ? AND INDEX_NAME = ?";
+
+    public static final String SELECT_PRIMARY_KEY_COLUMNS =
+        "SELECT cc.COLUMN_NAME AS \"" + Common.ITEM + "\" FROM ALL_CONSTRAINTS c" +
+        "    JOIN ALL_CONS_COLUMNS cc ON cc.OWNER = c.OWNER AND cc.CONSTRAINT_NAME = c.CONSTRAINT_NAME" +
+        "    WHERE c.CONSTRAINT_TYPE = 'P' AND c.OWNER = ? AND c.TABLE_NAME = ?" +
+        "    ORDER BY cc.POSITION";
+
     public static final String FIND_AUDIT_TRIGGER = "SELECT COUNT(*) AS \"" + Common.EXISTS + "\" from sys.all_triggers WHERE TRIGGER_NAME = ?";
 
-    private static final String UPDATE_COL_LIST = QueryHelper.buildColumnNameList(
+    private static final String AUDIT_COL_LIST = QueryHelper.buildColumnNameList(
         Common.COLNAME_ID, 
         Common.COLNAME_TABLE_NAME, 
         Common.COLNAME_OLD_STATE, 
         Common.COLNAME_NEW_STATE, 
-        Common.COLNAME_OPERATION
+        Common.COLNAME_OPERATION,
+        Common.COLNAME_TRANSACTION_ID,
+        Common.COLNAME_ROW_KEY
     );
 
-    private static final String INSERT_COL_LIST = QueryHelper.buildColumnNameList(
-        Common.COLNAME_ID, 
-        Common.COLNAME_TABLE_NAME, 
-        Common.COLNAME_NEW_STATE, 
-        Common.COLNAME_OPERATION
-    );
+    // Very large statements are flushed every so many rows to bound the memory held by the collected states.
+    public static final int AUDIT_TRIGGER_FLUSH_ROWS = 1000;
 
-    private static final String DELETE_COL_LIST = QueryHelper.buildColumnNameList(
-        Common.COLNAME_ID, 
-        Common.COLNAME_TABLE_NAME, 
-        Common.COLNAME_OLD_STATE, 
-        Common.COLNAME_OPERATION
-    );
-    
+    /**
+     * Rows are collected in AFTER EACH ROW and written with a single FORALL insert in AFTER STATEMENT,
+     * instead of switching to the SQL engine for every changed row.
+     * Failed rows are saved by the bulk insert and the collected rows are cleared after every flush, whatever its result.
+     */
     public static final String CREATE_AUDIT_TRIGGER = 
-        "CREATE TRIGGER %s \n" +
-        "AFTER INSERT OR UPDATE OR DELETE ON %s \n" +
-        "FOR EACH ROW \n" +
-        "DECLARE \n" +
+        "CREATE OR REPLACE TRIGGER %s \n" +
+        "FOR INSERT OR %s OR DELETE ON %s \n" +
+        "COMPOUND TRIGGER \n" +
+        "TYPE t_ids IS TABLE OF " + Common.DBW_AUDIT_TABLE_NAME + ".ID%%TYPE INDEX BY PLS_INTEGER;\n" +
+        "TYPE t_states IS TABLE OF CLOB INDEX BY PLS_INTEGER;\n" +
+        "TYPE t_operations IS TABLE OF " + Common.DBW_AUDIT_TABLE_NAME + "." + Common.COLNAME_OPERATION + "%%TYPE INDEX BY PLS_INTEGER;\n" +
+        "TYPE t_transaction_ids IS TABLE OF " + Common.DBW_AUDIT_TABLE_NAME + "." + Common.COLNAME_TRANSACTION_ID + "%%TYPE INDEX BY PLS_INTEGER;\n" +
+        "TYPE t_row_keys IS TABLE OF " + Common.DBW_AUDIT_TABLE_NAME + "." + Common.COLNAME_ROW_KEY + "%%TYPE INDEX BY PLS_INTEGER;\n" +
+        "v_ids t_ids;\n" +
+        "v_old_states t_states;\n" +
+        "v_new_states t_states;\n" +
+        "v_operations t_operations;\n" +
+        "v_transaction_ids t_transaction_ids;\n" +
+        "v_row_keys t_row_keys;\n" +
+        "\n" +
+        "PROCEDURE flush IS\n" +
+        "e_bulk_errors EXCEPTION;\n" +
+        "PRAGMA EXCEPTION_INIT(e_bulk_errors, -24381);\n" +
+        "BEGIN\n" +
+        "    BEGIN\n" +
+        "        FORALL i IN 1 .. v_ids.COUNT SAVE EXCEPTIONS\n" +
+        "            INSERT INTO \n" + Common.DBW_AUDIT_TABLE_NAME + "(\n" + AUDIT_COL_LIST + ")\n" +
+        "                VALUES(v_ids(i), '%s', v_old_states(i), v_new_states(i), v_operations(i), v_transaction_ids(i), v_row_keys(i));\n" +
+        "        EXCEPTION\n" +
+        "            WHEN e_bulk_errors THEN\n" +
+        "               FOR j IN 1 .. SQL%%BULK_EXCEPTIONS.COUNT LOOP\n" +
+        "                   DBMS_OUTPUT.PUT_LINE(-SQL%%BULK_EXCEPTIONS(j).ERROR_CODE);\n" +
+        "                   DBMS_OUTPUT.PUT_LINE(SQLERRM(-SQL%%BULK_EXCEPTIONS(j).ERROR_CODE));\n" +
+        "               END LOOP;\n" +
+        "            WHEN OTHERS THEN\n" +
+        "               DBMS_OUTPUT.PUT_LINE(SQLCODE);\n" +
+        "               DBMS_OUTPUT.PUT_LINE(SQLERRM);\n" +
+        "    END;\n" +
+        "    v_ids.DELETE;\n" +
+        "    v_old_states.DELETE;\n" +
+        "    v_new_states.DELETE;\n" +
+        "    v_operations.DELETE;\n" +
+        "    v_transaction_ids.DELETE;\n" +
+        "    v_row_keys.DELETE;\n" +
+        "END flush;\n" +
+        "\n" +
+        "AFTER EACH ROW IS\n" +
         "v_operation CHAR(1) := \n" +
         "    case when updating then 'U' \n" +
         "        when deleting then 'D' \n" +
         "        else 'I' end; \n" +
-        "v_next_id " + Common.DBW_AUDIT_TABLE_NAME + ".ID%%TYPE;\n" +
         "v_old_state CLOB;\n" +
         "v_new_state CLOB;\n" +
+        "v_row_key " + Common.DBW_AUDIT_TABLE_NAME + "." + Common.COLNAME_ROW_KEY + "%%TYPE;\n" +
+        "v_index PLS_INTEGER;\n" +
         "BEGIN \n" +
+        "%s" +
         "    IF updating OR deleting THEN\n" +
         "       v_old_state := %s;\n" +
         "    END IF;\n" +
         "    IF updating OR inserting THEN\n" +
         "       v_new_state := %s;\n" +
         "    END IF;\n" +
-        "    SELECT COALESCE(MAX(ID), 0)+1 INTO v_next_id from \n" + Common.DBW_AUDIT_TABLE_NAME + ";\n" +
-        "    IF updating THEN\n" +
-        "        INSERT INTO \n" + Common.DBW_AUDIT_TABLE_NAME + "(\n" + UPDATE_COL_LIST + ")\n" +
-        "            VALUES(v_next_id, '%s', v_old_state, v_new_state, v_operation);\n" +
-        "    ELSIF inserting THEN\n" +
-        "        INSERT INTO \n" + Common.DBW_AUDIT_TABLE_NAME + "(\n" + INSERT_COL_LIST + ")\n" +
-        "            VALUES(v_next_id, '%s', v_new_state, v_operation);\n" +
-        "    ELSE \n" +
-        "        INSERT INTO \n" + Common.DBW_AUDIT_TABLE_NAME + "(\n" + DELETE_COL_LIST + ")\n" +
-        "            VALUES(v_next_id, '%s', v_old_state, v_operation);\n" +
+        "%s" +
+        "    IF deleting THEN\n" +
+        "       v_row_key := SUBSTR(%s, 1, 1000);\n" +
+        "    ELSE\n" +
+        "       v_row_key := SUBSTR(%s, 1, 1000);\n" +
+        "    END IF;\n" +
+        "    v_index := v_ids.COUNT + 1;\n" +
+        "    v_ids(v_index) := " + Common.DBW_AUDIT_SEQ_NAME + ".NEXTVAL;\n" +
+        "    v_old_states(v_index) := v_old_state;\n" +
+        "    v_new_states(v_index) := v_new_state;\n" +
+        "    v_operations(v_index) := v_operation;\n" +
+        "    v_transaction_ids(v_index) := DBMS_TRANSACTION.LOCAL_TRANSACTION_ID;\n" +
+        "    v_row_keys(v_index) := v_row_key;\n" +
+        "    IF v_index >= " + AUDIT_TRIGGER_FLUSH_ROWS + " THEN\n" +
+        "        flush;\n" +
         "    END IF;\n" +
         "    EXCEPTION\n" +
         "        WHEN OTHERS THEN\n" +
         "           DBMS_OUTPUT.PUT_LINE(SQLCODE);\n" +
         "           DBMS_OUTPUT.PUT_LINE(SQLERRM);\n" +
+        "END AFTER EACH ROW;\n" +
+        "\n" +
+        "AFTER STATEMENT IS\n" +
+        "BEGIN\n" +
+        "    flush;\n" +
+        "    EXCEPTION\n" +
+        "        WHEN OTHERS THEN\n" +
+        "           DBMS_OUTPUT.PUT_LINE(SQLCODE);\n" +
+        "           DBMS_OUTPUT.PUT_LINE(SQLERRM);\n" +
+        "END AFTER STATEMENT;\n" +
         "END;";
 
+    public static final String UPDATE_EVENT = "UPDATE";
+
+    public static final String UPDATE_OF_EVENT = "UPDATE OF %s";
+
+    public static final String PREDICATE_GUARD =
+        "    IF (inserting AND (%1$s)) OR (deleting AND (%2$s)) OR (updating AND ((%1$s) OR (%2$s))) THEN\n" +
+        "        NULL;\n" +
+        "    ELSE\n" +
+        "        RETURN;\n" +
+        "    END IF;\n";
+
+    public static final String SAMPLE_GUARD =
+        "    IF DBMS_RANDOM.VALUE * %d >= 1 THEN\n" +
+        "        RETURN;\n" +
+        "    END IF;\n";
+
+    public static final String SKIP_UNCHANGED_UPDATE =
+        "    IF updating AND DBMS_LOB.COMPARE(v_old_state, v_new_state) = 0 THEN\n" +
+        "        RETURN;\n" +
+        "    END IF;\n";
+
     public static final String DROP_AUDIT_TRIGGER = "DROP TRIGGER %s";
 
+    public static final String CREATE_DDL_LOG_TABLE =
+        "CREATE TABLE %s (" +
+            Common.COLNAME_ID + "            NUMBER(19, 0) PRIMARY KEY NOT NULL," +
+            Common.COLNAME_TABLE_NAME + "    VARCHAR2(128 CHAR) NOT NULL, " +
+            Common.COLNAME_COMMAND_TAG + "    VARCHAR2(30 CHAR) NOT NULL, " +
+            Common.COLNAME_TIMESTAMP + "     TIMESTAMP(3) DEFAULT LOCALTIMESTAMP(3) NOT NULL" +
+        ")";
+
+    // Records every altered table of the schema apart from the application's own ones.
+    public static final String CREATE_DDL_TRIGGER =
+        "CREATE OR REPLACE TRIGGER %1$s \n" +
+        "AFTER ALTER ON SCHEMA \n" +
+        "BEGIN \n" +
+        "    IF ora_dict_obj_type = 'TABLE' AND ora_dict_obj_name NOT LIKE '" + Common.DBW_PREFIX.replace("_", "\\_") + "%%' ESCAPE '\\' THEN\n" +
+        "        INSERT INTO %2$s(" + Common.COLNAME_ID + ", " + Common.COLNAME_TABLE_NAME + ", " + Common.COLNAME_COMMAND_TAG + ")\n" +
+        "            VALUES(%3$s.NEXTVAL, ora_dict_obj_name, ora_sysevent);\n" +
+        "    END IF;\n" +
+        "END;";
+
+    public static final String SELECT_DDL_CHANGES =
+        "SELECT * FROM " + Common.DBW_DDL_LOG_TABLE_NAME + " WHERE " + Common.COLNAME_ID + " > ? ORDER BY " + Common.COLNAME_ID;
+
+    public static final String SELECT_DDL_LOG_MAX_ID = "SELECT COALESCE(MAX(ID), 0) AS \"" + Common.MAX + "\" FROM " + Common.DBW_DDL_LOG_TABLE_NAME;
+
     public static final String SELECT_AUDIT_TRIGGERS = 
         "SELECT TRIGGER_NAME AS \"item\" from sys.all_triggers WHERE TRIGGER_NAME LIKE '" + Common.DBW_PREFIX + "%" + Common.AUDIT_POSTFIX + "'";
 
     public static final String SELECT_AUDIT_TABLE_MAX_ID = "SELECT COALESCE(MAX(ID), 0) AS \"" + Common.MAX + "\" FROM " + Common.DBW_AUDIT_TABLE_NAME;
 
     public static final String SELECT_LATEST_WITH_SECONDS =
-        "WITH latest_id AS " +
-        "(SELECT min(da.ID) AS " + Common.COLNAME_ID + " FROM " + Common.DBW_AUDIT_TABLE_NAME + " da " +
-        "WHERE da.\"TIMESTAMP\" > LOCALTIMESTAMP - NUMTODSINTERVAL(?, 'SECOND')) " +
-        "SELECT COALESCE(max(da.ID), 0) AS " + Common.COLNAME_ID + " FROM " + Common.DBW_AUDIT_TABLE_NAME + " da " +
-        "WHERE id < COALESCE((SELECT id FROM latest_id), (SELECT max(ID) + 1 FROM " + Common.DBW_AUDIT_TABLE_NAME + "))";
+        "SELECT COALESCE(min(ID) - 1, (SELECT COALESCE(max(ID), 0) FROM " + Common.DBW_AUDIT_TABLE_NAME + ")) AS " + Common.COLNAME_ID +
+        " FROM " + Common.DBW_AUDIT_TABLE_NAME + " WHERE \"TIMESTAMP\" > LOCALTIMESTAMP - NUMTODSINTERVAL(?, 'SECOND')";
 
     public static final String SELECT_AUDIT_RECORDS = "SELECT * FROM " + Common.DBW_AUDIT_TABLE_NAME + " WHERE id > ?";
 
+    public static final String SELECT_ROW_HISTORY =
+        "SELECT * FROM " + Common.DBW_AUDIT_TABLE_NAME + " WHERE " + Common.COLNAME_TABLE_NAME + " = ? AND " + Common.COLNAME_ROW_KEY + " = ?";
+
+    public static final String ROW_HISTORY_PERIOD = " AND \"TIMESTAMP\" > LOCALTIMESTAMP - NUMTODSINTERVAL(?, 'SECOND')";
+
+    public static final String ORDER_BY_ID = " ORDER BY " + Common.COLNAME_ID;
+
+    public static final String ROW_KEY_CONCAT = " || '" + Common.ROW_KEY_DELIMITER + "' || ";
+
     public static final String COUNT_AUDIT_RECORDS = "SELECT COUNT(*) AS ROW_COUNT FROM " + Common.DBW_AUDIT_TABLE_NAME;
 
     public static final String DELETE_ALL_AUDIT_RECORDS = "DELETE FROM " + Common.DBW_AUDIT_TABLE_NAME;
 
-    public static final String DELETE_FIRST_N_AUDIT_RECORDS = "DELETE FROM " + Common.DBW_AUDIT_TABLE_NAME + " WHERE ROWNUM <= ?";
+    // ROWNUM is assigned before ORDER BY, so the oldest IDs are picked in a subquery.
+    public static final String DELETE_FIRST_N_AUDIT_RECORDS =
+        "DELETE FROM " + Common.DBW_AUDIT_TABLE_NAME + " WHERE ID IN " +
+        "(SELECT ID FROM (SELECT ID FROM " + Common.DBW_AUDIT_TABLE_NAME + " ORDER BY ID) WHERE ROWNUM <= ?)";
 
 }
@@ -1,14 +1,26 @@
 package com.dbw.db;
 
+import java.util.Arrays;
+
 public class OrclSpec {
-    public final static String NEW_STATE_PREFIX = ":NEW.";
-    public final static String OLD_STATE_PREFIX = ":OLD.";
+    public final static String NEW_ROW_REFERENCE = ":NEW";
+    public final static String OLD_ROW_REFERENCE = ":OLD";
+    public final static String NEW_STATE_PREFIX = NEW_ROW_REFERENCE + ".";
+    public final static String OLD_STATE_PREFIX = OLD_ROW_REFERENCE + ".";
     public final static String TYPE_CLOB = "CLOB";
     public final static String TYPE_BLOB = "BLOB";
     public final static String TYPE_RAW = "RAW";
+    public final static String LOB_DATA_TYPES_REGEXP = "^N?[CB]LOB$";
     public final static String[] SUPPORTED_DATA_TYPES_REGEXP = new String[]{
             TYPE_CLOB, TYPE_BLOB, "NCLOB", "VARCHAR2?", "NVARCHAR2", "NUMBER", "FLOAT", "DATE", /*"URITYPE",*/
             "BINARY_FLOAT", "BINARY_DOUBLE", "TIMESTAMP.*", TYPE_RAW, "NCHAR", "CHAR", /*"BFILE",*/
             "DATE", "INTERVAL.*"
     };
+    // Values of these types can grow past the maxColumnValueBytes setting, the others keep their type in JSON states.
+    public final static String TRUNCATABLE_DATA_TYPES_REGEXP = "^(CLOB|BLOB|RAW|N?VARCHAR2?|N?CHAR)$";
+
+    public static boolean isDataTypeSupported(String dataType) {
+        return Arrays.stream(SUPPORTED_DATA_TYPES_REGEXP)
+                .anyMatch(supportedDataType -> dataType.matches("^" + supportedDataType + "$"));
+    }
 }
@@ -17,4 +17,7 @@ public class Plsql {
             "UTL_RAW.CAST_TO_VARCHAR2(UTL_ENCODE.BASE64_ENCODE(UTL_RAW.CAST_TO_RAW(UTL_RAW.CAST_TO_VARCHAR2(DBMS_LOB.SUBSTR(";
     public final static String RAW_CAST_TO_VARCHAR_FUNCTION_END = ")))))";
     public final static String STRING_CONCAT_OPERATOR = "||";
+    public final static String JSON_OBJECT = "JSON_OBJECT(%s NULL ON NULL RETURNING CLOB)";
+    public final static String JSON_KEY_VALUE = "'%s' VALUE %s";
+    public final static String TRUNCATED_VALUE = Common.DBW_TRUNCATE_VALUE_FUNC_NAME + "(%s, %d)";
 }
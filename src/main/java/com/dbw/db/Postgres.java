@@ -1,21 +1,40 @@
 package com.dbw.db;
 
+import com.dbw.app.App;
+import com.dbw.cfg.CaptureLevel;
+import com.dbw.cfg.CaptureMode;
 import com.dbw.cfg.Config;
+import com.dbw.cfg.TableConfig;
+import com.dbw.db.query.AuditTriggerQueryBuilder;
+import com.dbw.db.query.PredicateCompiler;
 import com.dbw.db.query.QueryHelper;
 import com.dbw.db.query.SelectAuditRecordsQueryBuilder;
 import com.dbw.err.PreparationException;
 import com.dbw.err.RecoverableException;
 import com.dbw.err.UnknownDbOperationException;
 import com.dbw.err.UnrecoverableException;
+import com.dbw.log.ErrorMessages;
 import com.dbw.log.Level;
 import com.dbw.log.LogMessages;
 import com.dbw.log.Logger;
+import com.dbw.log.SuccessMessages;
+import com.dbw.log.WarningMessages;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.postgresql.PGProperty;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.*;
+import java.util.stream.Collectors;
 
 public class Postgres extends Database {
     public final static String[] COLUMN_NAMES = new String[]{
@@ -25,11 +44,34 @@ public class Postgres extends Database {
         Common.COLNAME_NEW_STATE, 
         Common.COLNAME_OPERATION, 
         Common.COLNAME_QUERY,
-        Common.COLNAME_TIMESTAMP
+        Common.COLNAME_TIMESTAMP,
+        Common.COLNAME_QUERY_HASH,
+        Common.COLNAME_TRANSACTION_ID,
+        Common.COLNAME_ROW_KEY
     };
 
     private Map<String, String[]> watchedTablesColumnNames;
+    private Boolean auditTablePartitioned;
+    private Boolean auditTableRingBuffer;
+    private long auditPartitionsUpperBound;
+    private final Map<String, String> auditQueryCache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > AUDIT_QUERY_CACHE_SIZE;
+        }
+    };
+    private PostgresLogicalDecoder logicalDecoder;
     private final String DRIVER = "org.postgresql.Driver";
+    private final String REPLICATION_MIN_SERVER_VERSION = "10";
+    private final String JSON_DATA_TYPE = "json";
+    private final String UNLOGGED_PERSISTENCE = "u";
+    private final String OLD_ROW = "OLD";
+    private final String NEW_ROW = "NEW";
+    private final String TRANSITION_ROW = "r";
+    private final String TEXT_ARRAY_TYPE = "text";
+    private final int AUDIT_QUERY_CACHE_SIZE = 1000;
+    private final String SHADOW_OLD_STATE = "O";
+    private final int SHADOW_COLUMN_COUNT = 4;
     
     public Postgres(Config config) {
         super(config);
@@ -46,6 +88,16 @@ public class Postgres extends Database {
         }
     }
 
+    private Connection openReplicationConnection() throws SQLException {
+        Properties props = new Properties();
+        PGProperty.USER.set(props, dbConfig.getUser());
+        PGProperty.PASSWORD.set(props, dbConfig.getPassword());
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(props, REPLICATION_MIN_SERVER_VERSION);
+        PGProperty.REPLICATION.set(props, "database");
+        PGProperty.PREFER_QUERY_MODE.set(props, "simple");
+        return DriverManager.getConnection(getConnectionString(), props);
+    }
+
     private String getConnectionString() {
         if (dbConfig.getConnectionString() != null) {
             return dbConfig.getConnectionString();
@@ -80,11 +132,435 @@ public class Postgres extends Database {
     }
 
     public void createAuditTable() throws SQLException {
-        executeFormattedQueryUpdate(PostgresQueries.CREATE_AUDIT_TABLE, getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME));
+        boolean sharded = getConfig().isAuditTableSharded();
+        auditTablePartitioned = getConfig().isAuditTablePartitioned() || sharded;
+        String partitionClause = "";
+        if (getConfig().isAuditTablePartitioned()) {
+            partitionClause = PostgresQueries.PARTITION_BY_ID_RANGE;
+        } else if (sharded) {
+            partitionClause = PostgresQueries.PARTITION_BY_TABLE_NAME_HASH;
+        }
+        // Partitioned tables can't be unlogged, only their partitions.
+        executeFormattedQueryUpdate(
+                PostgresQueries.CREATE_AUDIT_TABLE,
+                auditTablePartitioned ? "" : getAuditTablePersistencePrefix(),
+                getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME),
+                sharded ? PostgresQueries.SHARDED_AUDIT_TABLE_PRIMARY_KEY : Common.COLNAME_ID,
+                partitionClause
+        );
         Logger.log(Level.INFO, dbConfig.getName(), LogMessages.AUDIT_TABLE_CREATED);
+        if (sharded) {
+            createAuditShards();
+        }
+        if (getConfig().isRingBufferAuditTable()) {
+            String auditTableName = getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME);
+            executeFormattedQueryUpdate(PostgresQueries.CONVERT_AUDIT_TABLE_TO_RING_BUFFER, auditTableName);
+            executeFormattedQueryUpdate(PostgresQueries.CREATE_AUDIT_RING_BUFFER_ID_INDEX, auditTableName);
+            auditTableRingBuffer = true;
+        }
+    }
+
+    /**
+     * Every shard has its own primary key index, so concurrent writes to different tables don't all compete
+     * for the right edge of a single index. The ID sequence stays shared to keep the records globally ordered.
+     */
+    private void createAuditShards() throws SQLException {
+        int shards = getConfig().getAuditTableShards().get();
+        String auditTableName = getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME);
+        for (int remainder = 0; remainder < shards; remainder++) {
+            executeFormattedQueryUpdate(
+                    PostgresQueries.CREATE_AUDIT_SHARD,
+                    getAuditTablePersistencePrefix(), getObjectNameWithSchema(Common.DBW_AUDIT_SHARD_PREFIX + remainder), auditTableName, shards, remainder
+            );
+        }
+        Logger.log(Level.INFO, dbConfig.getName(), String.format(LogMessages.AUDIT_SHARDS_CREATED, shards));
+    }
+
+    public boolean isAuditTableSharded() throws SQLException {
+        String[] stringArgs = {getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME)};
+        return objectExists(PostgresQueries.FIND_SHARDED_TABLE, stringArgs);
+    }
+
+    public boolean isAuditTableRingBuffer() throws SQLException {
+        if (auditTableRingBuffer == null) {
+            String[] stringArgs = {getDbConfig().getSchema(), Common.DBW_AUDIT_TABLE_NAME.toLowerCase(), Common.COLNAME_SLOT};
+            auditTableRingBuffer = !selectStringArray(PostgresQueries.FIND_COLUMN_DATA_TYPE, stringArgs).isEmpty();
+        }
+        return auditTableRingBuffer;
+    }
+
+    /**
+     * The ring buffer holds as many slots as the operations limit. Every slot is allocated up front,
+     * so that new records overwrite the oldest ones in place instead of growing the table and its indexes.
+     * Slots above a lowered limit are dropped together with their records.
+     */
+    public void prepareAuditRingBuffer() throws SQLException {
+        int slots = getConfig().getOperationsLimit().get();
+        String auditTableName = getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME);
+        String ringFunctionName = getObjectNameWithSchema(Common.DBW_AUDIT_RING_FUNC_NAME);
+        executeFormattedQueryUpdate(PostgresQueries.DELETE_AUDIT_RING_BUFFER_SLOTS_FROM, auditTableName, slots);
+        executeFormattedQueryUpdate(PostgresQueries.ALLOCATE_AUDIT_RING_BUFFER_SLOTS, auditTableName, slots);
+        executeFormattedQueryUpdate(
+                PostgresQueries.CREATE_AUDIT_RING_BUFFER_FUNCTION,
+                ringFunctionName,
+                slots,
+                auditTableName,
+                QueryHelper.buildQuotedIdentifierList("", Arrays.asList(COLUMN_NAMES)),
+                QueryHelper.buildQuotedIdentifierList(NEW_ROW + ".", Arrays.asList(COLUMN_NAMES))
+        );
+        executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_TRIGGER, Common.DBW_AUDIT_RING_TRIGGER_NAME, auditTableName);
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_AUDIT_RING_BUFFER_TRIGGER, Common.DBW_AUDIT_RING_TRIGGER_NAME, auditTableName, ringFunctionName);
+        Logger.log(Level.INFO, dbConfig.getName(), String.format(LogMessages.AUDIT_RING_BUFFER_PREPARED, slots));
+    }
+
+    /**
+     * A crash recovery empties an unlogged ring buffer together with its allocated slots.
+     * Returns whether the slots had to be allocated again.
+     */
+    public boolean reallocateAuditRingBufferSlots() throws SQLException {
+        String auditTableName = getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME);
+        String[] stringArgs = {};
+        if (objectExists(formatQuery(PostgresQueries.FIND_AUDIT_RING_BUFFER_SLOTS, auditTableName), stringArgs)) {
+            return false;
+        }
+        executeFormattedQueryUpdate(PostgresQueries.ALLOCATE_AUDIT_RING_BUFFER_SLOTS, auditTableName, getConfig().getOperationsLimit().get());
+        return true;
+    }
+
+    /**
+     * The last ID given by the sequence of the audit records, or the highest ID of the audit table when it has none.
+     */
+    public int selectLastAuditSequenceValue() throws SQLException {
+        String sequenceName;
+        if (isShadowCapture()) {
+            sequenceName = getObjectNameWithSchema(Common.DBW_SHADOW_SEQ_NAME);
+        } else {
+            String[] stringArgs = {getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME)};
+            sequenceName = selectStringArray(PostgresQueries.SELECT_AUDIT_ID_SEQUENCE, stringArgs).stream().findFirst().orElse(null);
+        }
+        if (sequenceName == null) {
+            return selectMaxId();
+        }
+        return selectSingleIntValue(formatQuery(PostgresQueries.SELECT_SEQUENCE_LAST_VALUE, sequenceName), Common.MAX);
+    }
+
+    public boolean auditStateColumnsAreJson() throws SQLException {
+        String[] stringArgs = {getDbConfig().getSchema(), Common.DBW_AUDIT_TABLE_NAME.toLowerCase(), Common.COLNAME_OLD_STATE.toLowerCase()};
+        List<String> dataTypes = selectStringArray(PostgresQueries.FIND_COLUMN_DATA_TYPE, stringArgs);
+        return dataTypes.isEmpty() || dataTypes.get(0).equals(JSON_DATA_TYPE);
+    }
+
+    public void alterAuditStateColumnsToJson() throws SQLException {
+        executeFormattedQueryUpdate(PostgresQueries.ALTER_AUDIT_STATE_COLUMNS_TO_JSON, getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME));
+        Logger.log(Level.INFO, dbConfig.getName(), LogMessages.AUDIT_STATE_COLUMNS_ALTERED);
+    }
+
+    public void prepareAuditQueryTable() throws SQLException {
+        String auditTableName = getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME);
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_AUDIT_QUERY_TABLE, getAuditTablePersistencePrefix(), getObjectNameWithSchema(Common.DBW_AUDIT_QUERY_TABLE_NAME));
+        executeFormattedQueryUpdate(PostgresQueries.ADD_AUDIT_QUERY_HASH_COLUMN, auditTableName);
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_AUDIT_QUERY_HASH_INDEX, auditTableName);
+    }
+
+    public void addAuditTransactionIdColumn() throws SQLException {
+        executeFormattedQueryUpdate(PostgresQueries.ADD_AUDIT_TRANSACTION_ID_COLUMN, getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME));
+    }
+
+    public void prepareAuditRowKeyColumn() throws SQLException {
+        String auditTableName = getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME);
+        executeFormattedQueryUpdate(PostgresQueries.ADD_AUDIT_ROW_KEY_COLUMN, auditTableName);
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_AUDIT_ROW_KEY_INDEX, auditTableName);
+    }
+
+    /**
+     * A block range index created by a former version is replaced.
+     */
+    public void createAuditTimestampIndex() throws SQLException {
+        String indexName = Common.DBW_AUDIT_TABLE_NAME + "_" + Common.COLNAME_TIMESTAMP + "_IDX";
+        String[] stringArgs = {getDbConfig().getSchema(), indexName.toLowerCase()};
+        if (objectExists(PostgresQueries.FIND_BRIN_INDEX, stringArgs)) {
+            executeFormattedQueryUpdate(PostgresQueries.DROP_INDEX, getObjectNameWithSchema(indexName));
+        }
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_AUDIT_TIMESTAMP_INDEX, getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME));
+    }
+
+    public void createShadowSequence() throws SQLException {
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_SHADOW_SEQUENCE, getObjectNameWithSchema(Common.DBW_SHADOW_SEQ_NAME));
+    }
+
+    /**
+     * A shadow table whose columns don't match the watched table's anymore would make the trigger fail,
+     * so it's recreated.
+     */
+    public void prepareShadowTable(String tableName) throws SQLException {
+        String shadowTableName = getObjectNameWithSchema(getShadowTableName(tableName));
+        List<String> shadowColumnNames = Arrays.asList(selectTableColumnNames(getShadowTableName(tableName)));
+        List<String> tableColumnNames = Arrays.asList(selectTableColumnNames(tableName));
+        boolean shadowTableExists = !shadowColumnNames.isEmpty();
+        if (shadowTableExists && (shadowColumnNames.size() < SHADOW_COLUMN_COUNT ||
+                !shadowColumnNames.subList(SHADOW_COLUMN_COUNT, shadowColumnNames.size()).equals(tableColumnNames))) {
+            executeFormattedQueryUpdate(PostgresQueries.DROP_SHADOW_TABLE, shadowTableName);
+            Logger.log(Level.WARNING, dbConfig.getName(), String.format(WarningMessages.SHADOW_TABLE_RECREATED, tableName));
+            shadowTableExists = false;
+        }
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_SHADOW_TABLE, getAuditTablePersistencePrefix(), shadowTableName, getObjectNameWithSchema(tableName));
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_SHADOW_ID_INDEX, getShadowTableName(tableName) + "_idx", shadowTableName);
+        if (shadowTableExists && tablePersistenceChanged(shadowTableName)) {
+            String persistence = getConfig().isUnloggedAuditTable() ? PostgresQueries.UNLOGGED : PostgresQueries.LOGGED;
+            executeFormattedQueryUpdate(PostgresQueries.SET_TABLE_PERSISTENCE, shadowTableName, persistence);
+        }
+        String notify = getConfig().areNotificationsEnabled() ? PostgresQueries.NOTIFY_AUDIT_CHANNEL : "";
+        executeFormattedQueryUpdate(
+                PostgresQueries.CREATE_SHADOW_FUNCTION,
+                getShadowFunctionName(tableName), getObjectNameWithSchema(Common.DBW_SHADOW_SEQ_NAME),
+                shadowTableName, shadowTableName, notify
+        );
+        if (!shadowTableExists) {
+            Logger.log(Level.INFO, dbConfig.getName(), String.format(LogMessages.SHADOW_TABLE_CREATED, tableName));
+        }
+    }
+
+    public void createShadowAuditView() throws SQLException {
+        List<String> viewParts = new ArrayList<>();
+        for (String tableName : getConfig().getCapturedTables()) {
+            viewParts.add(String.format(
+                    PostgresQueries.SELECT_SHADOW_AUDIT_VIEW_PART,
+                    QueryHelper.buildStringLiteralList(Collections.singletonList(tableName)),
+                    getObjectNameWithSchema(getShadowTableName(tableName))
+            ));
+        }
+        if (viewParts.isEmpty()) {
+            viewParts.add(PostgresQueries.EMPTY_SHADOW_AUDIT_VIEW);
+        }
+        executeFormattedQueryUpdate(
+                PostgresQueries.CREATE_SHADOW_AUDIT_VIEW,
+                getObjectNameWithSchema(Common.DBW_SHADOW_AUDIT_VIEW_NAME), String.join(PostgresQueries.UNION_ALL, viewParts)
+        );
+    }
+
+    /**
+     * The view depends on the shadow tables, so it has to be dropped before any of them is.
+     */
+    public void dropShadowAuditView() throws SQLException {
+        executeFormattedQueryUpdate(PostgresQueries.DROP_SHADOW_AUDIT_VIEW, getObjectNameWithSchema(Common.DBW_SHADOW_AUDIT_VIEW_NAME));
+    }
+
+    /**
+     * Names of the tables that have a shadow table, derived from the shadow tables' names.
+     */
+    public Set<String> selectShadowedTables() throws SQLException {
+        String[] stringArgs = {getDbConfig().getSchema()};
+        Set<String> shadowedTables = new HashSet<>();
+        for (String shadowTableName : selectStringArray(PostgresQueries.SELECT_SHADOW_TABLES, stringArgs)) {
+            shadowedTables.add(shadowTableName.substring(
+                    Common.DBW_PREFIX.length(), shadowTableName.length() - Common.DBW_SHADOW_POSTFIX.length()
+            ));
+        }
+        return shadowedTables;
+    }
+
+    public void dropShadowTable(String tableName) throws SQLException {
+        executeFormattedQueryUpdate(PostgresQueries.DROP_SHADOW_TABLE, getObjectNameWithSchema(getShadowTableName(tableName)));
+        executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_FUNCTION, getShadowFunctionName(tableName));
+        Logger.log(Level.INFO, dbConfig.getName(), String.format(LogMessages.SHADOW_TABLE_DROPPED, tableName));
+    }
+
+    private void dropShadowObjects(Set<String> watchedTables) throws SQLException {
+        dropShadowAuditView();
+        for (String tableName : watchedTables) {
+            executeFormattedQueryUpdate(PostgresQueries.DROP_SHADOW_TABLE, getObjectNameWithSchema(getShadowTableName(tableName)));
+            executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_FUNCTION, getShadowFunctionName(tableName));
+        }
+        executeFormattedQueryUpdate(PostgresQueries.DROP_SHADOW_SEQUENCE, getObjectNameWithSchema(Common.DBW_SHADOW_SEQ_NAME));
+        Logger.log(Level.INFO, dbConfig.getName(), LogMessages.SHADOW_TABLES_DROPPED);
+    }
+
+    private boolean isShadowCapture() {
+        return getConfig().getCaptureMode().equals(CaptureMode.SHADOW);
+    }
+
+    private String getShadowTableName(String tableName) {
+        return (Common.DBW_PREFIX + tableName + Common.DBW_SHADOW_POSTFIX).toLowerCase();
+    }
+
+    private String getShadowFunctionName(String tableName) {
+        return getObjectNameWithSchema(Common.DBW_PREFIX + tableName + Common.DBW_SHADOW_FUNC_POSTFIX);
+    }
+
+    private boolean tablePersistenceChanged(String tableNameWithSchema) throws SQLException {
+        String[] stringArgs = {tableNameWithSchema};
+        List<String> persistence = selectStringArray(PostgresQueries.FIND_TABLE_PERSISTENCE, stringArgs);
+        return !persistence.isEmpty() && persistence.get(0).equals(UNLOGGED_PERSISTENCE) != getConfig().isUnloggedAuditTable();
+    }
+
+    public void prepareAuditCountsTable() throws SQLException {
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_AUDIT_COUNTS_TABLE, getAuditTablePersistencePrefix(), getObjectNameWithSchema(Common.DBW_AUDIT_COUNTS_TABLE_NAME));
+    }
+
+    public void createAuditCountFunction() throws SQLException {
+        String notify = getConfig().areNotificationsEnabled() ? PostgresQueries.NOTIFY_AUDIT_CHANNEL : "";
+        executeFormattedQueryUpdate(
+                PostgresQueries.CREATE_AUDIT_COUNT_FUNCTION,
+                getObjectNameWithSchema(Common.DBW_AUDIT_COUNT_FUNC_NAME), getObjectNameWithSchema(Common.DBW_AUDIT_COUNTS_TABLE_NAME), notify
+        );
+    }
+
+    /**
+     * Removes the appended counts and sums them up per counted table and operation.
+     */
+    public List<AuditCount> deleteAuditCounts() throws SQLException, UnknownDbOperationException {
+        List<AuditCount> auditCounts = new ArrayList<>();
+        PreparedStatement pstmt = getConn().prepareStatement(PostgresQueries.DELETE_AUDIT_COUNTS_RETURNING);
+        ResultSet rs = pstmt.executeQuery();
+        while (rs.next()) {
+            auditCounts.add(new AuditCount(
+                    rs.getString(Common.COLNAME_TABLE_NAME),
+                    Operation.valueOfSymbol(rs.getString(Common.COLNAME_OPERATION)),
+                    rs.getLong(Common.COLNAME_ROW_COUNT),
+                    rs.getTimestamp(Common.COLNAME_FIRST_TIMESTAMP)
+            ));
+        }
+        pstmt.close();
+        return auditCounts;
+    }
+
+    public boolean isAuditTablePartitioned() throws SQLException {
+        if (auditTablePartitioned == null) {
+            String[] stringArgs = {getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME)};
+            auditTablePartitioned = objectExists(PostgresQueries.FIND_PARTITIONED_TABLE, stringArgs);
+        }
+        return auditTablePartitioned;
+    }
+
+    public List<AuditPartition> selectAuditPartitions() throws SQLException {
+        List<AuditPartition> auditPartitions = new ArrayList<>();
+        PreparedStatement pstmt = getConn().prepareStatement(PostgresQueries.FIND_AUDIT_PARTITIONS);
+        pstmt.setString(1, getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME));
+        ResultSet rs = pstmt.executeQuery();
+        while (rs.next()) {
+            auditPartitions.add(new AuditPartition(
+                    rs.getString(Common.COLNAME_PARTITION_NAME),
+                    rs.getString(Common.COLNAME_PARTITION_PERSISTENCE),
+                    rs.getString(Common.COLNAME_PARTITION_BOUND)
+            ));
+        }
+        pstmt.close();
+        return auditPartitions;
+    }
+
+    /**
+     * Makes sure that partitions for at least the next partition size of IDs exist, so that new records
+     * don't end up in the default partition, which can't be dropped as a whole.
+     */
+    public void createAuditPartitions(int maxId) throws SQLException {
+        int partitionSize = getConfig().getAuditTablePartitionSize().get();
+        if (maxId + partitionSize < auditPartitionsUpperBound) {
+            return;
+        }
+        String auditTableName = getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME);
+        String defaultPartitionName = getObjectNameWithSchema(Common.DBW_AUDIT_DEFAULT_PARTITION_NAME);
+        long nextLowerBound = maxId + 1;
+        boolean defaultPartitionExists = false;
+        for (AuditPartition auditPartition : selectAuditPartitions()) {
+            if (auditPartition.isDefault()) {
+                defaultPartitionExists = true;
+            } else {
+                nextLowerBound = Math.max(nextLowerBound, auditPartition.getUpperBound());
+            }
+        }
+        if (!defaultPartitionExists) {
+            executeFormattedQueryUpdate(
+                    PostgresQueries.CREATE_AUDIT_DEFAULT_PARTITION,
+                    getAuditTablePersistencePrefix(), defaultPartitionName, auditTableName
+            );
+        }
+        while (nextLowerBound <= maxId + partitionSize) {
+            String partitionName = getObjectNameWithSchema(Common.DBW_AUDIT_PARTITION_PREFIX + nextLowerBound);
+            long upperBound = nextLowerBound + partitionSize;
+            if (defaultPartitionExists && recordsInRangeExist(defaultPartitionName, nextLowerBound, upperBound)) {
+                executeFormattedQueryUpdate(
+                        PostgresQueries.CREATE_AUDIT_PARTITION_FROM_DEFAULT,
+                        getAuditTablePersistencePrefix(), partitionName, auditTableName, defaultPartitionName, nextLowerBound, upperBound
+                );
+            } else {
+                executeFormattedQueryUpdate(
+                        PostgresQueries.CREATE_AUDIT_PARTITION,
+                        getAuditTablePersistencePrefix(), partitionName, auditTableName, nextLowerBound, upperBound
+                );
+            }
+            Logger.log(Level.INFO, dbConfig.getName(), String.format(LogMessages.AUDIT_PARTITION_CREATED, partitionName));
+            nextLowerBound = upperBound;
+        }
+        auditPartitionsUpperBound = nextLowerBound;
+    }
+
+    private boolean recordsInRangeExist(String partitionName, long lowerBound, long upperBound) throws SQLException {
+        String[] stringArgs = {};
+        return objectExists(formatQuery(PostgresQueries.FIND_AUDIT_RECORDS_IN_RANGE, partitionName, lowerBound, upperBound), stringArgs);
+    }
+
+    /**
+     * Drops the partitions holding only records with IDs lower than the given one.
+     * Records of the default partition are deleted row by row.
+     */
+    public int dropAuditPartitions(int keepFromId) throws SQLException {
+        int droppedPartitions = 0;
+        for (AuditPartition auditPartition : selectAuditPartitions()) {
+            String partitionName = getObjectNameWithSchema(auditPartition.getName());
+            if (auditPartition.isDefault()) {
+                PreparedStatement pstmt = getConn().prepareStatement(formatQuery(PostgresQueries.DELETE_AUDIT_RECORDS_BEFORE_ID, partitionName));
+                pstmt.setInt(1, keepFromId);
+                pstmt.executeUpdate();
+                pstmt.close();
+            } else if (auditPartition.getUpperBound() <= keepFromId) {
+                executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_PARTITION, partitionName);
+                droppedPartitions++;
+            }
+        }
+        if (droppedPartitions > 0) {
+            deleteOrphanedAuditQueries();
+        }
+        return droppedPartitions;
+    }
+
+    public boolean auditTablePersistenceChanged() throws SQLException {
+        if (isAuditTablePartitioned()) {
+            for (AuditPartition auditPartition : selectAuditPartitions()) {
+                if (auditPartition.isUnlogged() != getConfig().isUnloggedAuditTable()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return tablePersistenceChanged(getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME));
+    }
+
+    /**
+     * Switching the persistence rewrites the table, so it's done only when the setting has changed.
+     */
+    public void setAuditTablePersistence() throws SQLException {
+        String persistence = getConfig().isUnloggedAuditTable() ? PostgresQueries.UNLOGGED : PostgresQueries.LOGGED;
+        if (isAuditTablePartitioned()) {
+            for (AuditPartition auditPartition : selectAuditPartitions()) {
+                if (auditPartition.isUnlogged() != getConfig().isUnloggedAuditTable()) {
+                    executeFormattedQueryUpdate(PostgresQueries.SET_TABLE_PERSISTENCE, getObjectNameWithSchema(auditPartition.getName()), persistence);
+                }
+            }
+        } else {
+            executeFormattedQueryUpdate(PostgresQueries.SET_TABLE_PERSISTENCE, getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME), persistence);
+        }
+        executeFormattedQueryUpdate(PostgresQueries.SET_TABLE_PERSISTENCE, getObjectNameWithSchema(Common.DBW_AUDIT_QUERY_TABLE_NAME), persistence);
+        Logger.log(Level.INFO, dbConfig.getName(), String.format(LogMessages.AUDIT_TABLE_PERSISTENCE_CHANGED, persistence));
+    }
+
+    private String getAuditTablePersistencePrefix() {
+        return getConfig().isUnloggedAuditTable() ? PostgresQueries.UNLOGGED + " " : "";
     }
 
     public int getAuditRecordCount() throws SQLException {
+        if (isShadowCapture()) {
+            return selectSingleIntValue(PostgresQueries.COUNT_SHADOW_RECORDS, Common.ROW_COUNT);
+        }
         return selectSingleIntValue(PostgresQueries.COUNT_AUDIT_RECORDS, Common.ROW_COUNT);
     }
 
@@ -94,48 +570,459 @@ public class Postgres extends Database {
     }
 
     public void createAuditFunction() throws SQLException {
+        String auditTableName = getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME);
+        String notify = getConfig().areNotificationsEnabled() ? PostgresQueries.NOTIFY_AUDIT_CHANNEL : "";
+        String setQueryHash = String.format(PostgresQueries.SET_QUERY_HASH, getObjectNameWithSchema(Common.DBW_AUDIT_QUERY_TABLE_NAME));
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_ROW_KEY_FUNCTION, getRowKeyFunctionName());
+        if (getConfig().isChangedColumnsOnly()) {
+            executeFormattedQueryUpdate(PostgresQueries.CREATE_CHANGED_COLUMNS_FUNCTION, getChangedColumnsFunctionName());
+        }
+        if (getConfig().getMaxColumnValueBytes().isPresent()) {
+            executeFormattedQueryUpdate(PostgresQueries.CREATE_TRUNCATE_STATE_FUNCTION, getTruncateStateFunctionName());
+        }
+        if (getConfig().areColumnFiltersPresent()) {
+            executeFormattedQueryUpdate(PostgresQueries.CREATE_FILTER_STATE_FUNCTION, getFilterStateFunctionName());
+        }
+        String changedColumns = getConfig().isChangedColumnsOnly() ?
+                String.format(PostgresQueries.SELECT_CHANGED_COLUMNS_INTO_STATES, getChangedColumnsFunctionName()) : "";
+        // The row level function is created in statement capture mode too, for tables without a primary key.
         executeFormattedQueryUpdate(
                 PostgresQueries.CREATE_AUDIT_FUNCTION,
-                getObjectNameWithSchema(Common.DBW_AUDIT_FUNC_NAME),
-                getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME),
-                getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME),
-                getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME)
+                getRowAuditFunctionName(), setQueryHash,
+                buildStateToJson(OLD_ROW), getRowKeyFunctionName(), buildStateToJson(NEW_ROW), getRowKeyFunctionName(),
+                changedColumns, auditTableName, auditTableName, auditTableName, notify
         );
+        if (isStatementCapture()) {
+            String statesSource = getConfig().isChangedColumnsOnly() ?
+                    String.format(PostgresQueries.CHANGED_COLUMNS_STATES_SOURCE, getChangedColumnsFunctionName()) :
+                    PostgresQueries.FULL_STATES_SOURCE;
+            String stateChanged = "";
+            if (getConfig().isSkipUnchangedUpdates()) {
+                stateChanged = PostgresQueries.STATE_CHANGED_CONDITION;
+            } else if (getConfig().areColumnFiltersPresent()) {
+                // Statement level triggers can't have a column list, so updates of ignored columns are filtered out here.
+                stateChanged = PostgresQueries.CAPTURED_STATE_CHANGED_CONDITION;
+            }
+            executeFormattedQueryUpdate(
+                    PostgresQueries.CREATE_AUDIT_STATEMENT_FUNCTION,
+                    getAuditFunctionName(), setQueryHash,
+                    buildStateToJson(TRANSITION_ROW), getRowKeyFunctionName(), buildStateToJson(TRANSITION_ROW), getRowKeyFunctionName(),
+                    auditTableName, statesSource, stateChanged, auditTableName, auditTableName,
+                    auditTableName, buildStateToJson(TRANSITION_ROW), getRowKeyFunctionName(),
+                    auditTableName, buildStateToJson(TRANSITION_ROW), getRowKeyFunctionName(),
+                    notify
+            );
+        }
         Logger.log(Level.INFO, dbConfig.getName(), LogMessages.AUDIT_FUNCTION_CREATED);
     }
 
     public void dropAuditFunction() throws SQLException {
         executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_FUNCTION, getObjectNameWithSchema(Common.DBW_AUDIT_FUNC_NAME));
+        executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_FUNCTION, getObjectNameWithSchema(Common.DBW_AUDIT_STMT_FUNC_NAME));
+        executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_FUNCTION, getChangedColumnsFunctionName());
+        executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_FUNCTION, getTruncateStateFunctionName());
+        executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_FUNCTION, getFilterStateFunctionName());
+        executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_FUNCTION, getRowKeyFunctionName());
+        executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_FUNCTION, getObjectNameWithSchema(Common.DBW_AUDIT_COUNT_FUNC_NAME));
         Logger.log(Level.INFO, dbConfig.getName(), LogMessages.AUDIT_FUNCTION_DROPPED);
     }
 
+    private boolean isStatementCapture() {
+        return getConfig().getCaptureMode().equals(CaptureMode.STATEMENT);
+    }
+
+    private String getAuditFunctionName() {
+        return isStatementCapture() ? getObjectNameWithSchema(Common.DBW_AUDIT_STMT_FUNC_NAME) : getRowAuditFunctionName();
+    }
+
+    private String getRowAuditFunctionName() {
+        return getObjectNameWithSchema(Common.DBW_AUDIT_FUNC_NAME);
+    }
+
+    private String getChangedColumnsFunctionName() {
+        return getObjectNameWithSchema(Common.DBW_CHANGED_COLUMNS_FUNC_NAME);
+    }
+
+    private String getTruncateStateFunctionName() {
+        return getObjectNameWithSchema(Common.DBW_TRUNCATE_STATE_FUNC_NAME);
+    }
+
+    private String getFilterStateFunctionName() {
+        return getObjectNameWithSchema(Common.DBW_FILTER_STATE_FUNC_NAME);
+    }
+
+    private String getRowKeyFunctionName() {
+        return getObjectNameWithSchema(Common.DBW_ROW_KEY_FUNC_NAME);
+    }
+
+    private String buildStateToJson(String row) {
+        String stateToJson = String.format(PostgresQueries.STATE_TO_JSON, row);
+        if (getConfig().areColumnFiltersPresent()) {
+            stateToJson = String.format(PostgresQueries.FILTERED_STATE_TO_JSON, stateToJson, getFilterStateFunctionName());
+        }
+        Optional<Integer> maxColumnValueBytes = getConfig().getMaxColumnValueBytes();
+        if (maxColumnValueBytes.isPresent()) {
+            stateToJson = String.format(PostgresQueries.TRUNCATED_STATE_TO_JSON, getTruncateStateFunctionName(), stateToJson, maxColumnValueBytes.get());
+        }
+        return stateToJson;
+    }
+
+    public List<String> selectPrimaryKeyColumns(String tableName) throws SQLException {
+        String[] stringArgs = {getObjectNameWithSchema(tableName)};
+        return selectStringArray(PostgresQueries.FIND_PRIMARY_KEY_COLUMNS, stringArgs);
+    }
+
+    private String buildAuditTriggerArguments(String tableName) throws SQLException {
+        List<String> triggerArguments = new ArrayList<>();
+        TableConfig tableConfig = getConfig().getTableConfig(tableName);
+        triggerArguments.add(tableConfig.isColumnFilterPresent() ? QueryHelper.buildArrayLiteral(selectCapturedColumns(tableName)) : "");
+        triggerArguments.addAll(selectPrimaryKeyColumns(tableName));
+        return QueryHelper.buildStringLiteralList(triggerArguments);
+    }
+
+    private List<String> selectCapturedColumns(String tableName) throws SQLException {
+        TableConfig tableConfig = getConfig().getTableConfig(tableName);
+        List<String> tableColumnNames = Arrays.asList(selectTableColumnNames(tableName));
+        Optional<String> unknownColumnName = tableConfig.findUnknownColumn(tableColumnNames);
+        if (unknownColumnName.isPresent()) {
+            throw new SQLException(String.format(ErrorMessages.COLUMN_FILTER_UNKNOWN_COLUMN, unknownColumnName.get(), tableName));
+        }
+        List<String> capturedColumnNames = tableConfig.filterColumns(tableColumnNames);
+        if (capturedColumnNames.isEmpty()) {
+            throw new SQLException(String.format(ErrorMessages.COLUMN_FILTER_NO_COLUMNS, tableName));
+        }
+        return capturedColumnNames;
+    }
+
+    public int getServerMajorVersion() throws SQLException {
+        return getConn().getMetaData().getDatabaseMajorVersion();
+    }
+
     public boolean auditTriggerExists(String tableName) throws SQLException {
-        String[] stringArgs = {"dbw_" + tableName + "_audit"};
+        String[] stringArgs = {QueryHelper.buildAuditTriggerName(tableName, Operation.UPDATE).toLowerCase()};
+        if (!objectExists(PostgresQueries.FIND_AUDIT_TRIGGER, stringArgs)) {
+            stringArgs[0] = QueryHelper.buildAuditTriggerName(tableName).toLowerCase();
+        }
         return objectExists(PostgresQueries.FIND_AUDIT_TRIGGER, stringArgs);
     }
 
     public void createAuditTrigger(String tableName) throws SQLException {
-        String triggerName = QueryHelper.buildAuditTriggerName(tableName);
-        executeFormattedQueryUpdate(PostgresQueries.CREATE_AUDIT_TRIGGER, triggerName, getObjectNameWithSchema(tableName), getObjectNameWithSchema(Common.DBW_AUDIT_FUNC_NAME));
+        TableConfig tableConfig = getConfig().getTableConfig(tableName);
+        if (tableConfig.getCaptureLevel().equals(CaptureLevel.COUNTS)) {
+            createAuditStatementTriggers(tableName, getObjectNameWithSchema(Common.DBW_AUDIT_COUNT_FUNC_NAME), "");
+        } else if (isStatementCapture() && !selectPrimaryKeyColumns(tableName).isEmpty()) {
+            createAuditStatementTriggers(tableName, getAuditFunctionName(), buildAuditTriggerArguments(tableName));
+        } else {
+            // Transition rows of a table without a primary key can't be paired, so its changes are captured per row.
+            AuditTriggerQueryBuilder auditTriggerQueryBuilder = new AuditTriggerQueryBuilder(
+                    PostgresQueries.CREATE_AUDIT_TRIGGER,
+                    tableName,
+                    getObjectNameWithSchema(tableName),
+                    isShadowCapture() ? getShadowFunctionName(tableName) : getRowAuditFunctionName(),
+                    isShadowCapture() ? "" : buildAuditTriggerArguments(tableName)
+            );
+            if (getConfig().isSkipUnchangedUpdates()) {
+                auditTriggerQueryBuilder.when(Operation.UPDATE, PostgresQueries.ROW_CHANGED_CONDITION);
+            }
+            if (tableConfig.getCaptureLevel().equals(CaptureLevel.SAMPLED)) {
+                String sampleCondition = String.format(PostgresQueries.SAMPLE_CONDITION, tableConfig.getSampleEvery().get());
+                for (Operation operation : Operation.values()) {
+                    auditTriggerQueryBuilder.when(operation, sampleCondition);
+                }
+            }
+            List<String> capturedColumns = tableConfig.isColumnFilterPresent() ?
+                    selectCapturedColumns(tableName) : Collections.emptyList();
+            if (!capturedColumns.isEmpty()) {
+                String columnsChanged = String.format(
+                        PostgresQueries.COLUMNS_CHANGED_CONDITION,
+                        QueryHelper.buildQuotedIdentifierList(OLD_ROW + ".", capturedColumns),
+                        QueryHelper.buildQuotedIdentifierList(NEW_ROW + ".", capturedColumns)
+                );
+                auditTriggerQueryBuilder
+                        .updateOf(QueryHelper.buildQuotedIdentifierList("", capturedColumns))
+                        .when(Operation.UPDATE, columnsChanged);
+            }
+            Optional<String> predicate = tableConfig.getWhere();
+            if (predicate.isPresent()) {
+                addPredicateConditions(auditTriggerQueryBuilder, tableName, predicate.get());
+            }
+            for (String auditTriggerQuery : auditTriggerQueryBuilder.build()) {
+                executeFormattedQueryUpdate(auditTriggerQuery);
+            }
+        }
         Logger.log(Level.INFO, dbConfig.getName(), String.format(LogMessages.AUDIT_TRIGGER_CREATED, tableName));
     }
 
+    /**
+     * An update is registered when either the previous or the new row state matches the predicate,
+     * so that rows leaving the watched scope are registered too.
+     */
+    private void addPredicateConditions(AuditTriggerQueryBuilder auditTriggerQueryBuilder, String tableName, String predicate) throws SQLException {
+        PredicateCompiler predicateCompiler = new PredicateCompiler(predicate);
+        String newRowCondition = predicateCompiler.compile(NEW_ROW);
+        String oldRowCondition = predicateCompiler.compile(OLD_ROW);
+        checkPredicateColumns(tableName, predicateCompiler.getColumnNames());
+        auditTriggerQueryBuilder
+                .when(Operation.INSERT, newRowCondition)
+                .when(Operation.DELETE, oldRowCondition)
+                .when(Operation.UPDATE, String.format(PostgresQueries.EITHER_ROW_CONDITION, newRowCondition, oldRowCondition));
+    }
+
+    private void checkPredicateColumns(String tableName, Set<String> predicateColumnNames) throws SQLException {
+        List<String> tableColumnNames = Arrays.asList(selectTableColumnNames(tableName));
+        for (String predicateColumnName : predicateColumnNames) {
+            if (tableColumnNames.stream().noneMatch(predicateColumnName::equalsIgnoreCase)) {
+                throw new SQLException(String.format(ErrorMessages.PREDICATE_UNKNOWN_COLUMN, predicateColumnName, tableName));
+            }
+        }
+    }
+
+    private void createAuditStatementTriggers(String tableName, String functionName, String triggerArguments) throws SQLException {
+        // Transition tables can't be used by triggers with more than one event, hence a trigger per operation.
+        for (Operation operation : Operation.values()) {
+            String referencing;
+            if (operation.equals(Operation.INSERT)) {
+                referencing = PostgresQueries.REFERENCING_NEW_TABLE;
+            } else if (operation.equals(Operation.DELETE)) {
+                referencing = PostgresQueries.REFERENCING_OLD_TABLE;
+            } else {
+                referencing = String.join(Common.SPACE_DELIMITER, PostgresQueries.REFERENCING_OLD_TABLE, PostgresQueries.REFERENCING_NEW_TABLE);
+            }
+            executeFormattedQueryUpdate(
+                    PostgresQueries.CREATE_AUDIT_STATEMENT_TRIGGER,
+                    QueryHelper.buildAuditTriggerName(tableName, operation),
+                    operation.name(),
+                    getObjectNameWithSchema(tableName),
+                    referencing,
+                    functionName,
+                    triggerArguments
+            );
+        }
+    }
+
+    public void listen() throws SQLException {
+        Statement stmt = getConn().createStatement();
+        stmt.execute(PostgresQueries.LISTEN_AUDIT_CHANNEL);
+        stmt.close();
+    }
+
+    public boolean awaitNotifications(int timeout) throws SQLException {
+        PGNotification[] notifications = getConn().unwrap(PGConnection.class).getNotifications(timeout);
+        return notifications != null && notifications.length > 0;
+    }
+
+    public void createReplicaIdentityTable() throws SQLException {
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_REPLICA_IDENTITY_TABLE, getObjectNameWithSchema(Common.DBW_REPLICA_IDENTITY_TABLE_NAME));
+    }
+
+    /**
+     * The previous replica identity is stored first, so that it can be restored once the table isn't decoded anymore.
+     */
+    public void setReplicaIdentityFull(String tableName) throws SQLException {
+        String query = formatQuery(PostgresQueries.SAVE_REPLICA_IDENTITY, getObjectNameWithSchema(Common.DBW_REPLICA_IDENTITY_TABLE_NAME));
+        PreparedStatement pstmt = getConn().prepareStatement(query);
+        pstmt.setString(1, getDbConfig().getSchema());
+        pstmt.setString(2, tableName.toLowerCase());
+        pstmt.executeUpdate();
+        pstmt.close();
+        executeFormattedQueryUpdate(PostgresQueries.SET_REPLICA_IDENTITY_FULL, getObjectNameWithSchema(tableName));
+        Logger.log(Level.INFO, dbConfig.getName(), String.format(LogMessages.REPLICA_IDENTITY_SET, tableName));
+    }
+
+    /**
+     * A full replica identity makes every update and delete log the whole previous row, so it's given back
+     * to the tables that aren't decoded anymore. With no kept tables, the stored identities are dropped altogether.
+     */
+    public void restoreReplicaIdentities(Set<String> keptTables) throws SQLException {
+        String[] stringArgs = {getDbConfig().getSchema(), Common.DBW_REPLICA_IDENTITY_TABLE_NAME.toLowerCase()};
+        if (!objectExists(PostgresQueries.FIND_AUDIT_TABLE, stringArgs)) {
+            return;
+        }
+        String replicaIdentityTableName = getObjectNameWithSchema(Common.DBW_REPLICA_IDENTITY_TABLE_NAME);
+        Map<String, String> replicaIdentities = new HashMap<>();
+        PreparedStatement pstmt = getConn().prepareStatement(formatQuery(PostgresQueries.SELECT_REPLICA_IDENTITIES, replicaIdentityTableName));
+        ResultSet rs = pstmt.executeQuery();
+        while (rs.next()) {
+            replicaIdentities.put(rs.getString(Common.COLNAME_TABLE_NAME), rs.getString(Common.COLNAME_REPLICA_IDENTITY));
+        }
+        pstmt.close();
+        Set<String> keptTableNames = keptTables.stream().map(String::toLowerCase).collect(Collectors.toSet());
+        for (Map.Entry<String, String> replicaIdentity : replicaIdentities.entrySet()) {
+            String tableName = replicaIdentity.getKey();
+            if (keptTableNames.contains(tableName)) {
+                continue;
+            }
+            String[] tableArgs = {getDbConfig().getSchema(), tableName};
+            if (objectExists(PostgresQueries.FIND_AUDIT_TABLE, tableArgs)) {
+                executeFormattedQueryUpdate(PostgresQueries.SET_REPLICA_IDENTITY, getObjectNameWithSchema(tableName), replicaIdentity.getValue());
+                Logger.log(Level.INFO, dbConfig.getName(), String.format(LogMessages.REPLICA_IDENTITY_RESTORED, tableName, replicaIdentity.getValue()));
+            }
+            pstmt = getConn().prepareStatement(formatQuery(PostgresQueries.DELETE_REPLICA_IDENTITY, replicaIdentityTableName));
+            pstmt.setString(1, tableName);
+            pstmt.executeUpdate();
+            pstmt.close();
+        }
+        if (keptTables.isEmpty()) {
+            executeFormattedQueryUpdate(PostgresQueries.DROP_REPLICA_IDENTITY_TABLE, replicaIdentityTableName);
+        }
+    }
+
+    public void startLogicalDecoding() throws SQLException {
+        Set<String> decodedTables = App.options.getTables().isPresent() ?
+                Sets.intersection(getWatchedTables(), App.options.getTables().get()) : getWatchedTables();
+        DecodedChangeParser parser = new DecodedChangeParser(getDbConfig().getSchema(), decodedTables, getConfig().isSkipUnchangedUpdates());
+        logicalDecoder = new PostgresLogicalDecoder(openReplicationConnection(), parser);
+        logicalDecoder.start();
+        Logger.log(Level.INFO, dbConfig.getName(), String.format(LogMessages.LOGICAL_DECODING_STARTED, logicalDecoder.getSlotName()));
+    }
+
+    public List<AuditRecord> selectDecodedAuditRecords() throws SQLException, JsonProcessingException {
+        return logicalDecoder.readPending();
+    }
+
     public String deleteFirstNRows(String nRows) throws SQLException {
-        return deleteFirstNRows(nRows, PostgresQueries.DELETE_ALL_AUDIT_RECORDS, PostgresQueries.DELETE_FIRST_N_AUDIT_RECORDS);
+        if (isShadowCapture() && getConfig().getCapturedTables().isEmpty()) {
+            return SuccessMessages.CLI_AUDIT_TABLE_EMPTY;
+        } else if (isShadowCapture()) {
+            return deleteFirstNRows(nRows, buildDeleteAllShadowRecordsQuery(), buildDeleteFirstNShadowRecordsQuery());
+        }
+        String result = deleteFirstNRows(nRows, PostgresQueries.DELETE_ALL_AUDIT_RECORDS, PostgresQueries.DELETE_FIRST_N_AUDIT_RECORDS);
+        deleteOrphanedAuditQueries();
+        return result;
     }
 
     public void deleteFirstNRows(int nRows) throws SQLException {
+        if (isShadowCapture()) {
+            if (!getConfig().getCapturedTables().isEmpty()) {
+                deleteFirstNRows(buildDeleteFirstNShadowRecordsQuery(), nRows);
+            }
+            return;
+        }
         deleteFirstNRows(PostgresQueries.DELETE_FIRST_N_AUDIT_RECORDS, nRows);
+        deleteOrphanedAuditQueries();
+    }
+
+    private String buildDeleteAllShadowRecordsQuery() {
+        List<String> shadowTableNames = new ArrayList<>();
+        for (String tableName : getConfig().getCapturedTables()) {
+            shadowTableNames.add(getObjectNameWithSchema(getShadowTableName(tableName)));
+        }
+        return String.format(PostgresQueries.DELETE_ALL_SHADOW_RECORDS, String.join(Common.COMMA_DELIMITER, shadowTableNames));
+    }
+
+    /**
+     * Every shadow table but the last one is cleared in a data-modifying CTE.
+     */
+    private String buildDeleteFirstNShadowRecordsQuery() {
+        List<String> deleteQueries = new ArrayList<>();
+        for (String tableName : getConfig().getCapturedTables()) {
+            deleteQueries.add(String.format(PostgresQueries.DELETE_SHADOW_RECORDS_TO_CUTOFF, getObjectNameWithSchema(getShadowTableName(tableName))));
+        }
+        StringBuilder deleteCtes = new StringBuilder();
+        for (int i = 0; i < deleteQueries.size() - 1; i++) {
+            deleteCtes.append(String.format(PostgresQueries.DELETE_SHADOW_RECORDS_CTE, i, deleteQueries.get(i)));
+        }
+        return String.format(PostgresQueries.DELETE_FIRST_N_SHADOW_RECORDS, deleteCtes, deleteQueries.get(deleteQueries.size() - 1));
+    }
+
+    /**
+     * Query texts are kept for a grace period after they were last used,
+     * so that rows written by a statement which is still in progress don't lose theirs.
+     */
+    public void deleteOrphanedAuditQueries() throws SQLException {
+        String[] stringArgs = {getDbConfig().getSchema(), Common.DBW_AUDIT_QUERY_TABLE_NAME.toLowerCase()};
+        if (objectExists(PostgresQueries.FIND_AUDIT_TABLE, stringArgs)) {
+            executeFormattedQueryUpdate(PostgresQueries.DELETE_ORPHANED_AUDIT_QUERIES);
+        }
     }
 
     public void dropAuditTrigger(String tableName) throws SQLException {
-        String triggerName = QueryHelper.buildAuditTriggerName(tableName);
-        executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_TRIGGER, triggerName, getObjectNameWithSchema(tableName));
+        dropStaleAuditTriggers(tableName);
         Logger.log(Level.INFO, dbConfig.getName(), String.format(LogMessages.AUDIT_TRIGGER_DROPPED, tableName));
     }
 
+    public void dropStaleAuditTriggers(String tableName) throws SQLException {
+        String tableNameWithSchema = getObjectNameWithSchema(tableName);
+        executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_TRIGGER, QueryHelper.buildAuditTriggerName(tableName), tableNameWithSchema);
+        for (Operation operation : Operation.values()) {
+            String triggerName = QueryHelper.buildAuditTriggerName(tableName, operation);
+            executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_TRIGGER, triggerName, tableNameWithSchema);
+        }
+    }
+
+    public void prepareDdlTrigger() throws SQLException {
+        String ddlFunctionName = getObjectNameWithSchema(Common.DBW_DDL_FUNC_NAME);
+        String ddlLogTableName = getObjectNameWithSchema(Common.DBW_DDL_LOG_TABLE_NAME);
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_DDL_LOG_TABLE, ddlLogTableName);
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_DDL_FUNCTION, ddlFunctionName, ddlLogTableName, getDbConfig().getSchema());
+        dropLegacyDdlTrigger();
+        executeFormattedQueryUpdate(PostgresQueries.DROP_DDL_TRIGGER, getDdlTriggerName());
+        executeFormattedQueryUpdate(PostgresQueries.CREATE_DDL_TRIGGER, getDdlTriggerName(), ddlFunctionName);
+        Logger.log(Level.INFO, dbConfig.getName(), LogMessages.DDL_TRIGGER_CREATED);
+    }
+
+    private void dropDdlTrigger() throws SQLException {
+        dropLegacyDdlTrigger();
+        executeFormattedQueryUpdate(PostgresQueries.DROP_DDL_TRIGGER, getDdlTriggerName());
+        executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_FUNCTION, getObjectNameWithSchema(Common.DBW_DDL_FUNC_NAME));
+        executeFormattedQueryUpdate(PostgresQueries.DROP_DDL_LOG_TABLE, getObjectNameWithSchema(Common.DBW_DDL_LOG_TABLE_NAME));
+    }
+
+    /**
+     * Event triggers are database wide, so every watched schema gets a trigger named after it.
+     * A trigger created under the former shared name is dropped only when it belongs to this schema.
+     */
+    private String getDdlTriggerName() {
+        return String.join("_", Common.DBW_DDL_TRIGGER_NAME, getDbConfig().getSchema()).toLowerCase();
+    }
+
+    private void dropLegacyDdlTrigger() throws SQLException {
+        String[] stringArgs = {Common.DBW_DDL_TRIGGER_NAME.toLowerCase(), getDbConfig().getSchema()};
+        if (objectExists(PostgresQueries.FIND_SCHEMA_DDL_TRIGGER, stringArgs)) {
+            executeFormattedQueryUpdate(PostgresQueries.DROP_DDL_TRIGGER, Common.DBW_DDL_TRIGGER_NAME);
+        }
+    }
+
+    public boolean ddlTriggerExists() throws SQLException {
+        String[] stringArgs = {getDdlTriggerName()};
+        return objectExists(PostgresQueries.FIND_DDL_TRIGGER, stringArgs);
+    }
+
+    public int selectMaxDdlChangeId() throws SQLException {
+        String query = String.format(PostgresQueries.SELECT_DDL_LOG_MAX_ID, getObjectNameWithSchema(Common.DBW_DDL_LOG_TABLE_NAME));
+        return selectSingleIntValue(query, Common.MAX);
+    }
+
+    public List<DdlChange> selectDdlChanges(int fromId) throws SQLException {
+        String query = String.format(PostgresQueries.SELECT_DDL_CHANGES, getObjectNameWithSchema(Common.DBW_DDL_LOG_TABLE_NAME));
+        return selectDdlChanges(query, fromId);
+    }
+
+    /**
+     * The cached column names are dropped as well, since they no longer match the altered table.
+     */
+    public void refreshAuditTrigger(String tableName) throws SQLException {
+        watchedTablesColumnNames = null;
+        if (getConfig().getCaptureMode().equals(CaptureMode.LOGICAL)) {
+            return;
+        }
+        if (isShadowCapture()) {
+            dropShadowAuditView();
+            prepareShadowTable(tableName);
+            createShadowAuditView();
+        }
+        dropStaleAuditTriggers(tableName);
+        createAuditTrigger(tableName);
+    }
+
     public boolean purge(Set<String> watchedTables) {
         boolean success = true;
+        try {
+            dropDdlTrigger();
+        } catch (SQLException e) {
+            success = false;
+            new RecoverableException("Purge", e.getMessage(), e).setRecoverable().handle();
+        }
         for (String tableName : watchedTables) {
             try {
                 dropAuditTrigger(tableName);
@@ -144,9 +1031,26 @@ public class Postgres extends Database {
                 new RecoverableException("Purge", e.getMessage(), e).setRecoverable().handle();
             }
         }
+        try {
+            dropShadowObjects(watchedTables);
+        } catch (SQLException e) {
+            success = false;
+            new RecoverableException("Purge", e.getMessage(), e).setRecoverable().handle();
+        }
         try {
             dropAuditFunction();
             dropAuditTable(getObjectNameWithSchema(Common.DBW_AUDIT_TABLE_NAME));
+            auditTablePartitioned = null;
+            auditTableRingBuffer = null;
+            executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_FUNCTION, getObjectNameWithSchema(Common.DBW_AUDIT_RING_FUNC_NAME));
+            executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_QUERY_TABLE, getObjectNameWithSchema(Common.DBW_AUDIT_QUERY_TABLE_NAME));
+            executeFormattedQueryUpdate(PostgresQueries.DROP_AUDIT_COUNTS_TABLE, getObjectNameWithSchema(Common.DBW_AUDIT_COUNTS_TABLE_NAME));
+        } catch (SQLException e) {
+            success = false;
+            new RecoverableException("Purge", e.getMessage(), e).setRecoverable().handle();
+        }
+        try {
+            restoreReplicaIdentities(Collections.emptySet());
         } catch (SQLException e) {
             success = false;
             new RecoverableException("Purge", e.getMessage(), e).setRecoverable().handle();
@@ -154,15 +1058,13 @@ public class Postgres extends Database {
         return success;
     }
 
+    /**
+     * Names of the tables with audit triggers, read from the catalog since table names may contain underscores.
+     */
     public String[] selectAuditTriggers() throws SQLException {
-        String[] stringArgs = {};
-        List<String> auditTriggers = selectStringArray(PostgresQueries.SELECT_AUDIT_TRIGGERS, stringArgs);
-        String[] auditTriggerNames = new String[auditTriggers.size()];
-        for (short i = 0; i < auditTriggers.size(); i++) {
-            String auditTriggerName = auditTriggers.get(i).split("_")[1];
-            auditTriggerNames[i] = auditTriggerName;
-        }
-        return auditTriggerNames;
+        String[] stringArgs = {getDbConfig().getSchema()};
+        List<String> auditTriggerTables = selectStringArray(PostgresQueries.SELECT_AUDIT_TRIGGERS, stringArgs);
+        return auditTriggerTables.toArray(new String[0]);
     }
 
     public String[] selectTableColumnNames(String tableName) throws SQLException {
@@ -172,17 +1074,177 @@ public class Postgres extends Database {
     }
 
     public int selectMaxId() throws SQLException {
+        if (isShadowCapture()) {
+            return selectSingleIntValue(PostgresQueries.SELECT_SHADOW_MAX_ID, Common.MAX);
+        }
         return selectSingleIntValue(PostgresQueries.SELECT_AUDIT_TABLE_MAX_ID, Common.MAX);
     }
 
     public Integer selectLatestAuditRecordId(long seconds) throws SQLException {
-        return selectSingleIntValue(PostgresQueries.SELECT_LATEST_WITH_SECONDS, Common.COLNAME_ID, seconds);
+        String query = isShadowCapture() ? PostgresQueries.SELECT_SHADOW_LATEST_WITH_SECONDS : PostgresQueries.SELECT_LATEST_WITH_SECONDS;
+        return selectSingleIntValue(query, Common.COLNAME_ID, seconds);
     }
 
     public List<AuditRecord> selectAuditRecords(int fromId) throws SQLException, UnknownDbOperationException {
-        SelectAuditRecordsQueryBuilder selectAuditRecordsBuilder =
-                new SelectAuditRecordsQueryBuilder(PostgresQueries.SELECT_AUDIT_RECORDS);
-        return selectAuditRecords(selectAuditRecordsBuilder.build(), fromId);
+        if (isShadowCapture()) {
+            return selectShadowAuditRecords(new SelectAuditRecordsQueryBuilder(PostgresQueries.SELECT_CHANGED_SHADOW_TABLES), fromId);
+        }
+        return selectAuditRecords(fromId, null);
+    }
+
+    /**
+     * Shadow tables are read from the lowest ID on, their records are filtered afterwards.
+     */
+    public List<AuditRecord> selectAuditRecords(SortedSet<Integer> ids) throws SQLException, UnknownDbOperationException {
+        if (isShadowCapture()) {
+            SelectAuditRecordsQueryBuilder changedShadowTablesBuilder =
+                    new SelectAuditRecordsQueryBuilder(PostgresQueries.SELECT_CHANGED_SHADOW_TABLES).allTables();
+            List<AuditRecord> auditRecords = selectShadowAuditRecords(changedShadowTablesBuilder, ids.first() - 1);
+            auditRecords.removeIf(auditRecord -> !ids.contains(auditRecord.getId()));
+            return auditRecords;
+        }
+        return selectAuditRecords(ids.first() - 1, ids);
+    }
+
+    @Override
+    public List<AuditRecord> selectRowHistory(String tableName, String rowKey, Long seconds) throws SQLException, UnknownDbOperationException {
+        List<AuditRecord> auditRecords = super.selectRowHistory(tableName, rowKey, seconds);
+        if (App.options.getShowQuery()) {
+            resolveAuditQueries(auditRecords);
+        }
+        return auditRecords;
+    }
+
+    protected String buildRowHistoryQuery(boolean withinPeriod) {
+        String query = App.options.getShowQuery() ? PostgresQueries.SELECT_ROW_HISTORY_WITH_QUERY : PostgresQueries.SELECT_ROW_HISTORY;
+        if (withinPeriod) {
+            query += PostgresQueries.ROW_HISTORY_PERIOD;
+        }
+        return query + PostgresQueries.ORDER_BY_ID;
+    }
+
+    private List<AuditRecord> selectAuditRecords(int fromId, Collection<Integer> ids) throws SQLException, UnknownDbOperationException {
+        boolean showQuery = App.options.getShowQuery();
+        SelectAuditRecordsQueryBuilder selectAuditRecordsBuilder = new SelectAuditRecordsQueryBuilder(
+                showQuery ? PostgresQueries.SELECT_AUDIT_RECORDS_WITH_QUERY : PostgresQueries.SELECT_AUDIT_RECORDS
+        ).ids(ids);
+        if (ids != null) {
+            selectAuditRecordsBuilder.allTables();
+        }
+        List<AuditRecord> auditRecords = selectAuditRecords(selectAuditRecordsBuilder.build(), fromId);
+        if (showQuery) {
+            resolveAuditQueries(auditRecords);
+        }
+        return auditRecords;
+    }
+
+    /**
+     * Only the shadow tables with new changes are read. Their records are merged in the order of the shared sequence.
+     */
+    private List<AuditRecord> selectShadowAuditRecords(SelectAuditRecordsQueryBuilder changedShadowTablesBuilder, int fromId) throws SQLException, UnknownDbOperationException {
+        List<String> changedTableNames = new ArrayList<>();
+        PreparedStatement pstmt = getConn().prepareStatement(changedShadowTablesBuilder.build());
+        pstmt.setInt(1, fromId);
+        ResultSet rs = pstmt.executeQuery();
+        while (rs.next()) {
+            changedTableNames.add(rs.getString(Common.ITEM));
+        }
+        pstmt.close();
+        List<AuditRecord> auditRecords = new ArrayList<>();
+        for (String tableName : changedTableNames) {
+            auditRecords.addAll(selectShadowAuditRecords(tableName, fromId));
+        }
+        auditRecords.sort(Comparator.comparingInt(AuditRecord::getId));
+        return auditRecords;
+    }
+
+    private List<AuditRecord> selectShadowAuditRecords(String tableName, int fromId) throws SQLException, UnknownDbOperationException {
+        List<AuditRecord> auditRecords = new ArrayList<>();
+        String query = formatQuery(PostgresQueries.SELECT_SHADOW_RECORDS, getObjectNameWithSchema(getShadowTableName(tableName)));
+        PreparedStatement pstmt = getConn().prepareStatement(query);
+        pstmt.setInt(1, fromId);
+        ResultSet rs = pstmt.executeQuery();
+        String[] stateColumnNames = mapShadowStateColumnNames(rs.getMetaData());
+        AuditRecord auditRecord = null;
+        while (rs.next()) {
+            int id = rs.getInt(Common.COLNAME_SHADOW_ID);
+            if (auditRecord == null || auditRecord.getId() != id) {
+                auditRecord = new AuditRecord();
+                auditRecord.setId(id);
+                auditRecord.setTableName(tableName);
+                auditRecord.setOperation(Operation.valueOfSymbol(rs.getString(Common.COLNAME_SHADOW_OPERATION)));
+                auditRecord.setTimestamp(rs.getTimestamp(Common.COLNAME_SHADOW_TIMESTAMP));
+                auditRecords.add(auditRecord);
+            }
+            Map<String, Object> state = readShadowState(rs, stateColumnNames);
+            if (rs.getString(Common.COLNAME_SHADOW_STATE).equals(SHADOW_OLD_STATE)) {
+                auditRecord.setOldState(state);
+            } else {
+                auditRecord.setNewState(state);
+            }
+        }
+        pstmt.close();
+        return auditRecords;
+    }
+
+    /**
+     * Maps the result set's column indexes to the watched table's column names, skipping the leading shadow columns.
+     */
+    private String[] mapShadowStateColumnNames(ResultSetMetaData metaData) throws SQLException {
+        String[] stateColumnNames = new String[metaData.getColumnCount() - SHADOW_COLUMN_COUNT];
+        for (int i = 0; i < stateColumnNames.length; i++) {
+            stateColumnNames[i] = metaData.getColumnLabel(SHADOW_COLUMN_COUNT + i + 1);
+        }
+        return stateColumnNames;
+    }
+
+    private Map<String, Object> readShadowState(ResultSet rs, String[] stateColumnNames) throws SQLException {
+        ImmutableMap.Builder<String, Object> state = ImmutableMap.builder();
+        for (int i = 0; i < stateColumnNames.length; i++) {
+            int columnIndex = SHADOW_COLUMN_COUNT + i + 1;
+            Object value = rs.getObject(columnIndex);
+            if (value instanceof byte[]) {
+                value = rs.getString(columnIndex);
+            }
+            state.put(stateColumnNames[i], Optional.ofNullable(value).orElse(Common.NULL_AS_STRING));
+        }
+        return state.build();
+    }
+
+    private void resolveAuditQueries(List<AuditRecord> auditRecords) throws SQLException {
+        Set<String> missingHashes = Sets.newHashSet();
+        for (AuditRecord auditRecord : auditRecords) {
+            String queryHash = auditRecord.getQueryHash();
+            if (queryHash != null && !auditQueryCache.containsKey(queryHash)) {
+                missingHashes.add(queryHash);
+            }
+        }
+        if (!missingHashes.isEmpty()) {
+            selectAuditQueries(missingHashes);
+        }
+        for (AuditRecord auditRecord : auditRecords) {
+            if (auditRecord.getQueryHash() != null) {
+                auditRecord.setQuery(auditQueryCache.get(auditRecord.getQueryHash()));
+            }
+        }
+    }
+
+    private void selectAuditQueries(Set<String> queryHashes) throws SQLException {
+        PreparedStatement pstmt = getConn().prepareStatement(PostgresQueries.SELECT_AUDIT_QUERIES);
+        pstmt.setArray(1, getConn().createArrayOf(TEXT_ARRAY_TYPE, queryHashes.toArray()));
+        ResultSet rs = pstmt.executeQuery();
+        while (rs.next()) {
+            auditQueryCache.put(rs.getString(Common.COLNAME_HASH), rs.getString(Common.COLNAME_QUERY));
+        }
+        pstmt.close();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (logicalDecoder != null) {
+            logicalDecoder.close();
+        }
+        super.close();
     }
 
     private String getObjectNameWithSchema(String objectName) {
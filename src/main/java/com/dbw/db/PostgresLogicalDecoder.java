@@ -0,0 +1,75 @@
+package com.dbw.db;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.postgresql.PGConnection;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class PostgresLogicalDecoder {
+    private final static String OUTPUT_PLUGIN = "test_decoding";
+    private final static int STATUS_INTERVAL_SECONDS = 10;
+
+    private final Connection conn;
+    private final DecodedChangeParser parser;
+    private final String slotName;
+    private PGReplicationStream stream;
+
+    public PostgresLogicalDecoder(Connection conn, DecodedChangeParser parser) {
+        this.conn = conn;
+        this.parser = parser;
+        this.slotName = (Common.DBW_PREFIX + "slot_" + UUID.randomUUID().toString().replace("-", "")).toLowerCase();
+    }
+
+    public void start() throws SQLException {
+        PGConnection pgConn = conn.unwrap(PGConnection.class);
+        pgConn.getReplicationAPI()
+                .createReplicationSlot()
+                .logical()
+                .withSlotName(slotName)
+                .withOutputPlugin(OUTPUT_PLUGIN)
+                .withTemporaryOption()
+                .make();
+        stream = pgConn.getReplicationAPI()
+                .replicationStream()
+                .logical()
+                .withSlotName(slotName)
+                .withSlotOption("include-timestamp", true)
+                .withSlotOption("skip-empty-xacts", true)
+                .withStatusInterval(STATUS_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                .start();
+    }
+
+    public List<AuditRecord> readPending() throws SQLException, JsonProcessingException {
+        List<AuditRecord> auditRecords = new ArrayList<>();
+        ByteBuffer buffer;
+        while ((buffer = stream.readPending()) != null) {
+            String message = new String(
+                    buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+            auditRecords.addAll(parser.parse(message));
+        }
+        LogSequenceNumber lastReceivedLsn = stream.getLastReceiveLSN();
+        stream.setAppliedLSN(lastReceivedLsn);
+        stream.setFlushedLSN(lastReceivedLsn);
+        return auditRecords;
+    }
+
+    public void close() throws SQLException {
+        if (stream != null && !stream.isClosed()) {
+            stream.close();
+        }
+        conn.close();
+    }
+
+    public String getSlotName() {
+        return slotName;
+    }
+}
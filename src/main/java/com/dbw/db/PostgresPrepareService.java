@@ -1,11 +1,20 @@
 package com.dbw.db;
 
+import com.dbw.cfg.CaptureMode;
 import com.dbw.err.PreparationException;
 import com.dbw.log.ErrorMessages;
+import com.dbw.log.Level;
+import com.dbw.log.Logger;
+import com.dbw.log.WarningMessages;
 
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 public class PostgresPrepareService {
+    private final static int STATEMENT_CAPTURE_MIN_VERSION = 10;
+    private final static int PARTITIONED_AUDIT_TABLE_MIN_VERSION = 11;
     private final Postgres db;
 
     public PostgresPrepareService(Postgres db) {
@@ -14,14 +23,65 @@ public class PostgresPrepareService {
 
     public void prepare() throws PreparationException {
         try {
+            if (db.getConfig().getCaptureMode().equals(CaptureMode.LOGICAL)) {
+                prepareLogicalDecoding();
+                return;
+            }
+            db.restoreReplicaIdentities(Collections.emptySet());
+            if (db.getConfig().areCountedTablesPresent()) {
+                prepareAuditCounts();
+            }
+            if (db.getConfig().getCaptureMode().equals(CaptureMode.SHADOW)) {
+                prepareShadowTables();
+                prepareAuditTriggers();
+                dropUnusedShadowTables();
+                prepareDdlTrigger();
+                return;
+            }
+            if (db.getConfig().getCaptureMode().equals(CaptureMode.STATEMENT)) {
+                checkStatementCaptureSupport();
+            }
+            if (db.getConfig().isAuditTablePartitioned() || db.getConfig().isAuditTableSharded()) {
+                checkPartitionedAuditTableSupport();
+            }
             prepareAuditTable();
             prepareAuditFunction();
             prepareAuditTriggers();
+            prepareDdlTrigger();
         } catch (SQLException e) {
             throw new PreparationException(e.getMessage(), e);
         }
     }
 
+    private void checkStatementCaptureSupport() throws SQLException, PreparationException {
+        int serverMajorVersion = db.getServerMajorVersion();
+        if (serverMajorVersion < STATEMENT_CAPTURE_MIN_VERSION) {
+            String errMsg = String.format(ErrorMessages.STATEMENT_CAPTURE_UNSUPPORTED, serverMajorVersion);
+            throw new PreparationException(errMsg, null);
+        }
+    }
+
+    /**
+     * Counted tables get statement level triggers reading the number of affected rows from their transition tables.
+     */
+    private void prepareAuditCounts() throws SQLException, PreparationException {
+        int serverMajorVersion = db.getServerMajorVersion();
+        if (serverMajorVersion < STATEMENT_CAPTURE_MIN_VERSION) {
+            String errMsg = String.format(ErrorMessages.COUNTS_CAPTURE_UNSUPPORTED, serverMajorVersion);
+            throw new PreparationException(errMsg, null);
+        }
+        db.prepareAuditCountsTable();
+        db.createAuditCountFunction();
+    }
+
+    private void checkPartitionedAuditTableSupport() throws SQLException, PreparationException {
+        int serverMajorVersion = db.getServerMajorVersion();
+        if (serverMajorVersion < PARTITIONED_AUDIT_TABLE_MIN_VERSION) {
+            String errMsg = String.format(ErrorMessages.PARTITIONED_AUDIT_TABLE_UNSUPPORTED, serverMajorVersion);
+            throw new PreparationException(errMsg, null);
+        }
+    }
+
     private void prepareAuditTable() throws SQLException, PreparationException {
         if (!db.auditTableExists()) {
             try {
@@ -30,12 +90,115 @@ public class PostgresPrepareService {
                 String errMsg = String.format(ErrorMessages.CREATE_AUDIT_TABLE, e.getMessage());
                 throw new PreparationException(errMsg, e);
             }
+        } else if (!db.auditStateColumnsAreJson()) {
+            db.alterAuditStateColumnsToJson();
+        }
+        prepareAuditPartitions();
+        checkAuditShards();
+        db.prepareAuditQueryTable();
+        db.addAuditTransactionIdColumn();
+        db.prepareAuditRowKeyColumn();
+        db.createAuditTimestampIndex();
+        prepareAuditRingBuffer();
+        if (db.auditTablePersistenceChanged()) {
+            db.setAuditTablePersistence();
+        }
+    }
+
+    private void prepareAuditPartitions() throws SQLException, PreparationException {
+        if (!db.getConfig().isAuditTablePartitioned()) {
+            return;
+        }
+        if (!db.isAuditTablePartitioned() || db.isAuditTableSharded()) {
+            Logger.log(Level.WARNING, db.getDbConfig().getName(), WarningMessages.AUDIT_TABLE_NOT_PARTITIONED);
+            return;
+        }
+        try {
+            db.createAuditPartitions(db.selectMaxId());
+        } catch (SQLException e) {
+            String errMsg = String.format(ErrorMessages.CREATE_AUDIT_PARTITIONS, e.getMessage());
+            throw new PreparationException(errMsg, e);
+        }
+    }
+
+    private void checkAuditShards() throws SQLException {
+        if (!db.getConfig().isAuditTableSharded()) {
+            return;
+        }
+        int shards = db.getConfig().getAuditTableShards().get();
+        if (!db.isAuditTableSharded() || db.selectAuditPartitions().size() != shards) {
+            String warnMsg = String.format(WarningMessages.AUDIT_TABLE_NOT_SHARDED, shards);
+            Logger.log(Level.WARNING, db.getDbConfig().getName(), warnMsg);
+        }
+    }
+
+    private void prepareAuditRingBuffer() throws SQLException {
+        if (!db.getConfig().isRingBufferAuditTable()) {
+            return;
         }
+        if (!db.isAuditTableRingBuffer()) {
+            Logger.log(Level.WARNING, db.getDbConfig().getName(), WarningMessages.AUDIT_TABLE_NOT_RING_BUFFER);
+            return;
+        }
+        db.prepareAuditRingBuffer();
     }
 
     private void prepareAuditFunction() throws SQLException {
-        if (!db.auditFunctionExists()) {
-            db.createAuditFunction();
+        db.createAuditFunction();
+    }
+
+    private void prepareShadowTables() throws SQLException, PreparationException {
+        db.createShadowSequence();
+        db.dropShadowAuditView();
+        for (String tableName : db.getConfig().getCapturedTables()) {
+            try {
+                db.prepareShadowTable(tableName);
+            } catch (SQLException e) {
+                String errMsg = String.format(ErrorMessages.CREATE_SHADOW_TABLE, tableName, e.getMessage());
+                throw new PreparationException(errMsg, e);
+            }
+        }
+        db.createShadowAuditView();
+    }
+
+    /**
+     * Runs after the triggers of tables removed from the config are dropped, since they depend on the shadow functions.
+     */
+    private void dropUnusedShadowTables() throws SQLException {
+        Set<String> capturedTables = new HashSet<>();
+        for (String tableName : db.getConfig().getCapturedTables()) {
+            capturedTables.add(tableName.toLowerCase());
+        }
+        for (String tableName : db.selectShadowedTables()) {
+            if (!capturedTables.contains(tableName)) {
+                try {
+                    db.dropShadowTable(tableName);
+                } catch (SQLException e) {
+                    new PreparationException(e.getMessage(), e).setRecoverable().handle();
+                }
+            }
+        }
+    }
+
+    private void prepareLogicalDecoding() throws SQLException {
+        db.createReplicaIdentityTable();
+        for (String tableName : db.getWatchedTables()) {
+            db.dropStaleAuditTriggers(tableName);
+            db.setReplicaIdentityFull(tableName);
+        }
+        db.restoreReplicaIdentities(db.getWatchedTables());
+    }
+
+    /**
+     * Event triggers can only be created by superusers, so without the privilege altered tables are picked up
+     * only after the config changes.
+     */
+    private void prepareDdlTrigger() {
+        try {
+            db.prepareDdlTrigger();
+        } catch (SQLException e) {
+            String errMsg = String.format(ErrorMessages.CREATE_DDL_TRIGGER, e.getMessage());
+            new PreparationException(errMsg, e).setRecoverable().handle();
         }
     }
 
@@ -60,7 +223,8 @@ public class PostgresPrepareService {
     private void createAuditTriggers() {
         for (String tableName : db.getWatchedTables()) {
             try {
-                if (!db.auditTriggerExists(tableName)) {
+                if (!db.auditTriggerExists(tableName) || db.getConfig().isTableChanged(tableName)) {
+                    db.dropStaleAuditTriggers(tableName);
                     db.createAuditTrigger(tableName);
                 }
             } catch (SQLException e) {
@@ -18,16 +18,190 @@ public class PostgresQueries {
         "    ORDER BY ordinal_position";
     
     public static final String CREATE_AUDIT_TABLE = 
-        "CREATE TABLE %s (" +
-            Postgres.COLUMN_NAMES[0] + "     SERIAL PRIMARY KEY NOT NULL," +
+        "CREATE %sTABLE %s (" +
+            Postgres.COLUMN_NAMES[0] + "     SERIAL NOT NULL," +
             Postgres.COLUMN_NAMES[1] + "     VARCHAR(100), " +
-            Postgres.COLUMN_NAMES[2] + "     TEXT, " +
-            Postgres.COLUMN_NAMES[3] + "     TEXT, " +
+            Postgres.COLUMN_NAMES[2] + "     JSON, " +
+            Postgres.COLUMN_NAMES[3] + "     JSON, " +
             Postgres.COLUMN_NAMES[4] + "     CHAR(1) NOT NULL, " +
             Postgres.COLUMN_NAMES[5] + "     TEXT, " +
-            Postgres.COLUMN_NAMES[6] + "     TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL" +
+            Postgres.COLUMN_NAMES[6] + "     TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL, " +
+            Postgres.COLUMN_NAMES[7] + "     CHAR(32), " +
+            Postgres.COLUMN_NAMES[8] + "     BIGINT, " +
+            Postgres.COLUMN_NAMES[9] + "     TEXT, " +
+            "PRIMARY KEY (%s)" +
+        ")%s";
+
+    public static final String PARTITION_BY_ID_RANGE = " PARTITION BY RANGE (" + Common.COLNAME_ID + ")";
+
+    public static final String PARTITION_BY_TABLE_NAME_HASH = " PARTITION BY HASH (" + Common.COLNAME_TABLE_NAME + ")";
+
+    // The partition key has to be a part of the primary key.
+    public static final String SHARDED_AUDIT_TABLE_PRIMARY_KEY = Common.COLNAME_ID + ", " + Common.COLNAME_TABLE_NAME;
+
+    public static final String FIND_SHARDED_TABLE =
+        "SELECT " + Common.EXISTS + " (" +
+        "    SELECT FROM pg_partitioned_table" +
+        "    WHERE  partrelid = ?::regclass" +
+        "    AND    partstrat = 'h'" +
+        ")";
+
+    public static final String FIND_PARTITIONED_TABLE =
+        "SELECT " + Common.EXISTS + " (" +
+        "    SELECT FROM pg_partitioned_table" +
+        "    WHERE  partrelid = ?::regclass" +
         ")";
 
+    public static final String FIND_AUDIT_PARTITIONS =
+        "SELECT c.relname AS " + Common.COLNAME_PARTITION_NAME + "," +
+        "       c.relpersistence AS " + Common.COLNAME_PARTITION_PERSISTENCE + "," +
+        "       pg_get_expr(c.relpartbound, c.oid) AS " + Common.COLNAME_PARTITION_BOUND +
+        "    FROM pg_inherits i" +
+        "    JOIN pg_class c ON c.oid = i.inhrelid" +
+        "    WHERE i.inhparent = ?::regclass";
+
+    public static final String CREATE_AUDIT_PARTITION =
+        "CREATE %sTABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM (%d) TO (%d)";
+
+    public static final String FIND_AUDIT_RECORDS_IN_RANGE =
+        "SELECT " + Common.EXISTS + " (" +
+        "    SELECT FROM %s" +
+        "    WHERE " + Common.COLNAME_ID + " >= %d AND " + Common.COLNAME_ID + " < %d" +
+        ")";
+
+    /**
+     * A partition can't be created while the default partition holds records of its range,
+     * so it's created as a standalone table, the records are moved into it and then it's attached.
+     * The statements are sent together, so they run in a single transaction.
+     */
+    public static final String CREATE_AUDIT_PARTITION_FROM_DEFAULT =
+        "CREATE %1$sTABLE %2$s (LIKE %3$s INCLUDING DEFAULTS INCLUDING CONSTRAINTS);" +
+        "WITH moved AS (" +
+        "    DELETE FROM %4$s WHERE " + Common.COLNAME_ID + " >= %5$d AND " + Common.COLNAME_ID + " < %6$d RETURNING *" +
+        ") INSERT INTO %2$s SELECT * FROM moved;" +
+        "ALTER TABLE %3$s ATTACH PARTITION %2$s FOR VALUES FROM (%5$d) TO (%6$d)";
+
+    // A ring buffer audit table is keyed by its slots, the empty ones have no ID.
+    public static final String CONVERT_AUDIT_TABLE_TO_RING_BUFFER =
+        "ALTER TABLE %s DROP CONSTRAINT " + Common.DBW_AUDIT_TABLE_NAME.toLowerCase() + "_pkey, " +
+        "ALTER COLUMN " + Common.COLNAME_ID + " DROP NOT NULL, " +
+        "ADD COLUMN " + Common.COLNAME_SLOT + " INT PRIMARY KEY";
+
+    public static final String CREATE_AUDIT_RING_BUFFER_ID_INDEX =
+        "CREATE UNIQUE INDEX IF NOT EXISTS " + Common.DBW_AUDIT_TABLE_NAME + "_" + Common.COLNAME_ID + "_IDX" +
+        " ON %s (" + Common.COLNAME_ID + ")";
+
+    public static final String ALLOCATE_AUDIT_RING_BUFFER_SLOTS =
+        "INSERT INTO %s (" + Common.COLNAME_SLOT + ", " + Common.COLNAME_ID + ", " + Common.COLNAME_OPERATION + ")" +
+        " SELECT g, NULL, '" + Operation.INSERT.symbol + "' FROM generate_series(0, %d - 1) g" +
+        " ON CONFLICT (" + Common.COLNAME_SLOT + ") DO NOTHING";
+
+    public static final String FIND_AUDIT_RING_BUFFER_SLOTS = "SELECT " + Common.EXISTS + " (SELECT FROM %s)";
+
+    public static final String DELETE_AUDIT_RING_BUFFER_SLOTS_FROM = "DELETE FROM %s WHERE " + Common.COLNAME_SLOT + " >= %d";
+
+    /**
+     * Turns the audit record insert into an overwrite of the slot the record's ID falls into.
+     * The insert goes through only if the slot has been deleted in the meantime.
+     */
+    public static final String CREATE_AUDIT_RING_BUFFER_FUNCTION =
+        "CREATE OR REPLACE FUNCTION %s() RETURNS trigger AS " +
+        "$$" +
+        "BEGIN" +
+        "    NEW." + Common.COLNAME_SLOT + " := NEW." + Common.COLNAME_ID + " %% %d;" +
+        "    UPDATE %s SET (%s) = (%s) WHERE " + Common.COLNAME_SLOT + " = NEW." + Common.COLNAME_SLOT + ";" +
+        "    IF FOUND THEN" +
+        "        RETURN NULL;" +
+        "    END IF;" +
+        "    RETURN NEW;" +
+        "END;" +
+        "$$" +
+        "LANGUAGE plpgsql";
+
+    public static final String CREATE_AUDIT_RING_BUFFER_TRIGGER =
+        "CREATE TRIGGER %s BEFORE INSERT ON %s FOR EACH ROW EXECUTE PROCEDURE %s()";
+
+    public static final String CREATE_AUDIT_SHARD =
+        "CREATE %sTABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES WITH (MODULUS %d, REMAINDER %d)";
+
+    public static final String CREATE_AUDIT_DEFAULT_PARTITION =
+        "CREATE %sTABLE IF NOT EXISTS %s PARTITION OF %s DEFAULT";
+
+    public static final String DROP_AUDIT_PARTITION = "DROP TABLE IF EXISTS %s";
+
+    public static final String DELETE_AUDIT_RECORDS_BEFORE_ID = "DELETE FROM %s WHERE " + Common.COLNAME_ID + " < ?";
+
+    public static final String ADD_AUDIT_QUERY_HASH_COLUMN =
+        "ALTER TABLE %s ADD COLUMN IF NOT EXISTS " + Common.COLNAME_QUERY_HASH + " CHAR(32)";
+
+    public static final String ADD_AUDIT_TRANSACTION_ID_COLUMN =
+        "ALTER TABLE %s ADD COLUMN IF NOT EXISTS " + Common.COLNAME_TRANSACTION_ID + " BIGINT";
+
+    public static final String ADD_AUDIT_ROW_KEY_COLUMN =
+        "ALTER TABLE %s ADD COLUMN IF NOT EXISTS " + Common.COLNAME_ROW_KEY + " TEXT";
+
+    public static final String CREATE_AUDIT_ROW_KEY_INDEX =
+        "CREATE INDEX IF NOT EXISTS " + Common.DBW_AUDIT_TABLE_NAME + "_" + Common.COLNAME_ROW_KEY + "_IDX" +
+        " ON %s (" + Common.COLNAME_TABLE_NAME + ", " + Common.COLNAME_ROW_KEY + ")";
+
+    /**
+     * A B-tree, since the deleted records' space is reused and a ring buffer audit table overwrites its slots,
+     * so the physical order of the records doesn't follow their timestamps.
+     */
+    public static final String CREATE_AUDIT_TIMESTAMP_INDEX =
+        "CREATE INDEX IF NOT EXISTS " + Common.DBW_AUDIT_TABLE_NAME + "_" + Common.COLNAME_TIMESTAMP + "_IDX" +
+        " ON %s (\"" + Common.COLNAME_TIMESTAMP + "\")";
+
+    public static final String FIND_BRIN_INDEX =
+        "SELECT " + Common.EXISTS + " (" +
+        "    SELECT FROM pg_class c" +
+        "    JOIN pg_am a ON a.oid = c.relam" +
+        "    JOIN pg_namespace n ON n.oid = c.relnamespace" +
+        "    WHERE  n.nspname = ? AND c.relname = ? AND a.amname = 'brin'" +
+        ")";
+
+    public static final String DROP_INDEX = "DROP INDEX IF EXISTS %s";
+
+    public static final String CREATE_AUDIT_QUERY_HASH_INDEX =
+        "CREATE INDEX IF NOT EXISTS " + Common.DBW_AUDIT_TABLE_NAME + "_" + Common.COLNAME_QUERY_HASH + "_IDX" +
+        " ON %s (" + Common.COLNAME_QUERY_HASH + ")";
+
+    public static final String CREATE_AUDIT_QUERY_TABLE =
+        "CREATE %sTABLE IF NOT EXISTS %s (" +
+            Common.COLNAME_HASH + "          CHAR(32) PRIMARY KEY NOT NULL, " +
+            Common.COLNAME_QUERY + "         TEXT, " +
+            Common.COLNAME_LAST_USED + "     TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL" +
+        ")";
+
+    public static final String DROP_AUDIT_QUERY_TABLE = "DROP TABLE IF EXISTS %s";
+
+    public static final String FIND_TABLE_PERSISTENCE =
+        "SELECT relpersistence AS \"item\" FROM pg_class WHERE oid = ?::regclass";
+
+    public static final String UNLOGGED = "UNLOGGED";
+
+    public static final String LOGGED = "LOGGED";
+
+    public static final String SET_TABLE_PERSISTENCE = "ALTER TABLE %s SET %s";
+
+    public static final String FIND_COLUMN_DATA_TYPE =
+        "SELECT data_type as \"item\" FROM information_schema.columns" +
+        "    WHERE  table_schema = ?" +
+        "    AND    table_name   = ?" +
+        "    AND    column_name  = ?";
+
+    public static final String ALTER_AUDIT_STATE_COLUMNS_TO_JSON =
+        "ALTER TABLE %s" +
+        " ALTER COLUMN " + Common.COLNAME_OLD_STATE + " TYPE JSON USING " + Common.COLNAME_OLD_STATE + "::JSON," +
+        " ALTER COLUMN " + Common.COLNAME_NEW_STATE + " TYPE JSON USING " + Common.COLNAME_NEW_STATE + "::JSON";
+
+    public static final String FIND_PRIMARY_KEY_COLUMNS =
+        "SELECT a.attname AS \"item\" FROM pg_index i" +
+        "    JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey)" +
+        "    WHERE  i.indrelid = ?::regclass" +
+        "    AND    i.indisprimary" +
+        "    ORDER BY array_position(i.indkey::int2[], a.attnum)";
+
     public static final String FIND_AUDIT_FUNCTION = 
         "SELECT " + Common.EXISTS + " (" +
         "        SELECT routine_name" +
@@ -42,53 +216,216 @@ public class PostgresQueries {
         Common.COLNAME_NEW_STATE, 
         Common.COLNAME_TABLE_NAME, 
         Common.COLNAME_OPERATION, 
-        Common.COLNAME_QUERY
+        Common.COLNAME_QUERY_HASH,
+        Common.COLNAME_TRANSACTION_ID,
+        Common.COLNAME_ROW_KEY
     );
 
     private static final String DELETE_COL_LIST = QueryHelper.buildColumnNameList(
         Common.COLNAME_OLD_STATE, 
         Common.COLNAME_TABLE_NAME, 
         Common.COLNAME_OPERATION, 
-        Common.COLNAME_QUERY
+        Common.COLNAME_QUERY_HASH,
+        Common.COLNAME_TRANSACTION_ID,
+        Common.COLNAME_ROW_KEY
     );
 
     private static final String INSERT_COL_LIST = QueryHelper.buildColumnNameList(
         Common.COLNAME_NEW_STATE, 
         Common.COLNAME_TABLE_NAME, 
         Common.COLNAME_OPERATION, 
-        Common.COLNAME_QUERY
+        Common.COLNAME_QUERY_HASH,
+        Common.COLNAME_TRANSACTION_ID,
+        Common.COLNAME_ROW_KEY
     );
 
+    /**
+     * The first trigger argument holds an array literal of the captured columns (empty when all of them are captured),
+     * the remaining ones the primary key columns.
+     */
+    private static final String TRIGGER_ARGUMENT_DECLARATIONS =
+        "    v_columns TEXT[] := NULLIF(TG_ARGV[0], '')::TEXT[];" +
+        "    v_keys TEXT[] := TG_ARGV[1:TG_NARGS - 1];";
+
     public static final String CREATE_AUDIT_FUNCTION = 
-        "CREATE FUNCTION %s() RETURNS trigger AS " +
+        "CREATE OR REPLACE FUNCTION %s() RETURNS trigger AS " +
         "$$" +
         "DECLARE" +
-        "    v_old TEXT;" +
-        "    v_new TEXT;" +
+        "    v_old JSON;" +
+        "    v_new JSON;" +
+        "    v_query_hash TEXT;" +
+        "    v_transaction_id BIGINT := txid_current();" +
+        "    v_row_key TEXT;" +
+        TRIGGER_ARGUMENT_DECLARATIONS +
         "BEGIN" +
+        "    %s" +
+        "    IF (TG_OP <> 'INSERT') THEN" +
+        "        v_old := %s;" +
+        "        v_row_key := %s(TO_JSON(OLD), v_keys);" +
+        "    END IF;" +
+        "    IF (TG_OP <> 'DELETE') THEN" +
+        "        v_new := %s;" +
+        "        v_row_key := %s(TO_JSON(NEW), v_keys);" +
+        "    END IF;" +
         "    IF (TG_OP = 'UPDATE') THEN" +
-        "        v_old := ROW_TO_JSON(ROW(OLD.*));" +
-        "        v_new := ROW_TO_JSON(ROW(NEW.*));" +
+        "        %s" +
         "        INSERT INTO %s(" + UPDATE_COL_LIST + ") " +
-        "            VALUES (v_old, v_new, TG_TABLE_NAME::TEXT , 'U', current_query());" +
-        "        RETURN NEW;" +
+        "            VALUES (v_old, v_new, TG_TABLE_NAME::TEXT , 'U', v_query_hash, v_transaction_id, v_row_key);" +
         "    ELSIF (TG_OP = 'DELETE') THEN" +
-        "        v_old := ROW_TO_JSON(ROW(OLD.*));" +
         "        INSERT INTO %s(" + DELETE_COL_LIST + ")" +
-        "            VALUES (v_old, TG_TABLE_NAME::TEXT, 'D', current_query());" +
-        "        RETURN OLD;" +
+        "            VALUES (v_old, TG_TABLE_NAME::TEXT, 'D', v_query_hash, v_transaction_id, v_row_key);" +
         "    ELSIF (TG_OP = 'INSERT') THEN" +
-        "        v_new := ROW_TO_JSON(ROW(NEW.*));" +
         "        INSERT INTO %s(" + INSERT_COL_LIST + ")" +
-        "            VALUES (v_new, TG_TABLE_NAME::TEXT, 'I', current_query());" +
-        "        RETURN NEW;" +
+        "            VALUES (v_new, TG_TABLE_NAME::TEXT, 'I', v_query_hash, v_transaction_id, v_row_key);" +
         "    END IF;" +
+        "    %s" +
         "    RETURN NEW;" +
         "END;" +
         "$$" +
         "LANGUAGE plpgsql";
 
-    public static final String DROP_AUDIT_FUNCTION = "DROP FUNCTION %s";
+    /**
+     * Old and new transition rows of an update are paired by their primary key values.
+     * A row whose key was changed by the update is registered as a delete of the old key and an insert of the new one.
+     */
+    public static final String CREATE_AUDIT_STATEMENT_FUNCTION =
+        "CREATE OR REPLACE FUNCTION %s() RETURNS trigger AS " +
+        "$$" +
+        "DECLARE" +
+        "    v_query_hash TEXT;" +
+        "    v_transaction_id BIGINT := txid_current();" +
+        TRIGGER_ARGUMENT_DECLARATIONS +
+        "BEGIN" +
+        "    %s" +
+        "    IF (TG_OP = 'UPDATE') THEN" +
+        "        WITH" +
+        "            o AS (SELECT %s AS state, %s(TO_JSON(r), v_keys) AS row_key FROM " + Common.DBW_OLD_ROWS + " r)," +
+        "            n AS (SELECT %s AS state, %s(TO_JSON(r), v_keys) AS row_key FROM " + Common.DBW_NEW_ROWS + " r)," +
+        "            u AS (INSERT INTO %s(" + UPDATE_COL_LIST + ") " +
+        "                SELECT s.old_state, s.new_state, TG_TABLE_NAME::TEXT, 'U', v_query_hash, v_transaction_id, n.row_key" +
+        "                FROM o JOIN n ON o.row_key = n.row_key CROSS JOIN LATERAL %s s %s)," +
+        "            d AS (INSERT INTO %s(" + DELETE_COL_LIST + ")" +
+        "                SELECT o.state, TG_TABLE_NAME::TEXT, 'D', v_query_hash, v_transaction_id, o.row_key" +
+        "                FROM o WHERE NOT EXISTS (SELECT FROM n WHERE n.row_key = o.row_key))" +
+        "        INSERT INTO %s(" + INSERT_COL_LIST + ")" +
+        "            SELECT n.state, TG_TABLE_NAME::TEXT, 'I', v_query_hash, v_transaction_id, n.row_key" +
+        "            FROM n WHERE NOT EXISTS (SELECT FROM o WHERE o.row_key = n.row_key);" +
+        "    ELSIF (TG_OP = 'DELETE') THEN" +
+        "        INSERT INTO %s(" + DELETE_COL_LIST + ")" +
+        "            SELECT %s, TG_TABLE_NAME::TEXT, 'D', v_query_hash, v_transaction_id, %s(TO_JSON(r), v_keys) FROM " + Common.DBW_OLD_ROWS + " r;" +
+        "    ELSIF (TG_OP = 'INSERT') THEN" +
+        "        INSERT INTO %s(" + INSERT_COL_LIST + ")" +
+        "            SELECT %s, TG_TABLE_NAME::TEXT, 'I', v_query_hash, v_transaction_id, %s(TO_JSON(r), v_keys) FROM " + Common.DBW_NEW_ROWS + " r;" +
+        "    END IF;" +
+        "    %s" +
+        "    RETURN NULL;" +
+        "END;" +
+        "$$" +
+        "LANGUAGE plpgsql";
+
+    /**
+     * Stores the text of the current statement in the audit query table once per statement
+     * and keeps its hash in transaction scoped settings for the remaining rows of the statement.
+     * The last use of an already stored query is refreshed only once it has gone stale, so that concurrent transactions
+     * running the same statement lock its row at most once a minute. Together with the longer cleanup margin,
+     * this keeps the query of a transaction that hasn't committed its audit records yet from being cleaned up.
+     */
+    public static final String SET_QUERY_HASH =
+        "v_query_hash := current_setting('" + Common.DBW_QUERY_HASH_SETTING + "', true);" +
+        "    IF v_query_hash IS NULL OR v_query_hash = ''" +
+        "        OR current_setting('" + Common.DBW_QUERY_MARKER_SETTING + "', true) IS DISTINCT FROM statement_timestamp()::TEXT THEN" +
+        "        v_query_hash := md5(current_query());" +
+        "        INSERT INTO %1$s(" + Common.COLNAME_HASH + ", " + Common.COLNAME_QUERY + ")" +
+        "            VALUES (v_query_hash, current_query())" +
+        "            ON CONFLICT (" + Common.COLNAME_HASH + ") DO NOTHING;" +
+        "        IF NOT FOUND THEN" +
+        "            UPDATE %1$s SET " + Common.COLNAME_LAST_USED + " = CURRENT_TIMESTAMP" +
+        "                WHERE " + Common.COLNAME_HASH + " = v_query_hash" +
+        "                AND " + Common.COLNAME_LAST_USED + " < CURRENT_TIMESTAMP - INTERVAL '1 minute';" +
+        "        END IF;" +
+        "        PERFORM set_config('" + Common.DBW_QUERY_MARKER_SETTING + "', statement_timestamp()::TEXT, true);" +
+        "        PERFORM set_config('" + Common.DBW_QUERY_HASH_SETTING + "', v_query_hash, true);" +
+        "    END IF;";
+
+    /**
+     * Joins the values of the given primary key columns of a row, so that its history can be looked up by index.
+     */
+    public static final String CREATE_ROW_KEY_FUNCTION =
+        "CREATE OR REPLACE FUNCTION %s(p_row JSON, p_keys TEXT[]) RETURNS TEXT AS " +
+        "$$" +
+        "    SELECT string_agg(p_row ->> k.key, '" + Common.ROW_KEY_DELIMITER + "' ORDER BY k.ord)" +
+        "    FROM unnest(p_keys) WITH ORDINALITY k(key, ord)" +
+        "$$" +
+        "LANGUAGE sql IMMUTABLE";
+
+    public static final String CREATE_CHANGED_COLUMNS_FUNCTION =
+        "CREATE OR REPLACE FUNCTION %s(p_old JSON, p_new JSON, p_keys TEXT[])" +
+        " RETURNS TABLE(old_state JSON, new_state JSON) AS " +
+        "$$" +
+        "    SELECT COALESCE(json_object_agg(o.key, o.value ORDER BY o.ord), '{}')," +
+        "           COALESCE(json_object_agg(n.key, n.value ORDER BY n.ord), '{}')" +
+        "    FROM json_each(p_old) WITH ORDINALITY o(key, value, ord)" +
+        "    JOIN json_each(p_new) WITH ORDINALITY n(key, value, ord) ON o.ord = n.ord" +
+        "    WHERE o.value::TEXT IS DISTINCT FROM n.value::TEXT OR o.key = ANY(p_keys)" +
+        "$$" +
+        "LANGUAGE sql IMMUTABLE";
+
+    /**
+     * Replaces values longer than the given number of bytes with their prefix and an MD5 digest of the whole value,
+     * so that the audit row stays bounded in size, while a changed value still results in a different state.
+     * The prefix is cut by bytes of the UTF-8 encoded value, at the last character boundary within the limit.
+     */
+    public static final String CREATE_TRUNCATE_STATE_FUNCTION =
+        "CREATE OR REPLACE FUNCTION %s(p_state JSON, p_max_bytes INT)" +
+        " RETURNS JSON AS " +
+        "$$" +
+        "    SELECT COALESCE(json_object_agg(e.key," +
+        "               CASE WHEN octet_length(e.bytes) > p_max_bytes" +
+        "                   THEN to_json(convert_from(substring(e.bytes FROM 1 FOR (" +
+        "                       SELECT COALESCE(max(k), 0) FROM generate_series(greatest(p_max_bytes - 3, 0), p_max_bytes) k" +
+        "                       WHERE get_byte(e.bytes, k) & 192 <> 128" +
+        "                   )), 'UTF8') || '" + Common.TRUNCATED_VALUE_DIGEST_START + "md5:' || md5(e.bytes) || '" + Common.TRUNCATED_VALUE_DIGEST_END + "')" +
+        "                   ELSE e.value END" +
+        "               ORDER BY e.ord), '{}')" +
+        "    FROM (" +
+        "        SELECT t.key, t.value, t.ord, convert_to(t.text_value, 'UTF8') AS bytes" +
+        "        FROM (" +
+        "            SELECT j.key, j.value, j.ord," +
+        "                   CASE WHEN json_typeof(j.value) = 'string' THEN j.value #>> '{}' ELSE j.value::TEXT END AS text_value" +
+        "            FROM json_each(p_state) WITH ORDINALITY j(key, value, ord)" +
+        "        ) t" +
+        "    ) e" +
+        "$$" +
+        "LANGUAGE sql IMMUTABLE";
+
+    public static final String STATE_TO_JSON = "TO_JSON(%s)";
+
+    public static final String TRUNCATED_STATE_TO_JSON = "%s(%s, %d)";
+
+    public static final String CREATE_FILTER_STATE_FUNCTION =
+        "CREATE OR REPLACE FUNCTION %s(p_state JSON, p_columns TEXT[])" +
+        " RETURNS JSON AS " +
+        "$$" +
+        "    SELECT COALESCE(json_object_agg(j.key, j.value ORDER BY j.ord), '{}')" +
+        "    FROM json_each(p_state) WITH ORDINALITY j(key, value, ord)" +
+        "    WHERE j.key = ANY(p_columns)" +
+        "$$" +
+        "LANGUAGE sql IMMUTABLE";
+
+    public static final String FILTERED_STATE_TO_JSON = "(CASE WHEN v_columns IS NULL THEN %1$s ELSE %2$s(%1$s, v_columns) END)";
+
+    public static final String SELECT_CHANGED_COLUMNS_INTO_STATES =
+        "SELECT s.old_state, s.new_state INTO v_old, v_new FROM %s(v_old, v_new, v_keys) s;";
+
+    public static final String FULL_STATES_SOURCE = "(SELECT o.state AS old_state, n.state AS new_state)";
+
+    public static final String CHANGED_COLUMNS_STATES_SOURCE = "%s(o.state, n.state, v_keys)";
+
+    public static final String NOTIFY_AUDIT_CHANNEL = "PERFORM pg_notify('" + Common.DBW_AUDIT_CHANNEL + "', TG_TABLE_NAME::TEXT);";
+
+    public static final String LISTEN_AUDIT_CHANNEL = "LISTEN " + Common.DBW_AUDIT_CHANNEL;
+
+    public static final String DROP_AUDIT_FUNCTION = "DROP FUNCTION IF EXISTS %s";
 
     public static final String FIND_AUDIT_TRIGGER = 
         "SELECT " + Common.EXISTS + " (" +
@@ -99,32 +436,324 @@ public class PostgresQueries {
 
     public static final String CREATE_AUDIT_TRIGGER = 
         "CREATE TRIGGER %s" +
-        " AFTER INSERT OR UPDATE OR DELETE ON %s" +
-        " FOR EACH ROW EXECUTE PROCEDURE %s()";
+        " AFTER %s ON %s" +
+        " FOR EACH ROW%s EXECUTE PROCEDURE %s(%s)";
+
+    public static final String ROW_CHANGED_CONDITION = "OLD.* IS DISTINCT FROM NEW.*";
+
+    public static final String COLUMNS_CHANGED_CONDITION = "(%s) IS DISTINCT FROM (%s)";
+
+    public static final String EITHER_ROW_CONDITION = "(%s) OR (%s)";
+
+    public static final String STATE_CHANGED_CONDITION = "WHERE o.state::TEXT IS DISTINCT FROM n.state::TEXT";
+
+    public static final String CAPTURED_STATE_CHANGED_CONDITION = "WHERE v_columns IS NULL OR o.state::TEXT IS DISTINCT FROM n.state::TEXT";
+
+    public static final String CREATE_AUDIT_STATEMENT_TRIGGER =
+        "CREATE TRIGGER %s" +
+        " AFTER %s ON %s" +
+        " REFERENCING %s" +
+        " FOR EACH STATEMENT EXECUTE PROCEDURE %s(%s)";
+
+    public static final String REFERENCING_OLD_TABLE = "OLD TABLE AS " + Common.DBW_OLD_ROWS;
+
+    public static final String REFERENCING_NEW_TABLE = "NEW TABLE AS " + Common.DBW_NEW_ROWS;
+
+    public static final String DROP_AUDIT_TRIGGER = "DROP TRIGGER IF EXISTS %s ON %s";
 
-    public static final String DROP_AUDIT_TRIGGER = "DROP TRIGGER %s ON %s";
+    public static final String CREATE_DDL_LOG_TABLE =
+        "CREATE TABLE IF NOT EXISTS %s (" +
+            Common.COLNAME_ID + "     SERIAL PRIMARY KEY NOT NULL," +
+            Common.COLNAME_TABLE_NAME + "     VARCHAR(100) NOT NULL, " +
+            Common.COLNAME_COMMAND_TAG + "     TEXT NOT NULL, " +
+            Common.COLNAME_TIMESTAMP + "     TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL" +
+        ")";
+
+    public static final String DROP_DDL_LOG_TABLE = "DROP TABLE IF EXISTS %s";
+
+    /**
+     * Records every altered table of the schema apart from the application's own ones.
+     * Event triggers fire for DDL of any role, so the function runs with the rights of its owner
+     * and with a search path of its own.
+     */
+    public static final String CREATE_DDL_FUNCTION =
+        "CREATE OR REPLACE FUNCTION %1$s() RETURNS event_trigger SECURITY DEFINER SET search_path = pg_catalog, pg_temp AS $body$\n" +
+        "BEGIN\n" +
+        "    INSERT INTO %2$s (" + Common.COLNAME_TABLE_NAME + ", " + Common.COLNAME_COMMAND_TAG + ")\n" +
+        "        SELECT c.relname, d.command_tag FROM pg_event_trigger_ddl_commands() d\n" +
+        "        JOIN pg_class c ON c.oid = d.objid\n" +
+        "        WHERE d.classid = 'pg_class'::regclass AND d.schema_name = '%3$s'\n" +
+        "        AND upper(c.relname) NOT LIKE '" + Common.DBW_PREFIX.replace("_", "\\_") + "%%';\n" +
+        "END;\n" +
+        "$body$ LANGUAGE plpgsql";
+
+    public static final String CREATE_DDL_TRIGGER =
+        "CREATE EVENT TRIGGER %s ON ddl_command_end WHEN TAG IN ('ALTER TABLE') EXECUTE PROCEDURE %s()";
+
+    public static final String DROP_DDL_TRIGGER = "DROP EVENT TRIGGER IF EXISTS %s";
+
+    public static final String FIND_DDL_TRIGGER =
+        "SELECT " + Common.EXISTS + " (" +
+        "    SELECT FROM pg_event_trigger" +
+        "    WHERE  evtname = ?" +
+        ")";
+
+    // Event triggers aren't schema objects, so the function of a trigger tells which schema it was created for.
+    public static final String FIND_SCHEMA_DDL_TRIGGER =
+        "SELECT " + Common.EXISTS + " (" +
+        "    SELECT FROM pg_event_trigger t" +
+        "    JOIN pg_proc p ON p.oid = t.evtfoid" +
+        "    JOIN pg_namespace n ON n.oid = p.pronamespace" +
+        "    WHERE  t.evtname = ? AND n.nspname = ?" +
+        ")";
 
+    public static final String SELECT_DDL_CHANGES = "SELECT * FROM %s WHERE " + Common.COLNAME_ID + " > ? ORDER BY " + Common.COLNAME_ID;
+
+    public static final String SELECT_DDL_LOG_MAX_ID = "SELECT COALESCE(MAX(id), 0) AS " + Common.MAX + " FROM %s";
+
+    public static final String SET_REPLICA_IDENTITY_FULL = "ALTER TABLE %s REPLICA IDENTITY FULL";
+
+    public static final String SET_REPLICA_IDENTITY = "ALTER TABLE %s REPLICA IDENTITY %s";
+
+    public static final String CREATE_REPLICA_IDENTITY_TABLE =
+        "CREATE TABLE IF NOT EXISTS %s (" +
+            Common.COLNAME_TABLE_NAME + "        VARCHAR(100) PRIMARY KEY NOT NULL, " +
+            Common.COLNAME_REPLICA_IDENTITY + "  TEXT NOT NULL" +
+        ")";
+
+    public static final String DROP_REPLICA_IDENTITY_TABLE = "DROP TABLE IF EXISTS %s";
+
+    /**
+     * Stores the replica identity clause a table had before it was set to full, unless it was full already.
+     * The first stored clause is kept, so that preparing again doesn't overwrite it with the full identity set by Dbw.
+     */
+    public static final String SAVE_REPLICA_IDENTITY =
+        "INSERT INTO %s (" + Common.COLNAME_TABLE_NAME + ", " + Common.COLNAME_REPLICA_IDENTITY + ")" +
+        "    SELECT c.relname, CASE c.relreplident" +
+        "        WHEN 'n' THEN 'NOTHING'" +
+        "        WHEN 'i' THEN 'USING INDEX ' || quote_ident(i.relname)" +
+        "        ELSE 'DEFAULT' END" +
+        "    FROM pg_class c" +
+        "    JOIN pg_namespace n ON n.oid = c.relnamespace" +
+        "    LEFT JOIN pg_index x ON x.indrelid = c.oid AND x.indisreplident" +
+        "    LEFT JOIN pg_class i ON i.oid = x.indexrelid" +
+        "    WHERE n.nspname = ? AND c.relname = ? AND c.relreplident <> 'f'" +
+        "    ON CONFLICT (" + Common.COLNAME_TABLE_NAME + ") DO NOTHING";
+
+    public static final String SELECT_REPLICA_IDENTITIES =
+        "SELECT " + Common.COLNAME_TABLE_NAME + ", " + Common.COLNAME_REPLICA_IDENTITY + " FROM %s";
+
+    public static final String DELETE_REPLICA_IDENTITY = "DELETE FROM %s WHERE " + Common.COLNAME_TABLE_NAME + " = ?";
+
+    // Selects the tables of the audit triggers, including the per-operation ones with an _I, _U or _D suffix.
     public static final String SELECT_AUDIT_TRIGGERS =
-            "SELECT tgname AS item FROM pg_trigger WHERE NOT tgisinternal AND tgname LIKE '" + Common.DBW_PREFIX + "%" + Common.AUDIT_POSTFIX + "'";
+        "SELECT DISTINCT c.relname AS item FROM pg_trigger t" +
+        "    JOIN pg_class c ON c.oid = t.tgrelid" +
+        "    JOIN pg_namespace n ON n.oid = c.relnamespace" +
+        "    WHERE NOT t.tgisinternal AND n.nspname = ?" +
+        "    AND t.tgname ~ '^" + Common.DBW_PREFIX.toLowerCase() + ".+" + Common.AUDIT_POSTFIX.toLowerCase() + "(_[" +
+        Operation.INSERT.symbol.toLowerCase() + Operation.UPDATE.symbol.toLowerCase() + Operation.DELETE.symbol.toLowerCase() + "])?$'";
 
     public static final String SELECT_AUDIT_TABLE_MAX_ID = "SELECT COALESCE(MAX(id), 0) AS " + Common.MAX + " FROM " + Common.DBW_AUDIT_TABLE_NAME;
 
-    public static final String SELECT_LATEST_WITH_SECONDS =
-        "WITH latest_id AS " +
-        "(SELECT min(id) as " + Common.COLNAME_ID + " FROM " + Common.DBW_AUDIT_TABLE_NAME + " da " +
-        "WHERE da.\"timestamp\" > now() - make_interval(0,0,0,0,0,0,?)) " +
-        "SELECT COALESCE(max(id), 0) AS " + Common.COLNAME_ID + " FROM " + Common.DBW_AUDIT_TABLE_NAME + " da " +
-        "WHERE id < COALESCE((SELECT id FROM latest_id), (SELECT max(id) + 1 FROM " + Common.DBW_AUDIT_TABLE_NAME + "))";
+    private static final String SELECT_LATEST_WITH_SECONDS_TEMPLATE =
+        "SELECT COALESCE(min(id) - 1, (SELECT COALESCE(max(id), 0) FROM %1$s)) AS " + Common.COLNAME_ID + " FROM %1$s " +
+        "WHERE \"timestamp\" > now() - make_interval(0,0,0,0,0,0,?)";
+
+    public static final String SELECT_LATEST_WITH_SECONDS = String.format(SELECT_LATEST_WITH_SECONDS_TEMPLATE, Common.DBW_AUDIT_TABLE_NAME);
+
+    private static final String SELECT_AUDIT_RECORDS_COL_LIST = QueryHelper.buildColumnNameList(
+        Common.COLNAME_ID,
+        Common.COLNAME_TABLE_NAME,
+        Common.COLNAME_OLD_STATE,
+        Common.COLNAME_NEW_STATE,
+        Common.COLNAME_OPERATION,
+        Common.COLNAME_QUERY_HASH,
+        Common.COLNAME_TIMESTAMP,
+        Common.COLNAME_TRANSACTION_ID
+    );
+
+    public static final String SELECT_AUDIT_RECORDS =
+        "SELECT " + SELECT_AUDIT_RECORDS_COL_LIST + " FROM " + Common.DBW_AUDIT_TABLE_NAME + " WHERE id > ?";
+
+    public static final String SELECT_AUDIT_RECORDS_WITH_QUERY =
+        "SELECT " + SELECT_AUDIT_RECORDS_COL_LIST + ", " + Common.COLNAME_QUERY + " FROM " + Common.DBW_AUDIT_TABLE_NAME + " WHERE id > ?";
+
+    public static final String SELECT_ROW_HISTORY =
+        "SELECT " + SELECT_AUDIT_RECORDS_COL_LIST + " FROM " + Common.DBW_AUDIT_TABLE_NAME +
+        " WHERE " + Common.COLNAME_TABLE_NAME + " = ? AND " + Common.COLNAME_ROW_KEY + " = ?";
+
+    public static final String SELECT_ROW_HISTORY_WITH_QUERY =
+        "SELECT " + SELECT_AUDIT_RECORDS_COL_LIST + ", " + Common.COLNAME_QUERY + " FROM " + Common.DBW_AUDIT_TABLE_NAME +
+        " WHERE " + Common.COLNAME_TABLE_NAME + " = ? AND " + Common.COLNAME_ROW_KEY + " = ?";
+
+    public static final String ROW_HISTORY_PERIOD = " AND \"" + Common.COLNAME_TIMESTAMP + "\" > now() - make_interval(0,0,0,0,0,0,?)";
+
+    public static final String ORDER_BY_ID = " ORDER BY " + Common.COLNAME_ID;
+
+    public static final String SELECT_AUDIT_QUERIES =
+        "SELECT " + Common.COLNAME_HASH + ", " + Common.COLNAME_QUERY + " FROM " + Common.DBW_AUDIT_QUERY_TABLE_NAME +
+        " WHERE " + Common.COLNAME_HASH + " = ANY(?)";
+
+    // The margin is well above the refresh interval of the audit triggers, see SET_QUERY_HASH.
+    public static final String DELETE_ORPHANED_AUDIT_QUERIES =
+        "DELETE FROM " + Common.DBW_AUDIT_QUERY_TABLE_NAME + " q" +
+        " WHERE q." + Common.COLNAME_LAST_USED + " < CURRENT_TIMESTAMP - INTERVAL '10 minutes'" +
+        " AND NOT EXISTS (SELECT 1 FROM " + Common.DBW_AUDIT_TABLE_NAME + " a WHERE a." + Common.COLNAME_QUERY_HASH + " = q." + Common.COLNAME_HASH + ")";
+
+    // Empty slots of a ring buffer audit table have no ID.
+    public static final String COUNT_AUDIT_RECORDS = "SELECT COUNT(" + Common.COLNAME_ID + ") AS \"ROW_COUNT\" FROM " + Common.DBW_AUDIT_TABLE_NAME;
 
-    public static final String SELECT_AUDIT_RECORDS = "SELECT * FROM " + Common.DBW_AUDIT_TABLE_NAME + " WHERE id > ?";
+    public static final String SELECT_AUDIT_ID_SEQUENCE =
+        "SELECT pg_get_serial_sequence(?, '" + Common.COLNAME_ID + "') AS " + Common.ITEM;
 
-    public static final String COUNT_AUDIT_RECORDS = "SELECT COUNT(*) AS \"ROW_COUNT\" FROM " + Common.DBW_AUDIT_TABLE_NAME;
+    // The value the sequence will give next minus one, which is its last given value unless it has just been reset.
+    public static final String SELECT_SEQUENCE_LAST_VALUE =
+        "SELECT CASE WHEN is_called THEN last_value ELSE last_value - 1 END AS " + Common.MAX + " FROM %s";
 
     public static final String DELETE_ALL_AUDIT_RECORDS = "DELETE FROM " + Common.DBW_AUDIT_TABLE_NAME;
 
     public static final String DELETE_FIRST_N_AUDIT_RECORDS =
         "DELETE FROM " + Common.DBW_AUDIT_TABLE_NAME +
         " WHERE id = " +
-        "any(array(SELECT id FROM " + Common.DBW_AUDIT_TABLE_NAME + " ORDER BY timestamp LIMIT ?))";
+        "any(array(SELECT id FROM " + Common.DBW_AUDIT_TABLE_NAME + " WHERE id IS NOT NULL ORDER BY timestamp LIMIT ?))";
+
+    public static final String CREATE_SHADOW_SEQUENCE = "CREATE SEQUENCE IF NOT EXISTS %s";
+
+    public static final String DROP_SHADOW_SEQUENCE = "DROP SEQUENCE IF EXISTS %s";
+
+    /**
+     * The state columns are copied from the watched table. An update is stored as two rows sharing the ID of the change,
+     * the previous state ('O') and the new one ('N').
+     */
+    public static final String CREATE_SHADOW_TABLE =
+        "CREATE %sTABLE IF NOT EXISTS %s (" +
+            Common.COLNAME_SHADOW_ID + "            INTEGER NOT NULL, " +
+            Common.COLNAME_SHADOW_OPERATION + "     CHAR(1) NOT NULL, " +
+            Common.COLNAME_SHADOW_STATE + "         CHAR(1) NOT NULL, " +
+            Common.COLNAME_SHADOW_TIMESTAMP + "     TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL, " +
+            "LIKE %s" +
+        ")";
+
+    public static final String CREATE_SHADOW_ID_INDEX = "CREATE INDEX IF NOT EXISTS %s ON %s (" + Common.COLNAME_SHADOW_ID + ")";
+
+    public static final String DROP_SHADOW_TABLE = "DROP TABLE IF EXISTS %s";
+
+    public static final String SELECT_SHADOW_TABLES =
+        "SELECT table_name AS \"" + Common.ITEM + "\" FROM information_schema.tables" +
+        "    WHERE  table_schema = ?" +
+        "    AND    table_type   = 'BASE TABLE'" +
+        "    AND    table_name LIKE '" + Common.DBW_PREFIX.toLowerCase().replace("_", "\\_") + "%" +
+        Common.DBW_SHADOW_POSTFIX.toLowerCase().replace("_", "\\_") + "'";
+
+    public static final String CREATE_SHADOW_FUNCTION =
+        "CREATE OR REPLACE FUNCTION %s() RETURNS trigger AS " +
+        "$$" +
+        "DECLARE" +
+        "    v_id INTEGER := nextval('%s');" +
+        "    v_operation CHAR(1) := LEFT(TG_OP, 1);" +
+        "BEGIN" +
+        "    IF (TG_OP <> 'INSERT') THEN" +
+        "        INSERT INTO %s VALUES (v_id, v_operation, 'O', CURRENT_TIMESTAMP, OLD.*);" +
+        "    END IF;" +
+        "    IF (TG_OP <> 'DELETE') THEN" +
+        "        INSERT INTO %s VALUES (v_id, v_operation, 'N', CURRENT_TIMESTAMP, NEW.*);" +
+        "    END IF;" +
+        "    %s" +
+        "    RETURN NULL;" +
+        "END;" +
+        "$$" +
+        "LANGUAGE plpgsql";
+
+    /**
+     * A single row per change across all shadow tables, so that the audit record count, the maximum ID
+     * and the latest operations are found the same way as in the audit table.
+     */
+    public static final String CREATE_SHADOW_AUDIT_VIEW = "CREATE OR REPLACE VIEW %s AS %s";
+
+    public static final String SELECT_SHADOW_AUDIT_VIEW_PART =
+        "SELECT " + Common.COLNAME_SHADOW_ID + " AS " + Common.COLNAME_ID + ", " +
+        "%s::VARCHAR(100) AS " + Common.COLNAME_TABLE_NAME + ", " +
+        Common.COLNAME_SHADOW_OPERATION + " AS " + Common.COLNAME_OPERATION + ", " +
+        Common.COLNAME_SHADOW_TIMESTAMP + " AS \"" + Common.COLNAME_TIMESTAMP + "\"" +
+        " FROM %s WHERE " + Common.COLNAME_SHADOW_STATE + " = 'N' OR " + Common.COLNAME_SHADOW_OPERATION + " = 'D'";
+
+    public static final String UNION_ALL = " UNION ALL ";
+
+    public static final String DROP_SHADOW_AUDIT_VIEW = "DROP VIEW IF EXISTS %s";
+
+    public static final String SELECT_SHADOW_MAX_ID = "SELECT COALESCE(MAX(id), 0) AS " + Common.MAX + " FROM " + Common.DBW_SHADOW_AUDIT_VIEW_NAME;
+
+    public static final String SELECT_SHADOW_LATEST_WITH_SECONDS = String.format(SELECT_LATEST_WITH_SECONDS_TEMPLATE, Common.DBW_SHADOW_AUDIT_VIEW_NAME);
+
+    public static final String COUNT_SHADOW_RECORDS = "SELECT COUNT(*) AS \"ROW_COUNT\" FROM " + Common.DBW_SHADOW_AUDIT_VIEW_NAME;
+
+    public static final String SELECT_CHANGED_SHADOW_TABLES =
+        "SELECT DISTINCT " + Common.COLNAME_TABLE_NAME + " AS \"item\" FROM " + Common.DBW_SHADOW_AUDIT_VIEW_NAME + " WHERE id > ?";
+
+    public static final String SELECT_SHADOW_RECORDS = "SELECT * FROM %s WHERE " + Common.COLNAME_SHADOW_ID + " > ? ORDER BY " + Common.COLNAME_SHADOW_ID;
+
+    public static final String DELETE_ALL_SHADOW_RECORDS = "TRUNCATE %s";
+
+    /**
+     * Removes the first N changes from all shadow tables in a single statement.
+     */
+    public static final String DELETE_FIRST_N_SHADOW_RECORDS =
+        "WITH dbw_cutoff AS (SELECT MAX(id) AS id FROM (SELECT id FROM " + Common.DBW_SHADOW_AUDIT_VIEW_NAME + " ORDER BY id LIMIT ?) f)%s %s";
+
+    public static final String DELETE_SHADOW_RECORDS_TO_CUTOFF =
+        "DELETE FROM %s WHERE " + Common.COLNAME_SHADOW_ID + " <= (SELECT id FROM dbw_cutoff)";
+
+    public static final String DELETE_SHADOW_RECORDS_CTE = ", dbw_delete_%d AS (%s)";
+
+    public static final String SAMPLE_CONDITION = "random() * %d < 1";
+
+    /**
+     * Counted tables only get a row appended per statement, so concurrent writers never wait for each other.
+     */
+    public static final String CREATE_AUDIT_COUNTS_TABLE =
+        "CREATE %sTABLE IF NOT EXISTS %s (" +
+            Common.COLNAME_ID + "                SERIAL PRIMARY KEY NOT NULL, " +
+            Common.COLNAME_TABLE_NAME + "        VARCHAR(100) NOT NULL, " +
+            Common.COLNAME_OPERATION + "         CHAR(1) NOT NULL, " +
+            Common.COLNAME_ROW_COUNT + "         INTEGER NOT NULL, " +
+            Common.COLNAME_TIMESTAMP + "         TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL" +
+        ")";
+
+    public static final String DROP_AUDIT_COUNTS_TABLE = "DROP TABLE IF EXISTS %s";
+
+    public static final String CREATE_AUDIT_COUNT_FUNCTION =
+        "CREATE OR REPLACE FUNCTION %s() RETURNS trigger AS " +
+        "$$" +
+        "DECLARE" +
+        "    v_row_count INTEGER;" +
+        "BEGIN" +
+        "    IF (TG_OP = 'DELETE') THEN" +
+        "        SELECT COUNT(*) INTO v_row_count FROM " + Common.DBW_OLD_ROWS + ";" +
+        "    ELSE" +
+        "        SELECT COUNT(*) INTO v_row_count FROM " + Common.DBW_NEW_ROWS + ";" +
+        "    END IF;" +
+        "    IF (v_row_count > 0) THEN" +
+        "        INSERT INTO %s(" + Common.COLNAME_TABLE_NAME + ", " + Common.COLNAME_OPERATION + ", " + Common.COLNAME_ROW_COUNT + ")" +
+        "            VALUES (TG_TABLE_NAME::TEXT, LEFT(TG_OP, 1), v_row_count);" +
+        "        %s" +
+        "    END IF;" +
+        "    RETURN NULL;" +
+        "END;" +
+        "$$" +
+        "LANGUAGE plpgsql";
+
+    // The read counts are deleted by the same statement, so counts committed out of ID order aren't lost.
+    public static final String DELETE_AUDIT_COUNTS_RETURNING =
+        "WITH d AS (DELETE FROM " + Common.DBW_AUDIT_COUNTS_TABLE_NAME + " RETURNING *)" +
+        "SELECT " + Common.COLNAME_TABLE_NAME + ", " + Common.COLNAME_OPERATION + "," +
+        "       SUM(" + Common.COLNAME_ROW_COUNT + ") AS " + Common.COLNAME_ROW_COUNT + "," +
+        "       MIN(" + Common.COLNAME_TIMESTAMP + ") AS " + Common.COLNAME_FIRST_TIMESTAMP +
+        "    FROM d" +
+        "    GROUP BY " + Common.COLNAME_TABLE_NAME + ", " + Common.COLNAME_OPERATION;
+
+    public static final String EMPTY_SHADOW_AUDIT_VIEW =
+        "SELECT NULL::INTEGER AS " + Common.COLNAME_ID + ", NULL::VARCHAR(100) AS " + Common.COLNAME_TABLE_NAME + ", " +
+        "NULL::CHAR(1) AS " + Common.COLNAME_OPERATION + ", NULL::TIMESTAMP AS \"" + Common.COLNAME_TIMESTAMP + "\" WHERE FALSE";
 
 }
@@ -0,0 +1,81 @@
+package com.dbw.db.query;
+
+import com.dbw.db.Operation;
+import com.google.common.collect.Lists;
+
+import java.util.*;
+
+/**
+ * Builds row level audit trigger statements. Operations sharing the same WHEN condition are covered by a single
+ * trigger, otherwise every operation gets its own trigger, since a WHEN condition of an INSERT trigger can't
+ * reference OLD and that of a DELETE trigger can't reference NEW.
+ */
+public class AuditTriggerQueryBuilder {
+    private static final String OPERATION_DELIMITER = " OR ";
+    private static final String WHEN_CLAUSE = " WHEN (%s)";
+    private static final String UPDATE_OF_EVENT = "%s OF %s";
+
+    private final String template;
+    private final String tableName;
+    private final String tableNameWithSchema;
+    private final String functionName;
+    private final String functionArguments;
+    private final Map<Operation, String> whenConditions = new EnumMap<>(Operation.class);
+    private String updateOfColumns;
+
+    public AuditTriggerQueryBuilder(String template, String tableName, String tableNameWithSchema, String functionName, String functionArguments) {
+        this.template = template;
+        this.tableName = tableName;
+        this.tableNameWithSchema = tableNameWithSchema;
+        this.functionName = functionName;
+        this.functionArguments = functionArguments;
+    }
+
+    public AuditTriggerQueryBuilder when(Operation operation, String condition) {
+        whenConditions.merge(operation, condition, (current, added) -> "(" + current + ") AND (" + added + ")");
+        return this;
+    }
+
+    public AuditTriggerQueryBuilder updateOf(String columns) {
+        this.updateOfColumns = columns;
+        return this;
+    }
+
+    public List<String> build() {
+        List<String> queries = Lists.newArrayList();
+        if (new HashSet<>(getWhenConditions()).size() == 1) {
+            List<String> operationNames = Lists.newArrayList();
+            for (Operation operation : Operation.values()) {
+                operationNames.add(buildEvent(operation));
+            }
+            String triggerName = QueryHelper.buildAuditTriggerName(tableName);
+            queries.add(buildQuery(triggerName, String.join(OPERATION_DELIMITER, operationNames), whenConditions.get(Operation.INSERT)));
+            return queries;
+        }
+        for (Operation operation : Operation.values()) {
+            String triggerName = QueryHelper.buildAuditTriggerName(tableName, operation);
+            queries.add(buildQuery(triggerName, buildEvent(operation), whenConditions.get(operation)));
+        }
+        return queries;
+    }
+
+    private List<String> getWhenConditions() {
+        List<String> conditions = Lists.newArrayList();
+        for (Operation operation : Operation.values()) {
+            conditions.add(Optional.ofNullable(whenConditions.get(operation)).orElse(""));
+        }
+        return conditions;
+    }
+
+    private String buildEvent(Operation operation) {
+        if (operation.equals(Operation.UPDATE) && updateOfColumns != null) {
+            return String.format(UPDATE_OF_EVENT, operation.name(), updateOfColumns);
+        }
+        return operation.name();
+    }
+
+    private String buildQuery(String triggerName, String operations, String whenCondition) {
+        String whenClause = whenCondition == null ? "" : String.format(WHEN_CLAUSE, whenCondition);
+        return String.format(template, triggerName, operations, tableNameWithSchema, whenClause, functionName, functionArguments);
+    }
+}
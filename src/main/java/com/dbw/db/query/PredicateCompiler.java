@@ -0,0 +1,168 @@
+package com.dbw.db.query;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Compiles a table's capture predicate written against its column names, e.g. "tenant_id IN (1, 2) AND NOT archived",
+ * into a trigger condition in which the columns are qualified with the given row reference, e.g. NEW.tenant_id.
+ * Only literals, operators, parentheses, calls of a set of built-in functions and a small set of keywords are allowed.
+ */
+public class PredicateCompiler {
+    private final static Set<String> KEYWORDS = ImmutableSet.of(
+            "AND", "OR", "NOT", "IN", "IS", "NULL", "TRUE", "FALSE", "LIKE", "ILIKE", "BETWEEN",
+            "DISTINCT", "FROM", "CASE", "WHEN", "THEN", "ELSE", "END", "ESCAPE"
+    );
+    // Functions without parentheses, which would otherwise be taken for column names.
+    private final static Set<String> NILADIC_FUNCTIONS = ImmutableSet.of(
+            "CURRENT_DATE", "CURRENT_TIME", "CURRENT_TIMESTAMP", "LOCALTIME", "LOCALTIMESTAMP",
+            "CURRENT_USER", "SESSION_USER", "SYSDATE", "SYSTIMESTAMP"
+    );
+    // Functions available in the trigger conditions of both databases which neither read other tables nor have side effects.
+    private final static Set<String> ALLOWED_FUNCTIONS = ImmutableSet.of(
+            "LOWER", "UPPER", "TRIM", "LTRIM", "RTRIM", "LENGTH", "SUBSTR", "REPLACE", "COALESCE", "NULLIF",
+            "ABS", "ROUND", "TRUNC", "FLOOR", "CEIL", "MOD", "GREATEST", "LEAST", "TO_CHAR", "TO_NUMBER", "TO_DATE"
+    );
+    private final static Set<String> FORBIDDEN_KEYWORDS = ImmutableSet.of("SELECT", "EXISTS");
+    private final static String OPERATOR_CHARACTERS = "=<>!+-*/%|:(),.";
+
+    private final String predicate;
+    private final Set<String> columnNames = new LinkedHashSet<>();
+
+    public PredicateCompiler(String predicate) {
+        this.predicate = predicate;
+    }
+
+    public String compile(String rowReference) {
+        columnNames.clear();
+        StringBuilder compiled = new StringBuilder();
+        int position = 0;
+        while (position < predicate.length()) {
+            char c = predicate.charAt(position);
+            if (Character.isWhitespace(c)) {
+                compiled.append(' ');
+                position++;
+            } else if (c == '\'') {
+                int end = findClosingQuote(position, '\'');
+                compiled.append(predicate, position, end);
+                position = end;
+            } else if (c == '"') {
+                int end = findClosingQuote(position, '"');
+                String columnName = predicate.substring(position + 1, end - 1).replace("\"\"", "\"");
+                columnNames.add(columnName);
+                compiled.append(rowReference).append('.').append(predicate, position, end);
+                position = end;
+            } else if (Character.isDigit(c)) {
+                int end = findNumberEnd(position);
+                compiled.append(predicate, position, end);
+                position = end;
+            } else if (Character.isLetter(c) || c == '_') {
+                int end = position;
+                while (end < predicate.length() && isIdentifierPart(predicate.charAt(end))) {
+                    end++;
+                }
+                if (end < predicate.length() && predicate.charAt(end) == '.') {
+                    throw new IllegalArgumentException(String.format("Qualified names are not allowed in a predicate: %s", predicate));
+                }
+                String word = predicate.substring(position, end);
+                compiled.append(compileWord(word, end, rowReference));
+                position = end;
+            } else if (OPERATOR_CHARACTERS.indexOf(c) >= 0) {
+                if (predicate.startsWith("--", position) || predicate.startsWith("/*", position)) {
+                    throw new IllegalArgumentException(String.format("Comments are not allowed in a predicate: %s", predicate));
+                }
+                compiled.append(c);
+                position++;
+            } else {
+                throw new IllegalArgumentException(String.format("Unexpected character '%s' at position %d of predicate: %s", c, position, predicate));
+            }
+        }
+        return compiled.toString().trim();
+    }
+
+    /**
+     * Names of the columns referenced by the predicate, available after it's been compiled.
+     */
+    public Set<String> getColumnNames() {
+        return columnNames;
+    }
+
+    private String compileWord(String word, int end, String rowReference) {
+        String upperCaseWord = word.toUpperCase();
+        if (FORBIDDEN_KEYWORDS.contains(upperCaseWord)) {
+            throw new IllegalArgumentException(String.format("Subqueries are not allowed in a predicate: %s", predicate));
+        }
+        if (KEYWORDS.contains(upperCaseWord) || NILADIC_FUNCTIONS.contains(upperCaseWord) || isTypeCast(end - word.length())) {
+            return word;
+        }
+        if (isFunctionCall(end)) {
+            if (!ALLOWED_FUNCTIONS.contains(upperCaseWord)) {
+                throw new IllegalArgumentException(String.format("Function %s is not allowed in a predicate: %s", word, predicate));
+            }
+            return word;
+        }
+        columnNames.add(word);
+        return rowReference + "." + word;
+    }
+
+    /**
+     * Digits with an optional fraction and exponent, e.g. 42, 1.5 or 1e-5.
+     */
+    private int findNumberEnd(int start) {
+        int position = skipDigits(start);
+        if (position < predicate.length() && predicate.charAt(position) == '.') {
+            position = skipDigits(position + 1);
+        }
+        if (position < predicate.length() && Character.toUpperCase(predicate.charAt(position)) == 'E') {
+            int exponentStart = position + 1;
+            if (exponentStart < predicate.length() && (predicate.charAt(exponentStart) == '+' || predicate.charAt(exponentStart) == '-')) {
+                exponentStart++;
+            }
+            if (exponentStart < predicate.length() && Character.isDigit(predicate.charAt(exponentStart))) {
+                position = skipDigits(exponentStart);
+            }
+        }
+        return position;
+    }
+
+    private int skipDigits(int start) {
+        int position = start;
+        while (position < predicate.length() && Character.isDigit(predicate.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private boolean isFunctionCall(int wordEnd) {
+        int position = wordEnd;
+        while (position < predicate.length() && Character.isWhitespace(predicate.charAt(position))) {
+            position++;
+        }
+        return position < predicate.length() && predicate.charAt(position) == '(';
+    }
+
+    private boolean isTypeCast(int wordStart) {
+        return predicate.substring(0, wordStart).trim().endsWith("::");
+    }
+
+    private boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private int findClosingQuote(int start, char quote) {
+        int position = start + 1;
+        while (position < predicate.length()) {
+            if (predicate.charAt(position) == quote) {
+                if (position + 1 < predicate.length() && predicate.charAt(position + 1) == quote) {
+                    position += 2;
+                    continue;
+                }
+                return position + 1;
+            }
+            position++;
+        }
+        throw new IllegalArgumentException(String.format("Unterminated %s in predicate: %s", quote == '\'' ? "string literal" : "quoted identifier", predicate));
+    }
+}
@@ -1,6 +1,10 @@
 package com.dbw.db.query;
 
 import com.dbw.db.Common;
+import com.dbw.db.Operation;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class QueryHelper {
 
@@ -8,8 +12,39 @@ public class QueryHelper {
         return String.join(Common.COMMA_DELIMITER, columnNames);
     }
 
+    public static String buildStringLiteralList(List<String> values) {
+        List<String> literals = new ArrayList<>();
+        for (String value : values) {
+            literals.add(Common.SINGLE_QUOTE + value.replace(Common.SINGLE_QUOTE, Common.SINGLE_QUOTE + Common.SINGLE_QUOTE) + Common.SINGLE_QUOTE);
+        }
+        return String.join(Common.COMMA_DELIMITER, literals);
+    }
+
+    public static String buildQuotedIdentifierList(String prefix, List<String> identifiers) {
+        List<String> quotedIdentifiers = new ArrayList<>();
+        for (String identifier : identifiers) {
+            quotedIdentifiers.add(prefix + Common.DOUBLE_QUOTE + identifier.replace(Common.DOUBLE_QUOTE, Common.DOUBLE_QUOTE + Common.DOUBLE_QUOTE) + Common.DOUBLE_QUOTE);
+        }
+        return String.join(Common.COMMA_DELIMITER, quotedIdentifiers);
+    }
+
+    /**
+     * Builds a PostgreSQL array literal, e.g. {"a","b"}.
+     */
+    public static String buildArrayLiteral(List<String> values) {
+        List<String> elements = new ArrayList<>();
+        for (String value : values) {
+            elements.add(Common.DOUBLE_QUOTE + value.replace("\\", "\\\\").replace(Common.DOUBLE_QUOTE, "\\" + Common.DOUBLE_QUOTE) + Common.DOUBLE_QUOTE);
+        }
+        return "{" + String.join(",", elements) + "}";
+    }
+
     public static String buildAuditTriggerName(String tableName) {
         return String.format(Common.DBW_PREFIX + "%s" + Common.AUDIT_POSTFIX, tableName);
     }
+
+    public static String buildAuditTriggerName(String tableName, Operation operation) {
+        return buildAuditTriggerName(tableName) + "_" + operation.symbol;
+    }
     
 }
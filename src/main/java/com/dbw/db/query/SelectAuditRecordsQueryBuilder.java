@@ -4,19 +4,42 @@ import com.dbw.app.App;
 import com.dbw.db.Common;
 import com.google.common.collect.Lists;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class SelectAuditRecordsQueryBuilder {
+    private final static String ID_IN_CLAUSE = "AND " + Common.COLNAME_ID + " IN (%s)";
+
     private final String base;
+    private Collection<Integer> ids;
+    private boolean allTables;
 
     public SelectAuditRecordsQueryBuilder(String base) {
         this.base = base;
     }
 
+    public SelectAuditRecordsQueryBuilder ids(Collection<Integer> ids) {
+        this.ids = ids;
+        return this;
+    }
+
+    /**
+     * Leaves out the tables option filter, e.g. so that the IDs of records of the filtered out tables don't stay open gaps.
+     */
+    public SelectAuditRecordsQueryBuilder allTables() {
+        this.allTables = true;
+        return this;
+    }
+
     public String build() {
         List<String> parts = Lists.newArrayList();
         parts.add(base);
-        if (App.options.getTables().isPresent()) {
+        if (ids != null) {
+            String idList = ids.stream().map(String::valueOf).collect(Collectors.joining(Common.COMMA_DELIMITER));
+            parts.add(String.format(ID_IN_CLAUSE, idList));
+        }
+        if (!allTables && App.options.getTables().isPresent()) {
             String inClause = new InClauseBuilder(Common.COLNAME_TABLE_NAME, App.options.getTables().get()).build();
             parts.add(inClause);
         }
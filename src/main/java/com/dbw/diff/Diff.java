@@ -1,10 +1,9 @@
 package com.dbw.diff;
 
 import com.dbw.db.Operation;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
 
-import java.sql.SQLException;
 import java.util.Map;
 import java.util.Set;
 
@@ -12,16 +11,14 @@ public abstract class Diff {
     private Map<String, Object> oldState;
     private Map<String, Object> newState;
 
-    public void parseOldData(String oldData) throws JsonProcessingException, SQLException  {
-        oldState = parseData(oldData);
+    protected void setOldState(Map<String, Object> oldState) {
+        this.oldState = oldState;
     }
 
-    public void parseNewData(String newData) throws JsonProcessingException, SQLException  {
-        newState = parseData(newData);
+    protected void setNewState(Map<String, Object> newState) {
+        this.newState = newState;
     }
 
-    protected abstract Map<String, Object> parseData(String data) throws JsonProcessingException, SQLException;
-    
     public Map<String, Object> getOldState() {
         return ImmutableMap.copyOf(oldState);
     }
@@ -33,6 +30,8 @@ public abstract class Diff {
     public Set<String> getStateColumnNames(Operation operation) {
         if (operation.equals(Operation.INSERT)) {
             return getNewState().keySet();
+        } else if (operation.equals(Operation.UPDATE)) {
+            return Sets.union(getOldState().keySet(), getNewState().keySet());
         } else {
             return getOldState().keySet();
         }
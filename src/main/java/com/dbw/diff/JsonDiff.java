@@ -1,32 +1,72 @@
 package com.dbw.diff;
 
 import com.dbw.db.Common;
+import com.dbw.db.Database;
+import com.dbw.db.Postgres;
+import com.dbw.err.UnrecoverableException;
+import com.dbw.log.ErrorMessages;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 
+import java.sql.SQLException;
 import java.util.*;
 
-public class JsonDiff extends Diff {
-    private final String[] tableColumnNames;
+public class JsonDiff extends ParsedDiff {
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+    private final static String POSITIONAL_KEY_PREFIX = "f";
 
-    public JsonDiff(String[] tableColumnNames) {
-        this.tableColumnNames = tableColumnNames;
+    private final Database db;
+    private final String tableName;
+
+    public JsonDiff(Database db, String tableName) {
+        this.db = db;
+        this.tableName = tableName;
     }
 
-    protected Map<String, Object> parseData(String data) throws JsonProcessingException {
-        Map<String, Object> parsedData = new LinkedHashMap<>();
+    protected Map<String, Object> parseData(String data) throws JsonProcessingException, SQLException {
         if (Strings.isNullOrEmpty(data)) {
-            return ImmutableMap.copyOf(parsedData);
+            return ImmutableMap.of();
+        }
+        Map<String, Object> parsedJson = MAPPER.readValue(data, LinkedHashMap.class);
+        if (db instanceof Postgres && !parsedJson.isEmpty() && hasPositionalKeys(parsedJson)) {
+            return mapByPosition(parsedJson);
+        }
+        ImmutableMap.Builder<String, Object> parsedData = ImmutableMap.builder();
+        for (Map.Entry<String, Object> column : parsedJson.entrySet()) {
+            parsedData.put(column.getKey(), Optional.ofNullable(column.getValue()).orElse(Common.NULL_AS_STRING));
+        }
+        return parsedData.build();
+    }
+
+    private boolean hasPositionalKeys(Map<String, Object> parsedJson) {
+        int position = 1;
+        for (String key : parsedJson.keySet()) {
+            if (!key.equals(POSITIONAL_KEY_PREFIX + position++)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Audit records written before the state columns were name-keyed hold ROW_TO_JSON(ROW(...)) payloads
+     * with f1..fN keys, which can only be matched against the table's columns in catalog order.
+     */
+    private Map<String, Object> mapByPosition(Map<String, Object> parsedJson) throws SQLException {
+        String[] tableColumnNames = ((Postgres) db).getWatchedTablesColumnNames().get(tableName);
+        if (tableColumnNames == null || tableColumnNames.length == 0) {
+            String errMsg = String.format(ErrorMessages.TABLE_NOT_FOUND_IN_SCHEMA, tableName, db.getDbConfig().getSchema());
+            new UnrecoverableException("StateDataProcessing", errMsg).handle();
         }
-        Map<String, Object> parsedJson = new ObjectMapper().readValue(data, LinkedHashMap.class);
-        List<Object> parsedJsonValues = new ArrayList<>(parsedJson.values());
-        for (short i = 0; i < tableColumnNames.length; i++) {
-            Object columnStateValue = Optional.ofNullable(parsedJsonValues.get(i)).orElse(Common.NULL_AS_STRING);
+        ImmutableMap.Builder<String, Object> parsedData = ImmutableMap.builder();
+        Iterator<Object> parsedJsonValues = parsedJson.values().iterator();
+        for (short i = 0; i < tableColumnNames.length && parsedJsonValues.hasNext(); i++) {
+            Object columnStateValue = Optional.ofNullable(parsedJsonValues.next()).orElse(Common.NULL_AS_STRING);
             parsedData.put(tableColumnNames[i], columnStateValue);
         }
-        return ImmutableMap.copyOf(parsedData);
+        return parsedData.build();
     }
 
 }
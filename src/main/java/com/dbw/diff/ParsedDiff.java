@@ -0,0 +1,23 @@
+package com.dbw.diff;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * A diff of row states serialized by the audit triggers, which have to be parsed back.
+ */
+public abstract class ParsedDiff extends Diff {
+
+    public void parseOldData(String oldData) throws JsonProcessingException, SQLException  {
+        setOldState(parseData(oldData));
+    }
+
+    public void parseNewData(String newData) throws JsonProcessingException, SQLException  {
+        setNewState(parseData(newData));
+    }
+
+    protected abstract Map<String, Object> parseData(String data) throws JsonProcessingException, SQLException;
+
+}
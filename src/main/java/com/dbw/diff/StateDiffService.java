@@ -3,14 +3,13 @@ package com.dbw.diff;
 import com.dbw.app.ObjectCreator;
 import com.dbw.db.*;
 import com.dbw.err.RecoverableException;
-import com.dbw.err.RecoverableException;
-import com.dbw.err.UnrecoverableException;
-import com.dbw.log.ErrorMessages;
 import com.dbw.output.OutputBuilder;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.base.Strings;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.text.DateFormat;
@@ -22,6 +21,7 @@ import java.util.List;
 @Singleton
 public class StateDiffService implements DiffService {
     private final String DATE_FMT = "MM.dd.yyyy HH:mm:ss";
+    private final String JSON_STATE_START = "{";
 
     @Inject
     private TableDiffBuilder tableDiffBuilder;
@@ -29,14 +29,12 @@ public class StateDiffService implements DiffService {
     private ColumnDiffBuilder columnDiffBuilder;
 
     public Diff createDiff(Database db, AuditRecord auditRecord) throws RecoverableException, SQLException {
-        Diff diff;
-        if (db instanceof Postgres) {
-            String[] tableColumnNames = ((Postgres)db).getWatchedTablesColumnNames().get(auditRecord.getTableName());
-            if (tableColumnNames.length == 0) {
-                String errMsg = String.format(ErrorMessages.TABLE_NOT_FOUND_IN_SCHEMA, auditRecord.getTableName(), db.getDbConfig().getSchema());
-                new UnrecoverableException("StateDataProcessing", errMsg).handle();
-            }
-            diff = new JsonDiff(tableColumnNames);
+        if (auditRecord.hasTypedStates()) {
+            return new TypedDiff(auditRecord.getOldState(), auditRecord.getNewState());
+        }
+        ParsedDiff diff;
+        if (db instanceof Postgres || isJsonState(auditRecord)) {
+            diff = new JsonDiff(db, auditRecord.getTableName());
         } else {
             diff = ObjectCreator.create(XmlDiff.class);
         }
@@ -50,6 +48,14 @@ public class StateDiffService implements DiffService {
         return diff;
     }
 
+    /**
+     * Oracle states are written either as XML or as JSON, depending on the state format the trigger was generated with.
+     */
+    private boolean isJsonState(AuditRecord auditRecord) {
+        String data = Strings.isNullOrEmpty(auditRecord.getNewData()) ? auditRecord.getOldData() : auditRecord.getNewData();
+        return data != null && data.trim().startsWith(JSON_STATE_START);
+    }
+
     private void validateStateData(AuditRecord auditRecord) throws RecoverableException {
         StateDataValidator.ValidationResult result =
                 StateDataValidator.isOldStateNullOrEmpty()
@@ -111,6 +117,10 @@ public class StateDiffService implements DiffService {
             return df.format((Date)value);
         } else if (value instanceof ArrayList) {
             return String.join(Common.COMMA_DELIMITER, (ArrayList)value);
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal)value).toPlainString();
+        } else if (value != null && !(value instanceof String)) {
+            return String.valueOf(value);
         }
         return (String)value;
     }
@@ -0,0 +1,18 @@
+package com.dbw.diff;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Holds row states read from typed shadow table columns, so there's no data to parse.
+ */
+public class TypedDiff extends Diff {
+
+    public TypedDiff(Map<String, Object> oldState, Map<String, Object> newState) {
+        setOldState(Optional.ofNullable(oldState).orElse(ImmutableMap.of()));
+        setNewState(Optional.ofNullable(newState).orElse(ImmutableMap.of()));
+    }
+
+}
@@ -15,7 +15,7 @@ import java.util.Map;
 import java.util.Optional;
 
 @Singleton
-public class XmlDiff extends Diff {
+public class XmlDiff extends ParsedDiff {
     @Inject
     private HtmlInXmlEscaper htmlInXmlEscaper;
     
@@ -33,10 +33,18 @@ public class AuditFrame {
         this.auditRecord = auditRecord;
     }
 
+    public Database getDb() {
+        return db;
+    }
+
     public void setDb(Database db) {
         this.db = db;
     }
 
+    public int getFrameNo() {
+        return frameNo;
+    }
+
     public void setFrameNo(int frameNo) {
         this.frameNo = frameNo;
     }
@@ -0,0 +1,60 @@
+package com.dbw.frame;
+
+import com.dbw.db.AuditRecord;
+import com.dbw.db.Database;
+import com.dbw.db.Operation;
+import com.dbw.output.OutputBuilder;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A summary line standing in for a transaction that exceeded the maximum transaction size.
+ * The operations are only counted, no diffs are created for them.
+ */
+public class CollapsedTransactionFrame extends AuditFrame implements OutputBuilder {
+    private static final String TRANSACTION_HEADER = "Transaction";
+    private static final String COLLAPSED_OPERATIONS_FORMAT = "%d operations collapsed";
+    private static final String TABLE_OPERATIONS_FORMAT = "%s: %s";
+    private static final String OPERATION_COUNT_FORMAT = "%s %d";
+    private static final String OPERATION_COUNT_DELIMITER = ", ";
+
+    private final int operationCount;
+    private final Map<String, Map<Operation, Integer>> tableOperationCounts = new TreeMap<>();
+
+    public CollapsedTransactionFrame(Database db, List<AuditRecord> transaction) {
+        setDb(db);
+        setAuditRecord(transaction.get(0));
+        operationCount = transaction.size();
+        for (AuditRecord auditRecord : transaction) {
+            tableOperationCounts
+                    .computeIfAbsent(auditRecord.getTableName(), tableName -> new EnumMap<>(Operation.class))
+                    .merge(auditRecord.getOperation(), 1, Integer::sum);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(FRAME_HEADER_NO);
+        builder.append(PADDING);
+        builder.append(getFrameNo());
+        appendColumn(builder, TRANSACTION_HEADER + PADDING + getAuditRecord().getTransactionId());
+        appendColumn(builder, getDb().getDbConfig().getName());
+        appendColumn(builder, getAuditRecord().getFormattedTimestamp());
+        appendColumn(builder, String.format(COLLAPSED_OPERATIONS_FORMAT, operationCount));
+        for (Map.Entry<String, Map<Operation, Integer>> operationCounts : tableOperationCounts.entrySet()) {
+            StringBuilder counts = new StringBuilder();
+            for (Map.Entry<Operation, Integer> operationCount : operationCounts.getValue().entrySet()) {
+                if (counts.length() > 0) {
+                    counts.append(OPERATION_COUNT_DELIMITER);
+                }
+                counts.append(String.format(OPERATION_COUNT_FORMAT, operationCount.getKey().name(), operationCount.getValue()));
+            }
+            appendColumn(builder, String.format(TABLE_OPERATIONS_FORMAT, operationCounts.getKey(), counts));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,45 @@
+package com.dbw.frame;
+
+import com.dbw.cfg.DatabaseConfig;
+import com.dbw.db.Operation;
+import com.dbw.output.OutputBuilder;
+import com.dbw.util.TimeDiffUtils;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A rate line of a counted table, i.e. the number of rows affected by each operation over a period of time.
+ */
+public class CountFrame implements OutputBuilder {
+    private static final String COUNTS_HEADER = "Counts";
+    private static final String ROW_COUNT_FORMAT = "%s: %d (%.1f/s)";
+    private static final double MILLIS_IN_SECOND = 1000.0;
+
+    private final DatabaseConfig dbConfig;
+    private final String tableName;
+    private final Map<Operation, Long> rowCounts;
+    private final long periodInMillis;
+
+    public CountFrame(DatabaseConfig dbConfig, String tableName, Map<Operation, Long> rowCounts, long periodInMillis) {
+        this.dbConfig = dbConfig;
+        this.tableName = tableName;
+        this.rowCounts = rowCounts;
+        this.periodInMillis = periodInMillis;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(COUNTS_HEADER);
+        appendColumn(builder, dbConfig.getName());
+        appendColumn(builder, tableName);
+        appendColumn(builder, TimeDiffUtils.getTimeFormattedDiff(periodInMillis));
+        double periodInSeconds = Math.max(periodInMillis, 1) / MILLIS_IN_SECOND;
+        for (Map.Entry<Operation, Long> rowCount : rowCounts.entrySet()) {
+            double rate = rowCount.getValue() / periodInSeconds;
+            appendColumn(builder, String.format(Locale.ROOT, ROW_COUNT_FORMAT, rowCount.getKey().name(), rowCount.getValue(), rate));
+        }
+        return builder.toString();
+    }
+}
@@ -12,11 +12,37 @@ public class ErrorMessages extends Messages {
     public final static String CFG_BOTH_OP_SETTINGS_NOT_DECLARED = "Config error. Operations minimum and limit have to both be declared.";
     public final static String CFG_OP_SETTINGS_LT_ZERO = "Config error. Operations minimum and limit have to greater than zero.";
     public final static String CFG_OP_SETTINGS_MIN_GT_LIMIT = "Config error. Operations limit has to be greater than the minimum.";
+    public final static String CFG_UNKNOWN_CAPTURE_MODE = "Config error. %s: Unknown capture mode.";
+    public final static String CFG_CAPTURE_MODE_NOT_SUPPORTED = "Config error. %s: The chosen capture mode is supported only for PostgreSQL databases.";
+    public final static String CFG_NOTIFICATIONS_NOT_SUPPORTED = "Config error. %s: Notifications are supported only for PostgreSQL databases in the trigger based capture modes.";
+    public final static String CFG_CHANGED_COLUMNS_ONLY_NOT_SUPPORTED = "Config error. %s: The changedColumnsOnly setting is supported only for PostgreSQL databases in the row and statement capture modes.";
+    public final static String CFG_UNLOGGED_AUDIT_TABLE_NOT_SUPPORTED = "Config error. %s: The unloggedAuditTable setting is supported only for PostgreSQL databases.";
+    public final static String CFG_AUDIT_TABLE_PARTITIONING_NOT_SUPPORTED = "Config error. %s: The auditTablePartitionSize setting is supported only for PostgreSQL databases in the row and statement capture modes.";
+    public final static String CFG_AUDIT_TABLE_PARTITION_SIZE_LT_ZERO = "Config error. %s: Audit table partition size has to be greater than zero.";
+    public final static String CFG_AUDIT_TABLE_PARTITION_SIZE_GT_OP_RANGE = "Config error. %s: Audit table partition size can't be greater than the difference between the operations limit and minimum, otherwise no partition can be dropped.";
+    public final static String CFG_AUDIT_TABLE_SHARDING_NOT_SUPPORTED = "Config error. %s: The auditTableShards setting is supported only for PostgreSQL databases in the row and statement capture modes and can't be combined with auditTablePartitionSize.";
+    public final static String CFG_AUDIT_TABLE_SHARDS_LT_ZERO = "Config error. %s: The number of audit table shards has to be greater than zero.";
+    public final static String CFG_RING_BUFFER_AUDIT_TABLE_NOT_SUPPORTED = "Config error. %s: The ringBufferAuditTable setting is supported only for PostgreSQL databases in the row and statement capture modes. It requires the operations settings and can't be combined with auditTablePartitionSize or auditTableShards.";
+    public final static String CFG_UNKNOWN_STATE_FORMAT = "Config error. %s: Unknown state format.";
+    public final static String CFG_STATE_FORMAT_NOT_SUPPORTED = "Config error. %s: The stateFormat setting is supported only for Oracle databases.";
+    public final static String CFG_MAX_COLUMN_VALUE_BYTES_NOT_SUPPORTED = "Config error. %s: The maxColumnValueBytes setting is supported only in the row and statement capture modes.";
+    public final static String CFG_MAX_COLUMN_VALUE_BYTES_LT_ZERO = "Config error. %s: Maximum column value bytes have to be greater than zero.";
+    public final static String CFG_COLUMN_FILTERS_NOT_SUPPORTED = "Config error. %s: Column lists of tables are supported only in the row and statement capture modes.";
+    public final static String CFG_BOTH_COLUMN_FILTERS_DECLARED = "Config error. %s: A table can have either the columns or the excludeColumns list declared, not both.";
+    public final static String CFG_PREDICATES_NOT_SUPPORTED = "Config error. %s: Table where predicates are supported only in the row and shadow capture modes.";
+    public final static String CFG_UNKNOWN_CAPTURE_LEVEL = "Config error. %s: Unknown table capture level. Use one of: counts, sampled, full.";
+    public final static String CFG_COUNTS_CAPTURE_NOT_SUPPORTED = "Config error. %s: The counts capture level is supported only for PostgreSQL databases in the trigger based capture modes.";
+    public final static String CFG_SAMPLED_CAPTURE_NOT_SUPPORTED = "Config error. %s: The sampled capture level is supported only in the row and shadow capture modes.";
+    public final static String CFG_GAP_TIMEOUT_LT_ZERO = "Config error. %s: The gap timeout must not be less than zero.";
+    public final static String CFG_SAMPLE_EVERY_LT_ZERO = "Config error. %s: A sampled table has to have sampleEvery declared and greater than zero.";
+    public final static String CFG_INVALID_PREDICATE = "Config error. %s: A table where predicate is invalid. Only column names, literals, operators and function calls are allowed.";
     public final static String CLI_INVALID_DELETE_N_ROWS = addCliFlagInfo(Opts.DELETE_FIRST_N_ROWS) + "Invalid value. It has to be either a number or an asterisk.";
+    public final static String CLI_INVALID_HISTORY = addCliFlagInfo(Opts.HISTORY) + "Invalid value. It has to be a table name and a primary key value separated with a colon.";
     public final static String CLI_INVALID_INTERVAL_SMALL = addCliFlagInfo(Opts.INTERVAL) + "The interval is too small. It cannot be less than 10 milliseconds.";
     public final static String CLI_INVALID_INTERVAL_BIG = addCliFlagInfo(Opts.INTERVAL) + "The interval is too big. You probably don't want it to be bigger than 10 seconds.";
     public final static String CLI_INVALID_MAX_COLUMN_WIDTH = addCliFlagInfo(Opts.MAX_COL_WIDTH) + "Maximum column width has to be greater than 3.";
     public final static String CLI_INVALID_MAX_ROW_WIDTH = addCliFlagInfo(Opts.MAX_ROW_WIDTH) + "Maximum row width has to be greater than 10.";
+    public final static String CLI_INVALID_MAX_TRANSACTION_SIZE = addCliFlagInfo(Opts.MAX_TRANSACTION_SIZE) + "Maximum transaction size has to be greater than 0.";
     public final static String CLI_INVALID_LATEST_OP = addCliFlagInfo(Opts.LATEST) + "Latest operations option value is invalid.";
     public final static String CLI_ONE_OFF_NO_LASTEST_OP = addCliFlagInfo(Opts.ONE_OFF) + "This flag has to be used together with the -" + Opts.LATEST + " flag, which specifies the number or time of the latest operations to display.";
     public final static String CLI_PURGE = addCliFlagInfo(Opts.PURGE) + "Errors occurred while deleting database objects.";
@@ -28,9 +54,20 @@ public class ErrorMessages extends Messages {
     public final static String INPUT_OUT_OF_BOUNDS = "Invalid input. Number out of list bounds.";
     public final static String CONFIG_NO_YML_FILES = "No YML files found in the current directory. Create a config file in the current directory, start the application from a directory with a config file or use the \"c\" flag to specify the config file's path";
     public final static String CREATE_AUDIT_TABLE = "Failed to create an audit table. (%s)";
+    public final static String STATEMENT_CAPTURE_UNSUPPORTED = "The statement capture mode requires PostgreSQL 10 or later. Found version %d.";
+    public final static String COUNTS_CAPTURE_UNSUPPORTED = "The counts capture level requires PostgreSQL 10 or later. Found version %d.";
+    public final static String JSON_STATE_FORMAT_UNSUPPORTED = "The json state format requires Oracle Database 18c or later. Found version %d.";
+    public final static String PARTITIONED_AUDIT_TABLE_UNSUPPORTED = "A partitioned or sharded audit table requires PostgreSQL 11 or later. Found version %d.";
+    public final static String CREATE_AUDIT_PARTITIONS = "Failed to create audit table partitions. (%s)";
+    public final static String PREDICATE_UNKNOWN_COLUMN = "Column \"%s\" used in the where predicate of table \"%s\" doesn't exist.";
+    public final static String COLUMN_FILTER_UNKNOWN_COLUMN = "Column \"%s\" listed in the column filter of table \"%s\" doesn't exist.";
+    public final static String COLUMN_FILTER_NO_COLUMNS = "The column filter of table \"%s\" leaves no columns to capture.";
+    public final static String CREATE_SHADOW_TABLE = "Failed to create a shadow table for \"%s\" table. (%s)";
     public final static String CREATE_AUDIT_TRIGGER = "Failed to create an audit trigger for \"%s\" table. (%s)";
+    public final static String CREATE_DDL_TRIGGER = "Failed to create the DDL trigger. Audit triggers of tables altered while watching won't be regenerated until the config changes. (%s)";
     public final static String CACHE_PERSIST_FAILED = "Saving cache to dbw.cache file failed.";
     public final static String OP_LIMIT_REACHED_DELETE_ATTEMPT = "An SQL error occurred when attempting to delete the first %d rows in the audit table after the limit has been reached.";
+    public final static String OP_LIMIT_REACHED_DROP_PARTITIONS_ATTEMPT = "An SQL error occurred when attempting to drop audit table partitions with records older than ID %d after the limit has been reached. (%s)";
     public final static String TABLE_NOT_FOUND_IN_SCHEMA = "Table %s doesn't exist in schema %s.";
     public final static String WATCHER_INTERRUPT = "One of the watcher threads has been terminated.";
 }
@@ -16,8 +16,23 @@ public class LogMessages extends Messages {
     public final static String NUMBER_OF_LATEST_OP = addCliFlagInfo(Opts.LATEST) + "%d database operations found in the last %s.";
     public final static String AUDIT_TABLE_CREATED = "Audit table has been created.";
     public final static String AUDIT_TABLE_DROPPED = "Audit table has been dropped.";
+    public final static String AUDIT_PARTITION_CREATED = "Audit table partition \"%s\" has been created.";
+    public final static String AUDIT_SHARDS_CREATED = "%d audit table shards have been created.";
+    public final static String AUDIT_SEQUENCE_CREATED = "Audit ID sequence has been created.";
+    public final static String AUDIT_RING_BUFFER_PREPARED = "Audit table ring buffer with %d slots has been prepared.";
+    public final static String AUDIT_TABLE_PERSISTENCE_CHANGED = "Audit table has been set to %s.";
+    public final static String SHADOW_TABLE_CREATED = "Shadow table for table \"%s\" has been created.";
+    public final static String SHADOW_TABLE_DROPPED = "Shadow table of table \"%s\" has been dropped.";
+    public final static String SHADOW_TABLES_DROPPED = "Shadow tables have been dropped.";
+    public final static String AUDIT_STATE_COLUMNS_ALTERED = "Audit table state columns have been converted to the JSON type.";
     public final static String AUDIT_FUNCTION_CREATED = "Audit function has been created.";
     public final static String AUDIT_FUNCTION_DROPPED = "Audit function has been dropped.";
     public final static String AUDIT_TRIGGER_CREATED = "Audit trigger for table \"%s\" has been created.";
     public final static String AUDIT_TRIGGER_DROPPED = "Audit trigger for table \"%s\" has been dropped.";
+    public final static String DDL_TRIGGER_CREATED = "DDL trigger has been created.";
+    public final static String AUDIT_TRIGGER_REFRESHED = "Table \"%s\" has been altered. Its audit trigger has been regenerated.";
+    public final static String NOTIFICATIONS_LISTENING = "Listening for audit notifications.";
+    public final static String REPLICA_IDENTITY_SET = "Replica identity of table \"%s\" has been set to full.";
+    public final static String REPLICA_IDENTITY_RESTORED = "Replica identity of table \"%s\" has been restored to %s.";
+    public final static String LOGICAL_DECODING_STARTED = "Logical decoding started using the temporary \"%s\" replication slot.";
 }
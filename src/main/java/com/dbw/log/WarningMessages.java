@@ -7,7 +7,22 @@ public class WarningMessages extends Messages {
     public final static String NO_LATEST_OPS = addCliFlagInfo(Opts.LATEST) + "Last n changes flag given but there are no audit records.";
     public final static String NO_CACHE_FILE = "Cache file not found.";
     public final static String CLEAR_CACHE_NOT_FOUND = addCliFlagInfo(Opts.CLEAR_CACHE) + "Clear config cache request: %s not found in cache.";
+    public final static String OP_LIMIT_REACHED_PARTITIONS = "The operations limit has been reached. %d audit table partitions with records older than ID %d have been dropped.";
+    public final static String AUDIT_TABLE_NOT_PARTITIONED = "The existing audit table isn't partitioned, so the auditTablePartitionSize setting is ignored. Remove the audit table with the -p flag to have it recreated as a partitioned table.";
+    public final static String AUDIT_TABLE_NOT_SHARDED = "The existing audit table isn't sharded into %d shards, so the auditTableShards setting is ignored. Remove the audit table with the -p flag to have it recreated with the configured shards.";
+    public final static String AUDIT_TABLE_NOT_RING_BUFFER = "The existing audit table isn't a ring buffer, so the ringBufferAuditTable setting is ignored. Remove the audit table with the -p flag to have it recreated as a ring buffer.";
+    public final static String AUDIT_RING_BUFFER_SLOTS_REALLOCATED = "The ring buffer audit table has been emptied by a crash recovery. Its slots have been allocated again.";
+    public final static String AUDIT_RECORDS_OVERWRITTEN = "The watcher has fallen behind the ring buffer audit table. Up to %d operations have been overwritten before they could be read.";
     public final static String OP_LIMIT_REACHED = "The operations limit has been reached. %d first rows in the audit table have been removed. %d remaining.";
     public final static String TRIGGER_UNSUPPORTED_DATA_TYPE = "%s data type is not supported. Changes to the \"%s\" column won't get registered.";
+    public final static String AUDIT_TABLE_RESET = "The last audit record ID is lower than the last processed one (%d < %d), the table has probably been emptied by a crash recovery. Watching from the beginning of the table.";
+    public final static String NOTIFICATIONS_CONNECTION_LOST = "Connection lost while waiting for audit notifications (%s). Reconnecting...";
+    public final static String RECONNECT_ATTEMPT_FAILED = "Reconnection attempt %d of %d failed (%s). Retrying in %d ms...";
+    public final static String QUERY_FLAG_FOR_LOGICAL_CAPTURE = addCliFlagInfo(Opts.QUERY) + "Queries aren't available in the logical capture mode. You won't see queries for operations carried out on this database.";
+    public final static String LATEST_OPS_FOR_LOGICAL_CAPTURE = addCliFlagInfo(Opts.LATEST) + "Operations aren't stored in the logical capture mode, so there are no latest operations to display.";
+    public final static String QUERY_FLAG_FOR_SHADOW_CAPTURE = addCliFlagInfo(Opts.QUERY) + "Queries aren't stored in the shadow capture mode. You won't see queries for operations carried out on this database.";
+    public final static String SHADOW_TABLE_RECREATED = "The columns of table \"%s\" don't match its shadow table anymore, so the shadow table has been recreated. Operations captured before have been removed.";
+    public final static String HISTORY_FOR_LOGICAL_CAPTURE = addCliFlagInfo(Opts.HISTORY) + "Operations aren't stored in the logical capture mode, so there is no row history to display.";
+    public final static String HISTORY_FOR_SHADOW_CAPTURE = addCliFlagInfo(Opts.HISTORY) + "Row keys aren't stored in the shadow capture mode, so there is no row history to display.";
     public final static String QUERY_FLAG_FOR_NON_POSTGRES = "The " + Opts.QUERY + " flag works only for PostgreSQL databases. You won't see queries for operations carried out on this database.";
 }
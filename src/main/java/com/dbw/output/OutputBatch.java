@@ -4,11 +4,10 @@ import com.dbw.frame.AuditFrame;
 import com.dbw.util.TimeDiffUtils;
 
 import java.sql.Timestamp;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.Optional;
+import java.util.*;
 
 public class OutputBatch extends ArrayList<AuditFrame> {
+    private final List<List<AuditFrame>> transactions = new ArrayList<>();
     private Timestamp previousTime;
     private int frameCount;
 
@@ -21,8 +20,35 @@ public class OutputBatch extends ArrayList<AuditFrame> {
         return previousTime;
     }
 
+    /**
+     * Keeps the frames of a transaction together, in the order in which their operations were registered.
+     * Transactions are ordered by the time of their first operation.
+     */
     public void sort() {
         this.sort(Comparator.comparing(frameA -> frameA.getAuditRecord().getTimestamp()));
+        transactions.clear();
+        Map<List<String>, List<AuditFrame>> transactionsById = new HashMap<>();
+        for (AuditFrame frame : this) {
+            String transactionId = frame.getAuditRecord().getTransactionId();
+            if (transactionId == null) {
+                transactions.add(Collections.singletonList(frame));
+                continue;
+            }
+            // Transaction IDs are unique only within a database.
+            List<String> transactionKey = Arrays.asList(frame.getDb().getDbConfig().getName(), transactionId);
+            transactionsById.computeIfAbsent(transactionKey, key -> {
+                List<AuditFrame> transaction = new ArrayList<>();
+                transactions.add(transaction);
+                return transaction;
+            }).add(frame);
+        }
+        this.clear();
+        for (List<AuditFrame> transaction : transactions) {
+            if (transaction.size() > 1) {
+                transaction.sort(Comparator.comparingInt(frame -> frame.getAuditRecord().getId()));
+            }
+            this.addAll(transaction);
+        }
     }
 
     public void calculateTimes() {
@@ -45,16 +71,26 @@ public class OutputBatch extends ArrayList<AuditFrame> {
     }
 
     public void output() {
-        this.forEach(this::outputFrame);
+        for (List<AuditFrame> transaction : transactions) {
+            outputTimeSeparator(transaction.get(0));
+            if (transaction.size() > 1) {
+                System.out.println(new TransactionHeader(transaction.get(0), transaction.size()));
+            }
+            transaction.forEach(this::outputFrame);
+        }
     }
 
     private void outputFrame(AuditFrame frame) {
         frame.setFrameNo(frameCount++);
+        outputTimeSeparator(frame);
+        System.out.println(frame);
+    }
+
+    private void outputTimeSeparator(AuditFrame frame) {
         Timestamp currentRecordsTime = frame.getAuditRecord().getTimestamp();
         Optional<TimeDiffSeparator> timeSeparator =
                 TimeDiffSeparator.create(previousTime, currentRecordsTime);
         timeSeparator.ifPresent(System.out::println);
-        System.out.println(frame);
         previousTime = currentRecordsTime;
     }
 }
@@ -22,4 +22,12 @@ public interface OutputBuilder {
     String VERBOSE_DIFF_AFTER = "After: ";
     String OLD_STATE_PREFIX = "-";
     String NEW_STATE_PREFIX = "+";
+
+    // Appends a value as the next column of a single line summary.
+    default void appendColumn(StringBuilder builder, String value) {
+        builder.append(PADDING);
+        builder.append(VERTICAL_BORDER);
+        builder.append(PADDING);
+        builder.append(value);
+    }
 }
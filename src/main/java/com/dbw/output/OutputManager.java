@@ -2,11 +2,14 @@ package com.dbw.output;
 
 import com.dbw.app.App;
 import com.dbw.err.UnrecoverableException;
+import com.dbw.frame.CountFrame;
 import com.dbw.watcher.WatcherManager;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
 
 @Singleton
 public class OutputManager {
@@ -27,6 +30,7 @@ public class OutputManager {
                     OutputBatch frames = getSortedFrames();
                     frames.output();
                     frameCounter += frames.size();
+                    outputCountFrames();
                     if (!outputInitialInfoDone && watcherManager.areAllAfterInitialRun()) {
                         outputInitialInfo();
                         outputInitialInfoDone = true;
@@ -51,6 +55,12 @@ public class OutputManager {
         return frames;
     }
 
+    private void outputCountFrames() {
+        List<CountFrame> countFrames = new ArrayList<>();
+        watcherManager.getCountFrameQueue().drainTo(countFrames);
+        countFrames.forEach(System.out::println);
+    }
+
     private void outputInitialInfo() {
         watcherManager.outputInitialInfo();
     }
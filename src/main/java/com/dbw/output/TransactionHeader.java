@@ -0,0 +1,30 @@
+package com.dbw.output;
+
+import com.dbw.frame.AuditFrame;
+
+/**
+ * Precedes the frames of a transaction that consists of more than one operation.
+ */
+public class TransactionHeader implements OutputBuilder {
+    private static final String TRANSACTION_HEADER = "Transaction";
+    private static final String OPERATIONS_FORMAT = "%d operations";
+
+    private final AuditFrame firstFrame;
+    private final int operationCount;
+
+    public TransactionHeader(AuditFrame firstFrame, int operationCount) {
+        this.firstFrame = firstFrame;
+        this.operationCount = operationCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(TRANSACTION_HEADER);
+        builder.append(PADDING);
+        builder.append(firstFrame.getAuditRecord().getTransactionId());
+        appendColumn(builder, firstFrame.getDb().getDbConfig().getName());
+        appendColumn(builder, String.format(OPERATIONS_FORMAT, operationCount));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package com.dbw.state;
+
+import com.dbw.db.Column;
+import com.dbw.db.Common;
+import com.dbw.db.OrclSpec;
+import com.dbw.db.Plsql;
+import com.dbw.log.Level;
+import com.dbw.log.Logger;
+import com.dbw.log.WarningMessages;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Builds a JSON_OBJECT call, so that the database escapes the values and keeps numbers typed.
+ * Only binary values are encoded, the same way as in the XML states.
+ */
+public class JsonStateBuilder implements StateBuilder {
+    private final Optional<Integer> maxColumnValueBytes;
+
+    public JsonStateBuilder(Optional<Integer> maxColumnValueBytes) {
+        this.maxColumnValueBytes = maxColumnValueBytes;
+    }
+
+    public String build(String statePrefix, Column[] tableColumns) {
+        List<String> keyValues = new ArrayList<>();
+        for (Column tableColumn : tableColumns) {
+            if (!OrclSpec.isDataTypeSupported(tableColumn.getDataType())) {
+                String wrnMsg = String.format(WarningMessages.TRIGGER_UNSUPPORTED_DATA_TYPE, tableColumn.getDataType(), tableColumn.getName());
+                Logger.log(Level.WARNING, wrnMsg);
+                continue;
+            }
+            String value = buildValue(statePrefix + tableColumn.getName(), tableColumn.getDataType());
+            keyValues.add(String.format(Plsql.JSON_KEY_VALUE, tableColumn.getName(), value));
+        }
+        return String.format(Plsql.JSON_OBJECT, String.join(Common.COMMA_DELIMITER, keyValues));
+    }
+
+    private String buildValue(String columnNameWithStatePrefix, String dataType) {
+        String value;
+        switch (dataType) {
+            case OrclSpec.TYPE_BLOB:
+                value = Plsql.RAW_CAST_TO_VARCHAR_FUNCTION_START + columnNameWithStatePrefix + Plsql.RAW_CAST_TO_VARCHAR_FUNCTION_END;
+                break;
+            case OrclSpec.TYPE_RAW:
+                value = Plsql.CAST_TO_VARCHAR_FUNCTION_START + columnNameWithStatePrefix + Plsql.CAST_TO_VARCHAR_FUNCTION_END;
+                break;
+            case OrclSpec.TYPE_CLOB:
+                // LENGTHB doesn't accept LOBs, a truncated value is measured on its first 4000 characters.
+                value = maxColumnValueBytes.isPresent() ?
+                        Plsql.LOB_TO_VARCHAR_FUNCTION_START + columnNameWithStatePrefix + Plsql.LOB_TO_VARCHAR_FUNCTION_END :
+                        columnNameWithStatePrefix;
+                break;
+            default:
+                value = columnNameWithStatePrefix;
+        }
+        if (maxColumnValueBytes.isPresent() && dataType.matches(OrclSpec.TRUNCATABLE_DATA_TYPES_REGEXP)) {
+            return String.format(Plsql.TRUNCATED_VALUE, value, maxColumnValueBytes.get());
+        }
+        return value;
+    }
+}
@@ -0,0 +1,10 @@
+package com.dbw.state;
+
+import com.dbw.db.Column;
+
+/**
+ * Builds the trigger expression serializing a row's state from its columns.
+ */
+public interface StateBuilder {
+    String build(String statePrefix, Column[] tableColumns);
+}
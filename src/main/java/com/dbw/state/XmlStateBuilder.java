@@ -8,10 +8,10 @@ import com.dbw.log.Logger;
 import com.dbw.log.WarningMessages;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
-public class XmlStateBuilder {
+public class XmlStateBuilder implements StateBuilder {
 
     public final static String XML_COLUMN_STATES_TAG = "dbw-css";
     public final static String XML_COLUMN_STATE_TAG = "dbw-cs";
@@ -22,8 +22,14 @@ public class XmlStateBuilder {
     XmlStateTag xmlRootTag;
     XmlStateTag columnStatesTag;
     XmlStateTag columnStateTag;
+    private final Optional<Integer> maxColumnValueBytes;
 
     public XmlStateBuilder() {
+        this(Optional.empty());
+    }
+
+    public XmlStateBuilder(Optional<Integer> maxColumnValueBytes) {
+        this.maxColumnValueBytes = maxColumnValueBytes;
         prepareTags();
     }
 
@@ -38,7 +44,7 @@ public class XmlStateBuilder {
         stateConcat.add(xmlRootTag.startTag());
         stateConcat.add(columnStatesTag.startTag());
         for (Column tableColumn : tableColumns) {
-            if (isDataTypeSupported(tableColumn)) {
+            if (!OrclSpec.isDataTypeSupported(tableColumn.getDataType())) {
                 String wrnMsg = String.format(WarningMessages.TRIGGER_UNSUPPORTED_DATA_TYPE, tableColumn.getDataType(), tableColumn.getName());
                 Logger.log(Level.WARNING, wrnMsg);
                 continue;
@@ -50,21 +56,22 @@ public class XmlStateBuilder {
         return String.join(Plsql.STRING_CONCAT_OPERATOR, stateConcat);
     }
 
-    private boolean isDataTypeSupported(Column tableColumn) {
-        return Arrays.stream(OrclSpec.SUPPORTED_DATA_TYPES_REGEXP)
-                .noneMatch(dataType -> tableColumn.getDataType().matches("^" + dataType + "$"));
-    }
-
     private String buildForColumn(String statePrefix, Column tableColumn) {
         addNameAttributeToColumnStateTag(tableColumn.getName());
         String columnNameWithStatePrefix = statePrefix + tableColumn.getName();
         return columnStateTag.startTag() +
                 Plsql.STRING_CONCAT_OPERATOR +
-                generateToVarcharCast(columnNameWithStatePrefix, tableColumn.getDataType()) +
+                truncateValue(generateToVarcharCast(columnNameWithStatePrefix, tableColumn.getDataType())) +
                 Plsql.STRING_CONCAT_OPERATOR +
                 columnStateTag.endTag();
     }
 
+    private String truncateValue(String toVarcharCast) {
+        return maxColumnValueBytes
+                .map(maxBytes -> String.format(Plsql.TRUNCATED_VALUE, toVarcharCast, maxBytes))
+                .orElse(toVarcharCast);
+    }
+
     private void addNameAttributeToColumnStateTag(String value) {
         XmlStateTagAttribute columnStateNameAttribute = new XmlStateTagAttribute(XML_COLUMN_STATE_NAME_ATTRIBUTE, value);
         columnStateTag.resetAttributes();
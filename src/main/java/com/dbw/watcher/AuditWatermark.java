@@ -0,0 +1,82 @@
+package com.dbw.watcher;
+
+import com.dbw.db.AuditRecord;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Tracks the highest audit record ID read so far and the IDs below it that haven't been read yet.
+ * IDs are assigned when a record is inserted, not when its transaction commits, so a lower ID can become visible
+ * after a higher one has already been read. Such gaps are read again until they fill or time out, which happens
+ * when the transaction that reserved the ID rolled back.
+ */
+public class AuditWatermark {
+    private final static int MAX_OPEN_GAPS = 1000;
+
+    private final long gapTimeout;
+    private final TreeMap<Integer, Long> openGaps = new TreeMap<>();
+    private int maxId;
+
+    public AuditWatermark(long gapTimeout) {
+        this.gapTimeout = gapTimeout;
+    }
+
+    public int getMaxId() {
+        return maxId;
+    }
+
+    public void reset(int maxId) {
+        this.maxId = maxId;
+        openGaps.clear();
+    }
+
+    public boolean hasOpenGaps() {
+        return !openGaps.isEmpty();
+    }
+
+    public SortedSet<Integer> getOpenGaps() {
+        return new TreeSet<>(openGaps.keySet());
+    }
+
+    /**
+     * Closes the gaps filled by the read records and opens new ones for the IDs skipped above the previous watermark.
+     * Only the highest skipped IDs are kept when there are more of them than the open gap limit.
+     */
+    public void advance(List<AuditRecord> auditRecords) {
+        long now = System.currentTimeMillis();
+        SortedSet<Integer> ids = new TreeSet<>();
+        for (AuditRecord auditRecord : auditRecords) {
+            ids.add(auditRecord.getId());
+        }
+        for (int id : ids) {
+            if (id <= maxId) {
+                openGaps.remove(id);
+                continue;
+            }
+            if (gapTimeout > 0) {
+                for (int gapId = Math.max(maxId + 1, id - MAX_OPEN_GAPS); gapId < id; gapId++) {
+                    openGaps.put(gapId, now);
+                }
+            }
+            maxId = id;
+        }
+        expireGaps(now);
+    }
+
+    private void expireGaps(long now) {
+        Iterator<Map.Entry<Integer, Long>> gaps = openGaps.entrySet().iterator();
+        while (gaps.hasNext()) {
+            if (now - gaps.next().getValue() > gapTimeout) {
+                gaps.remove();
+            }
+        }
+        while (openGaps.size() > MAX_OPEN_GAPS) {
+            openGaps.pollFirstEntry();
+        }
+    }
+}
@@ -1,36 +1,57 @@
 package com.dbw.watcher;
 
+import com.dbw.actions.PartitionRetentionAction;
 import com.dbw.actions.TruncateBasedOnLimitAction;
 import com.dbw.app.App;
 import com.dbw.app.ObjectCreator;
+import com.dbw.cfg.CaptureMode;
 import com.dbw.cfg.Config;
+import com.dbw.cli.RowHistoryOption;
 import com.dbw.cli.ShowLatestOperationsOption;
+import com.dbw.db.AuditCount;
 import com.dbw.db.AuditRecord;
 import com.dbw.db.Database;
 import com.dbw.db.DatabaseFactory;
+import com.dbw.db.DdlChange;
+import com.dbw.db.Operation;
 import com.dbw.db.Postgres;
 import com.dbw.err.*;
 import com.dbw.frame.AuditFrame;
+import com.dbw.frame.CollapsedTransactionFrame;
+import com.dbw.frame.CountFrame;
 import com.dbw.log.*;
+import com.dbw.util.TimeDiffUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
 
 import java.sql.SQLException;
-import java.util.List;
+import java.sql.Timestamp;
+import java.util.*;
 
 public class Watcher implements Runnable {
+    private static final int RECONNECT_ATTEMPTS = 5;
+    private static final long RECONNECT_INITIAL_BACKOFF_MILLIS = 1000;
+
     private final WatcherManager watcherManager;
     private final Config cfg;
     private Database db;
     private final String dbName;
-    private int maxId;
+    private final AuditWatermark watermark;
+    private boolean ddlLogged;
+    private int maxDdlChangeId;
+    private Timestamp lastCountsTime;
     private int auditRecordCount;
     private int numberOfLatestOp;
+    private int ringBufferLap;
     private boolean isAfterInitialRun;
     private boolean removingAuditRecords;
+    private boolean listening;
+    private boolean auditTableReset;
 
     public Watcher(WatcherManager watcherManager, Config cfg) {
         this.watcherManager = watcherManager;
         this.cfg = cfg;
         this.dbName = cfg.getDatabase().getName();
+        this.watermark = new AuditWatermark(cfg.getGapTimeout());
     }
 
     public void closeDb() throws SQLException {
@@ -62,10 +83,19 @@ public class Watcher implements Runnable {
     @Override
     public void run() {
         try {
-            findMaxId();
+            if (isLogicalCapture()) {
+                ((Postgres) db).startLogicalDecoding();
+            } else {
+                findMaxId();
+                findMaxDdlChangeId();
+            }
+            startListening();
             do {
-                Thread.sleep(App.getInterval());
-                watch();
+                if (awaitChanges()) {
+                    watch();
+                } else {
+                    watcherManager.checkIn(this);
+                }
                 if (!isAfterInitialRun()) {
                     setAfterInitialRun();
                 }
@@ -75,24 +105,160 @@ public class Watcher implements Runnable {
         }
     }
 
+    private void startListening() throws SQLException {
+        if (!cfg.areNotificationsEnabled() || App.options.getOneOff()) {
+            return;
+        }
+        ((Postgres) db).listen();
+        listening = true;
+        Logger.log(Level.INFO, dbName, LogMessages.NOTIFICATIONS_LISTENING);
+    }
+
+    private boolean awaitChanges() throws InterruptedException, SQLException, DbwException {
+        if (!listening || !isAfterInitialRun()) {
+            Thread.sleep(App.getInterval());
+            return true;
+        }
+        try {
+            return ((Postgres) db).awaitNotifications(App.getInterval());
+        } catch (SQLException e) {
+            reconnect(e);
+            // Notifications sent while the connection was down are lost, so poll once to catch up.
+            return true;
+        }
+    }
+
+    /**
+     * Retries a bounded number of times, doubling the wait after each failed attempt,
+     * so that a database restart doesn't stop the watcher while a longer outage still does.
+     */
+    private void reconnect(SQLException cause) throws InterruptedException, SQLException, DbwException {
+        Logger.log(Level.WARNING, dbName, String.format(WarningMessages.NOTIFICATIONS_CONNECTION_LOST, cause.getMessage()));
+        long backoffMillis = RECONNECT_INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                db.close();
+            } catch (SQLException ignored) {
+                // The broken connection is replaced below either way.
+            }
+            try {
+                db.connect();
+                ((Postgres) db).listen();
+                break;
+            } catch (SQLException | UnrecoverableException e) {
+                if (attempt == RECONNECT_ATTEMPTS) {
+                    throw e;
+                }
+                Logger.log(Level.WARNING, dbName, String.format(WarningMessages.RECONNECT_ATTEMPT_FAILED, attempt, RECONNECT_ATTEMPTS, e.getMessage(), backoffMillis));
+                Thread.sleep(backoffMillis);
+                backoffMillis *= 2;
+            }
+        }
+        if (cfg.isUnloggedAuditTable()) {
+            auditTableReset = isAuditTableReset();
+            if (isRingBufferAuditTable() && ((Postgres) db).reallocateAuditRingBufferSlots()) {
+                Logger.log(Level.WARNING, dbName, WarningMessages.AUDIT_RING_BUFFER_SLOTS_REALLOCATED);
+            }
+        }
+    }
+
+    private boolean isLogicalCapture() {
+        return cfg.getCaptureMode().equals(CaptureMode.LOGICAL);
+    }
+
     private void watch() throws DbwException {
         try {
+            if (isLogicalCapture()) {
+                if (App.options.getRowHistory() == null) {
+                    processAuditRecords(((Postgres) db).selectDecodedAuditRecords());
+                }
+                watcherManager.checkIn(this);
+                return;
+            }
+            if (ddlLogged) {
+                evaluateDdlChanges();
+            }
             boolean auditRecordCountChanged = setAndCompareAuditRecordCount();
+            if (auditTableReset) {
+                auditTableReset = false;
+                auditRecordCountChanged = true;
+            }
+            // The record count of a full ring buffer stays the same, and a late commit below the watermark doesn't raise the maximum ID.
+            if (isRingBufferAuditTable() && (watermark.hasOpenGaps() || db.selectMaxId() > watermark.getMaxId())) {
+                auditRecordCountChanged = true;
+            }
             if (auditRecordCountChanged) {
                 selectAndProcessAuditRecords();
-                findMaxId();
+                evaluateAuditPartitions();
                 evaluateOperationsLimit();
             }
+            if (cfg.areCountedTablesPresent()) {
+                evaluateAuditCounts();
+            }
             watcherManager.checkIn(this);
-        } catch (SQLException e) {
+        } catch (SQLException | JsonProcessingException e) {
             new UnrecoverableException("WatcherRunException", e.getMessage(), e).handle();
         }
     }
 
     private void selectAndProcessAuditRecords() {
+        if (App.options.getRowHistory() != null) {
+            selectAndProcessRowHistory();
+            return;
+        }
+        try {
+            if (isAfterInitialRun() && isRingBufferAuditTable()) {
+                checkRingBufferOverwrites();
+            }
+            List<AuditRecord> auditRecords = new ArrayList<>();
+            if (watermark.hasOpenGaps()) {
+                auditRecords.addAll(db.selectAuditRecords(watermark.getOpenGaps()));
+            }
+            auditRecords.addAll(db.selectAuditRecords(getMaxId()));
+            watermark.advance(auditRecords);
+            // Gaps are read regardless of the tables option, so that records of the other tables close them too.
+            if (App.options.getTables().isPresent()) {
+                auditRecords.removeIf(auditRecord -> !App.options.getTables().get().contains(auditRecord.getTableName()));
+            }
+            processAuditRecords(auditRecords);
+            if (!isAfterInitialRun()) {
+                numberOfLatestOp = auditRecords.size();
+            }
+        } catch (SQLException | UnknownDbOperationException e) {
+            new UnrecoverableException("WatcherRunException", e.getMessage(), e).handle();
+        }
+    }
+
+    /**
+     * Reads the operations of a single row through the row key index instead of scanning the audit table.
+     * A numeric latest operations value keeps only the given number of the row's latest operations.
+     */
+    private void selectAndProcessRowHistory() {
+        if (cfg.getCaptureMode().equals(CaptureMode.SHADOW)) {
+            return;
+        }
         try {
-            List<AuditRecord> auditRecords = db.selectAuditRecords(getMaxId());
-            for (AuditRecord auditRecord : auditRecords) {
+            RowHistoryOption rowHistory = App.options.getRowHistory();
+            ShowLatestOperationsOption latestOps = App.options.getShowLatestOperations();
+            Long seconds = latestOps != null && latestOps.isTime() ? latestOps.getValue() : null;
+            List<AuditRecord> auditRecords = db.selectRowHistory(rowHistory.getTableName(), rowHistory.getRowKey(), seconds);
+            if (latestOps != null && !latestOps.isTime() && auditRecords.size() > latestOps.getValue()) {
+                auditRecords = auditRecords.subList(auditRecords.size() - (int)latestOps.getValue(), auditRecords.size());
+            }
+            processAuditRecords(auditRecords);
+            numberOfLatestOp = auditRecords.size();
+        } catch (SQLException | UnknownDbOperationException e) {
+            new UnrecoverableException("WatcherRunException", e.getMessage(), e).handle();
+        }
+    }
+
+    private void processAuditRecords(List<AuditRecord> auditRecords) throws SQLException {
+        for (List<AuditRecord> transaction : groupByTransaction(auditRecords)) {
+            if (isCollapsed(transaction)) {
+                watcherManager.addFrame(new CollapsedTransactionFrame(db, transaction));
+                continue;
+            }
+            for (AuditRecord auditRecord : transaction) {
                 try {
                     AuditFrame auditFrame = createAuditFrameAndFindDiff(auditRecord);
                     watcherManager.addFrame(auditFrame);
@@ -100,12 +266,32 @@ public class Watcher implements Runnable {
                     e.handle();
                 }
             }
-            if (!isAfterInitialRun()) {
-                numberOfLatestOp = auditRecords.size();
+        }
+    }
+
+    /**
+     * Records without a transaction ID (written before it was captured) form single-operation transactions.
+     */
+    private List<List<AuditRecord>> groupByTransaction(List<AuditRecord> auditRecords) {
+        List<List<AuditRecord>> transactions = new ArrayList<>();
+        Map<String, List<AuditRecord>> transactionsById = new HashMap<>();
+        for (AuditRecord auditRecord : auditRecords) {
+            if (auditRecord.getTransactionId() == null) {
+                transactions.add(Collections.singletonList(auditRecord));
+                continue;
             }
-        } catch (SQLException | UnknownDbOperationException e) {
-            new UnrecoverableException("WatcherRunException", e.getMessage(), e).handle();
+            transactionsById.computeIfAbsent(auditRecord.getTransactionId(), transactionId -> {
+                List<AuditRecord> transaction = new ArrayList<>();
+                transactions.add(transaction);
+                return transaction;
+            }).add(auditRecord);
         }
+        return transactions;
+    }
+
+    private boolean isCollapsed(List<AuditRecord> transaction) {
+        Integer maxTransactionSize = App.options.getMaxTransactionSize();
+        return maxTransactionSize != null && transaction.size() > maxTransactionSize;
     }
 
     private AuditFrame createAuditFrameAndFindDiff(AuditRecord auditRecord)
@@ -118,8 +304,103 @@ public class Watcher implements Runnable {
         return frame;
     }
 
+    /**
+     * Turns the counts appended since the previous evaluation into a rate line per counted table.
+     * Counts are removed as they're read, so they're neither displayed again nor accumulated.
+     */
+    private void evaluateAuditCounts() throws SQLException {
+        List<AuditCount> auditCounts;
+        try {
+            auditCounts = ((Postgres) db).deleteAuditCounts();
+        } catch (UnknownDbOperationException e) {
+            new RecoverableException("AuditCounts", e.getMessage(), e).setRecoverable().handle();
+            return;
+        }
+        if (auditCounts.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Timestamp periodStart = lastCountsTime;
+        Map<String, Map<Operation, Long>> tableRowCounts = new TreeMap<>();
+        for (AuditCount auditCount : auditCounts) {
+            if (lastCountsTime == null && (periodStart == null || periodStart.after(auditCount.getFirstTimestamp()))) {
+                periodStart = auditCount.getFirstTimestamp();
+            }
+            if (App.options.getTables().isPresent() && !App.options.getTables().get().contains(auditCount.getTableName())) {
+                continue;
+            }
+            tableRowCounts
+                    .computeIfAbsent(auditCount.getTableName(), tableName -> new EnumMap<>(Operation.class))
+                    .put(auditCount.getOperation(), auditCount.getRowCount());
+        }
+        long periodInMillis = TimeDiffUtils.getTimeDiffInMillis(periodStart, now);
+        for (Map.Entry<String, Map<Operation, Long>> rowCounts : tableRowCounts.entrySet()) {
+            watcherManager.addCountFrame(new CountFrame(cfg.getDatabase(), rowCounts.getKey(), rowCounts.getValue(), periodInMillis));
+        }
+        lastCountsTime = now;
+    }
+
+    /**
+     * Regenerates the audit triggers of the watched tables altered since the previous check,
+     * so that added columns get captured and removed ones don't break the trigger.
+     */
+    private void evaluateDdlChanges() throws SQLException {
+        Set<String> alteredTables = new LinkedHashSet<>();
+        for (DdlChange ddlChange : db.selectDdlChanges(maxDdlChangeId)) {
+            maxDdlChangeId = Math.max(maxDdlChangeId, ddlChange.getId());
+            db.getWatchedTables().stream()
+                    .filter(tableName -> tableName.equalsIgnoreCase(ddlChange.getTableName()))
+                    .forEach(alteredTables::add);
+        }
+        for (String tableName : alteredTables) {
+            try {
+                db.refreshAuditTrigger(tableName);
+                Logger.log(Level.INFO, dbName, String.format(LogMessages.AUDIT_TRIGGER_REFRESHED, tableName));
+            } catch (SQLException e) {
+                String errMsg = String.format(ErrorMessages.CREATE_AUDIT_TRIGGER, tableName, e.getMessage());
+                new PreparationException(errMsg, e).setRecoverable().handle();
+            } catch (PreparationException e) {
+                e.setRecoverable().handle();
+            }
+        }
+    }
+
+    /**
+     * The slot of the first unread record is reused once the table holds an ID at least one lap of slots above it.
+     * Gaps left by rolled back transactions don't count as overwrites, as only the ring size is compared.
+     */
+    private void checkRingBufferOverwrites() throws SQLException {
+        int slots = getCfg().getOperationsLimit().get();
+        int lostRecords = db.selectMaxId() - slots - watermark.getMaxId();
+        if (lostRecords > 0) {
+            Logger.log(Level.WARNING, dbName, String.format(WarningMessages.AUDIT_RECORDS_OVERWRITTEN, lostRecords));
+        }
+    }
+
+    /**
+     * An unlogged audit table is emptied by a crash recovery and its ID sequence may start over,
+     * in which case new records would stay hidden below the last processed ID.
+     * A crash recovery drops every connection, so it's checked only after the connection has been restored.
+     */
+    private boolean isAuditTableReset() throws SQLException {
+        int lastId = ((Postgres) db).selectLastAuditSequenceValue();
+        if (lastId >= watermark.getMaxId()) {
+            return false;
+        }
+        Logger.log(Level.WARNING, dbName, String.format(WarningMessages.AUDIT_TABLE_RESET, lastId, watermark.getMaxId()));
+        watermark.reset(0);
+        return true;
+    }
+
     private void findMaxId() throws SQLException {
-        setMaxId(db.selectMaxId());
+        watermark.reset(db.selectMaxId());
+    }
+
+    private void findMaxDdlChangeId() throws SQLException {
+        ddlLogged = db.ddlTriggerExists();
+        if (ddlLogged) {
+            maxDdlChangeId = db.selectMaxDdlChangeId();
+        }
     }
 
     private int getMaxId() throws SQLException {
@@ -133,32 +414,49 @@ public class Watcher implements Runnable {
             if (latestOps.isTime()) {
                 return db.selectLatestAuditRecordId(latestOps.getValue());
             } else {
-                int lastIdMinusN = maxId - (int)latestOps.getValue();
+                int lastIdMinusN = watermark.getMaxId() - (int)latestOps.getValue();
                 if (lastIdMinusN <= 0) {
                     Logger.log(Level.WARNING, dbName, WarningMessages.LATEST_OPS_NUM_GT_AUDIT_RECORD_COUNT);
                 }
                 return Math.max(lastIdMinusN, 0);
             }
         }
-        return maxId;
+        return watermark.getMaxId();
     }
 
     public void outputInitialInfo() {
         if (!App.options.getOneOff()) {
             Logger.log(Level.INFO, dbName, LogMessages.WATCHER_STARTED);
         }
+        if (isLogicalCapture()) {
+            outputLogicalCaptureInfo();
+            return;
+        }
         Logger.log(Level.INFO, dbName, String.format(LogMessages.AUDIT_RECORDS_COUNT, auditRecordCount));
         if (App.options.showLatestOperationsPresentAndGtThanZero() && App.options.getShowLatestOperations().isTime()) {
             String latestOpMsg = String.format(LogMessages.NUMBER_OF_LATEST_OP, numberOfLatestOp, App.options.getShowLatestOperations().getRaw());
             Logger.log(numberOfLatestOp > 0 ? Level.INFO : Level.WARNING, dbName, latestOpMsg);
         }
+        if (App.options.getRowHistory() != null && cfg.getCaptureMode().equals(CaptureMode.SHADOW)) {
+            Logger.log(Level.WARNING, dbName, WarningMessages.HISTORY_FOR_SHADOW_CAPTURE);
+        }
         if (App.options.getShowQuery() && !(getDb() instanceof Postgres)) {
             Logger.log(Level.WARNING, dbName, WarningMessages.QUERY_FLAG_FOR_NON_POSTGRES);
+        } else if (App.options.getShowQuery() && cfg.getCaptureMode().equals(CaptureMode.SHADOW)) {
+            Logger.log(Level.WARNING, dbName, WarningMessages.QUERY_FLAG_FOR_SHADOW_CAPTURE);
         }
     }
 
-    private void setMaxId(int maxId) {
-        this.maxId = maxId;
+    private void outputLogicalCaptureInfo() {
+        if (App.options.showLatestOperationsPresentAndGtThanZero()) {
+            Logger.log(Level.WARNING, dbName, WarningMessages.LATEST_OPS_FOR_LOGICAL_CAPTURE);
+        }
+        if (App.options.getRowHistory() != null) {
+            Logger.log(Level.WARNING, dbName, WarningMessages.HISTORY_FOR_LOGICAL_CAPTURE);
+        }
+        if (App.options.getShowQuery()) {
+            Logger.log(Level.WARNING, dbName, WarningMessages.QUERY_FLAG_FOR_LOGICAL_CAPTURE);
+        }
     }
 
     private boolean setAndCompareAuditRecordCount() throws SQLException {
@@ -171,9 +469,17 @@ public class Watcher implements Runnable {
         if (!getCfg().areOperationsSettingsPresent()) {
             return;
         }
+        if (isRingBufferAuditTable()) {
+            evaluateRingBufferLap();
+            return;
+        }
         Integer opMin = getCfg().getOperationsMinimum().get();
         Integer opLim = getCfg().getOperationsLimit().get();
-        if (auditRecordCount >= opLim) {
+        if (auditRecordCount >= opLim && isAuditTablePartitioned()) {
+            PartitionRetentionAction partitionRetentionAction = new PartitionRetentionAction(this, watermark.getMaxId(), opMin);
+            Thread partitionRetentionThread = new Thread(partitionRetentionAction);
+            partitionRetentionThread.start();
+        } else if (auditRecordCount >= opLim) {
             TruncateBasedOnLimitAction truncateBasedOnLimitAction =
                     new TruncateBasedOnLimitAction(this, auditRecordCount, opMin);
             Thread truncateBasedOnLimitThread = new Thread(truncateBasedOnLimitAction);
@@ -181,6 +487,37 @@ public class Watcher implements Runnable {
         }
     }
 
+    /**
+     * A ring buffer is never truncated, query texts of the overwritten records are cleaned up once per lap instead.
+     */
+    private void evaluateRingBufferLap() throws SQLException {
+        int lap = watermark.getMaxId() / getCfg().getOperationsLimit().get();
+        if (lap != ringBufferLap) {
+            ringBufferLap = lap;
+            ((Postgres) db).deleteOrphanedAuditQueries();
+        }
+    }
+
+    private boolean isRingBufferAuditTable() throws SQLException {
+        return cfg.isRingBufferAuditTable() && ((Postgres) db).isAuditTableRingBuffer();
+    }
+
+    private boolean isAuditTablePartitioned() throws SQLException {
+        return cfg.isAuditTablePartitioned() && ((Postgres) db).isAuditTablePartitioned();
+    }
+
+    private void evaluateAuditPartitions() throws SQLException {
+        if (!isAuditTablePartitioned()) {
+            return;
+        }
+        try {
+            ((Postgres) db).createAuditPartitions(watermark.getMaxId());
+        } catch (SQLException e) {
+            String errMsg = String.format(ErrorMessages.CREATE_AUDIT_PARTITIONS, e.getMessage());
+            new RecoverableException("AuditPartitions", errMsg, e).setRecoverable().handle();
+        }
+    }
+
     private void setAuditRecordCount() throws SQLException {
         this.auditRecordCount = db.getAuditRecordCount();
     }
@@ -9,6 +9,7 @@ import com.dbw.err.DbwException;
 import com.dbw.err.PreparationException;
 import com.dbw.err.UnrecoverableException;
 import com.dbw.frame.AuditFrame;
+import com.dbw.frame.CountFrame;
 import com.dbw.log.ErrorMessages;
 import com.dbw.log.Level;
 import com.dbw.log.LogMessages;
@@ -35,6 +36,7 @@ public class WatcherManager {
 
     private final List<Watcher> watchers = Lists.newArrayList();
     private final LinkedBlockingQueue<AuditFrame> frameQueue = new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<CountFrame> countFrameQueue = new LinkedBlockingQueue<>();
 
     public void addWatcher(Config cfg) {
         Watcher watcher = new Watcher(this, cfg);
@@ -106,6 +108,14 @@ public class WatcherManager {
         return frameQueue;
     }
 
+    public void addCountFrame(CountFrame countFrame) {
+        countFrameQueue.add(countFrame);
+    }
+
+    public LinkedBlockingQueue<CountFrame> getCountFrameQueue() {
+        return countFrameQueue;
+    }
+
     public boolean areAllAfterInitialRun() {
         return watchers.stream().allMatch(Watcher::isAfterInitialRun);
     }
@@ -0,0 +1,86 @@
+package com.dbw.bench;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import com.dbw.cfg.CaptureMode;
+import com.dbw.cfg.Config;
+import com.dbw.db.Database;
+import com.dbw.db.DatabaseFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+/**
+ * Shared setup of the benchmarks, which run against the database of the config given with -DbenchConfigPath.
+ * They work in a schema of their own, so that the audit objects of the configured schema are never touched.
+ */
+final class Benchmarks {
+    static final String BENCH_TABLE = "dbw_bench";
+    static final String BENCH_SCHEMA = "dbw_bench_schema";
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Watches only the benchmark table of the benchmark schema, in the given capture mode or in the base config's one when it's null.
+     */
+    static Config createConfig(File baseConfigFile, CaptureMode captureMode) throws Exception {
+        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+        ObjectNode tree = (ObjectNode) mapper.readTree(baseConfigFile);
+        if (captureMode != null) {
+            tree.with("settings").put("captureMode", captureMode.mode);
+        }
+        tree.with("database").put("schema", BENCH_SCHEMA);
+        tree.remove("tables");
+        tree.putArray("tables").add(BENCH_TABLE);
+        Config config = mapper.treeToValue(tree, Config.class);
+        config.setPath(baseConfigFile.getPath());
+        return config;
+    }
+
+    /**
+     * Connects to a freshly created benchmark schema, which is the only one on the search path,
+     * so that the unqualified audit table queries resolve to the benchmark's objects as well.
+     */
+    static Database openBenchDatabase(Config config) throws Exception {
+        Database db = DatabaseFactory.getDatabase(config);
+        db.connect();
+        execute(db, "DROP SCHEMA IF EXISTS " + BENCH_SCHEMA + " CASCADE");
+        execute(db, "CREATE SCHEMA " + BENCH_SCHEMA);
+        execute(db, "SET search_path TO " + BENCH_SCHEMA);
+        return db;
+    }
+
+    /**
+     * Dropping the schema removes the benchmark table together with every audit object prepared for it,
+     * including the DDL event trigger, which depends on a function of the schema.
+     */
+    static void closeBenchDatabase(Database db) throws SQLException {
+        try {
+            execute(db, "DROP SCHEMA IF EXISTS " + BENCH_SCHEMA + " CASCADE");
+        } finally {
+            db.close();
+        }
+    }
+
+    static void execute(Database db, String query) throws SQLException {
+        Statement stmt = db.getConn().createStatement();
+        stmt.execute(query);
+        stmt.close();
+    }
+
+    static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    static String summarize(long[] timings) {
+        long[] sorted = timings.clone();
+        Arrays.sort(sorted);
+        return String.format("median: %d ms, min: %d ms, max: %d ms", median(sorted), sorted[0], sorted[sorted.length - 1]);
+    }
+}
@@ -0,0 +1,83 @@
+package com.dbw.bench;
+
+import static com.dbw.bench.Benchmarks.BENCH_TABLE;
+import static com.dbw.bench.Benchmarks.closeBenchDatabase;
+import static com.dbw.bench.Benchmarks.createConfig;
+import static com.dbw.bench.Benchmarks.execute;
+import static com.dbw.bench.Benchmarks.openBenchDatabase;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.dbw.db.Common;
+import com.dbw.db.Database;
+import com.dbw.db.PostgresQueries;
+import org.junit.Test;
+
+/**
+ * Compares the startup lookup of the first operation within the -l time window on a large seeded audit table
+ * between the former min/max subquery version and the single index range version.
+ * Run with: mvn test -Dtest=LatestOperationsBenchmark -DbenchConfigPath=config/example-postgres-config.yml
+ */
+public class LatestOperationsBenchmark {
+    private static final int ROWS = Integer.getInteger("benchRows", 5000000);
+    private static final int RUNS = Integer.getInteger("benchRuns", 5);
+    private static final long SECONDS = Long.getLong("benchSeconds", 600);
+
+    private static final String SUBQUERY_LATEST_WITH_SECONDS =
+        "WITH latest_id AS " +
+        "(SELECT min(id) as " + Common.COLNAME_ID + " FROM " + Common.DBW_AUDIT_TABLE_NAME + " da " +
+        "WHERE da.\"timestamp\" > now() - make_interval(0,0,0,0,0,0,?)) " +
+        "SELECT COALESCE(max(id), 0) AS " + Common.COLNAME_ID + " FROM " + Common.DBW_AUDIT_TABLE_NAME + " da " +
+        "WHERE id < COALESCE((SELECT id FROM latest_id), (SELECT max(id) + 1 FROM " + Common.DBW_AUDIT_TABLE_NAME + "))";
+
+    @Test
+    public void compareLatestOperationsLookup() throws Exception {
+        String benchConfigPath = System.getProperty("benchConfigPath");
+        assumeNotNull(benchConfigPath);
+        Database db = openBenchDatabase(createConfig(new File(benchConfigPath), null));
+        try {
+            execute(db, "CREATE TABLE " + BENCH_TABLE + " (id SERIAL PRIMARY KEY, val INTEGER)");
+            db.prepare();
+            seedAuditTable(db);
+            String[] names = {"subquery", "index range"};
+            String[] queries = {SUBQUERY_LATEST_WITH_SECONDS, PostgresQueries.SELECT_LATEST_WITH_SECONDS};
+            for (int i = 0; i < queries.length; i++) {
+                long[] timings = new long[RUNS];
+                int id = 0;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    id = selectLatestId(db, queries[i]);
+                    timings[run] = (System.nanoTime() - start) / 1000000;
+                }
+                System.out.printf("%-12s rows: %d, window: %ds, id: %d, %s%n", names[i], ROWS, SECONDS, id, Benchmarks.summarize(timings));
+            }
+        } finally {
+            closeBenchDatabase(db);
+        }
+    }
+
+    /**
+     * Seeds the audit table that has just been prepared in the benchmark schema, never the one of the configured schema.
+     */
+    private void seedAuditTable(Database db) throws SQLException {
+        execute(db, "INSERT INTO " + Common.DBW_AUDIT_TABLE_NAME +
+                " (" + Common.COLNAME_TABLE_NAME + ", " + Common.COLNAME_NEW_STATE + ", " + Common.COLNAME_OPERATION + ", \"" + Common.COLNAME_TIMESTAMP + "\")" +
+                " SELECT '" + BENCH_TABLE + "', json_build_object('id', g, 'val', g), 'I', now() - make_interval(0,0,0,0,0,0," + ROWS + " - g)" +
+                " FROM generate_series(1, " + ROWS + ") g");
+        execute(db, "ANALYZE " + Common.DBW_AUDIT_TABLE_NAME);
+    }
+
+    private int selectLatestId(Database db, String query) throws SQLException {
+        PreparedStatement pstmt = db.getConn().prepareStatement(query);
+        pstmt.setLong(1, SECONDS);
+        ResultSet rs = pstmt.executeQuery();
+        rs.next();
+        int id = rs.getInt(Common.COLNAME_ID);
+        pstmt.close();
+        return id;
+    }
+}
@@ -0,0 +1,53 @@
+package com.dbw.bench;
+
+import static com.dbw.bench.Benchmarks.BENCH_TABLE;
+import static com.dbw.bench.Benchmarks.closeBenchDatabase;
+import static com.dbw.bench.Benchmarks.createConfig;
+import static com.dbw.bench.Benchmarks.execute;
+import static com.dbw.bench.Benchmarks.openBenchDatabase;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.File;
+
+import com.dbw.cfg.CaptureMode;
+import com.dbw.cfg.Config;
+import com.dbw.db.Database;
+import org.junit.Test;
+
+/**
+ * Compares bulk update latency on a watched table between the row and statement capture modes.
+ * Run with: mvn test -Dtest=StatementTriggerBenchmark -DbenchConfigPath=config/example-postgres-config.yml
+ */
+public class StatementTriggerBenchmark {
+    private static final int ROWS = Integer.getInteger("benchRows", 100000);
+    private static final int RUNS = Integer.getInteger("benchRuns", 5);
+
+    @Test
+    public void compareBulkUpdateLatency() throws Exception {
+        String benchConfigPath = System.getProperty("benchConfigPath");
+        assumeNotNull(benchConfigPath);
+        for (CaptureMode captureMode : new CaptureMode[]{CaptureMode.ROW, CaptureMode.STATEMENT}) {
+            long[] timings = measure(createConfig(new File(benchConfigPath), captureMode));
+            System.out.printf("%-10s rows: %d, %s%n", captureMode.mode, ROWS, Benchmarks.summarize(timings));
+        }
+    }
+
+    private long[] measure(Config config) throws Exception {
+        Database db = openBenchDatabase(config);
+        try {
+            execute(db, "CREATE TABLE " + BENCH_TABLE + " (id SERIAL PRIMARY KEY, val INTEGER, txt TEXT)");
+            execute(db, "INSERT INTO " + BENCH_TABLE + " (val, txt) SELECT g, md5(g::TEXT) FROM generate_series(1, " + ROWS + ") g");
+            db.prepare();
+            execute(db, "UPDATE " + BENCH_TABLE + " SET val = val + 1");
+            long[] timings = new long[RUNS];
+            for (int i = 0; i < RUNS; i++) {
+                long start = System.nanoTime();
+                execute(db, "UPDATE " + BENCH_TABLE + " SET val = val + 1");
+                timings[i] = (System.nanoTime() - start) / 1000000;
+            }
+            return timings;
+        } finally {
+            closeBenchDatabase(db);
+        }
+    }
+}
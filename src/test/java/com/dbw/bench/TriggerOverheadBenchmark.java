@@ -0,0 +1,117 @@
+package com.dbw.bench;
+
+import static com.dbw.bench.Benchmarks.BENCH_TABLE;
+import static com.dbw.bench.Benchmarks.closeBenchDatabase;
+import static com.dbw.bench.Benchmarks.createConfig;
+import static com.dbw.bench.Benchmarks.execute;
+import static com.dbw.bench.Benchmarks.median;
+import static com.dbw.bench.Benchmarks.openBenchDatabase;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.dbw.cfg.CaptureMode;
+import com.dbw.cli.Opts;
+import com.dbw.db.Common;
+import com.dbw.db.Database;
+import org.junit.Test;
+
+/**
+ * Measures the overhead of the audit triggers on insert, update and delete workloads,
+ * comparing an unwatched table with the trigger based capture modes.
+ * Reports the per row latency, the throughput and the WAL volume generated by each workload. PostgreSQL 10 or later only.
+ * Run with: mvn test -Dtest=TriggerOverheadBenchmark -DbenchConfigPath=config/example-postgres-config.yml
+ */
+public class TriggerOverheadBenchmark {
+    private static final int ROWS = Integer.getInteger("benchRows", 100000);
+    private static final int RUNS = Integer.getInteger("benchRuns", 5);
+    private static final String UNWATCHED = "none";
+    private static final String SHADOW_TABLE = (Common.DBW_PREFIX + BENCH_TABLE + Common.DBW_SHADOW_POSTFIX).toLowerCase();
+
+    private static final String SELECT_WAL_LSN = "SELECT pg_current_wal_lsn()::TEXT AS lsn";
+    private static final String SELECT_WAL_BYTES_SINCE = "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), ?::pg_lsn)::BIGINT AS bytes";
+
+    private static final Map<String, String> WORKLOADS = new LinkedHashMap<>();
+    static {
+        WORKLOADS.put("insert", "INSERT INTO " + BENCH_TABLE + " (val, txt) SELECT g, md5(g::TEXT) FROM generate_series(1, " + ROWS + ") g");
+        WORKLOADS.put("update", "UPDATE " + BENCH_TABLE + " SET val = val + 1");
+        WORKLOADS.put("delete", "DELETE FROM " + BENCH_TABLE);
+    }
+
+    @Test
+    public void compareTriggerOverhead() throws Exception {
+        String benchConfigPath = System.getProperty("benchConfigPath");
+        assumeNotNull(benchConfigPath);
+        measure(new File(benchConfigPath), null);
+        for (CaptureMode captureMode : new CaptureMode[]{CaptureMode.ROW, CaptureMode.STATEMENT, CaptureMode.SHADOW}) {
+            measure(new File(benchConfigPath), captureMode);
+        }
+    }
+
+    /**
+     * Every run inserts the rows, updates and deletes all of them, so each one starts from an empty table.
+     * The audit records, or the shadow table in the shadow mode, are cleared between the runs, outside of the measured time.
+     */
+    private void measure(File baseConfigFile, CaptureMode captureMode) throws Exception {
+        Database db = openBenchDatabase(createConfig(baseConfigFile, captureMode));
+        try {
+            execute(db, "CREATE TABLE " + BENCH_TABLE + " (id SERIAL PRIMARY KEY, val INTEGER, txt TEXT)");
+            if (captureMode != null) {
+                db.prepare();
+            }
+            Map<String, long[]> nanos = new LinkedHashMap<>();
+            Map<String, long[]> walBytes = new LinkedHashMap<>();
+            for (String workload : WORKLOADS.keySet()) {
+                nanos.put(workload, new long[RUNS]);
+                walBytes.put(workload, new long[RUNS]);
+            }
+            for (int run = 0; run < RUNS; run++) {
+                for (Map.Entry<String, String> workload : WORKLOADS.entrySet()) {
+                    String startLsn = selectWalLsn(db);
+                    long start = System.nanoTime();
+                    execute(db, workload.getValue());
+                    nanos.get(workload.getKey())[run] = System.nanoTime() - start;
+                    walBytes.get(workload.getKey())[run] = selectWalBytesSince(db, startLsn);
+                }
+                if (captureMode == CaptureMode.SHADOW) {
+                    execute(db, "TRUNCATE " + SHADOW_TABLE);
+                } else if (captureMode != null) {
+                    db.deleteFirstNRows(Opts.ALL_SYMBOL);
+                }
+            }
+            String variant = captureMode != null ? captureMode.mode : UNWATCHED;
+            for (String workload : WORKLOADS.keySet()) {
+                long medianNanos = median(nanos.get(workload));
+                System.out.printf("%-10s %-7s rows: %d, latency: %.2f us/row, throughput: %d rows/s, WAL: %d bytes (%d per row)%n",
+                        variant, workload, ROWS, medianNanos / 1000.0 / ROWS, ROWS * 1000000000L / Math.max(medianNanos, 1),
+                        median(walBytes.get(workload)), median(walBytes.get(workload)) / ROWS);
+            }
+        } finally {
+            closeBenchDatabase(db);
+        }
+    }
+
+    private String selectWalLsn(Database db) throws SQLException {
+        PreparedStatement pstmt = db.getConn().prepareStatement(SELECT_WAL_LSN);
+        ResultSet rs = pstmt.executeQuery();
+        rs.next();
+        String lsn = rs.getString("lsn");
+        pstmt.close();
+        return lsn;
+    }
+
+    private long selectWalBytesSince(Database db, String startLsn) throws SQLException {
+        PreparedStatement pstmt = db.getConn().prepareStatement(SELECT_WAL_BYTES_SINCE);
+        pstmt.setString(1, startLsn);
+        ResultSet rs = pstmt.executeQuery();
+        rs.next();
+        long bytes = rs.getLong("bytes");
+        pstmt.close();
+        return bytes;
+    }
+}
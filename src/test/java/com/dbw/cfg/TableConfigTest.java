@@ -0,0 +1,75 @@
+package com.dbw.cfg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.junit.Test;
+
+public class TableConfigTest {
+
+    @Test
+    public void shouldParseTableNamesAndMappings() throws Exception
+    {
+        String yaml =
+                "- film\n" +
+                "- name: staff\n" +
+                "  excludeColumns: [picture, LAST_UPDATE]\n" +
+                "- name: actor\n" +
+                "  columns: [actor_id, first_name]\n";
+        List<TableConfig> tables = new ObjectMapper(new YAMLFactory()).readValue(yaml, new TypeReference<List<TableConfig>>() {});
+
+        assertEquals(3, tables.size());
+        assertEquals("film", tables.get(0).getName());
+        assertFalse(tables.get(0).isColumnFilterPresent());
+
+        List<String> staffColumns = Arrays.asList("staff_id", "picture", "email", "last_update");
+        assertEquals(Arrays.asList("staff_id", "email"), tables.get(1).filterColumns(staffColumns));
+
+        List<String> actorColumns = Arrays.asList("actor_id", "first_name", "last_name");
+        assertTrue(tables.get(2).isColumnFilterPresent());
+        assertEquals(Arrays.asList("actor_id", "first_name"), tables.get(2).filterColumns(actorColumns));
+    }
+
+    @Test
+    public void shouldParseCaptureLevels() throws Exception
+    {
+        String yaml =
+                "- film\n" +
+                "- name: payment\n" +
+                "  capture: counts\n" +
+                "- name: rental\n" +
+                "  capture: Sampled\n" +
+                "  sampleEvery: 100\n";
+        List<TableConfig> tables = new ObjectMapper(new YAMLFactory()).readValue(yaml, new TypeReference<List<TableConfig>>() {});
+
+        assertEquals(CaptureLevel.FULL, tables.get(0).getCaptureLevel());
+        assertEquals(CaptureLevel.COUNTS, tables.get(1).getCaptureLevel());
+        assertEquals(CaptureLevel.SAMPLED, tables.get(2).getCaptureLevel());
+        assertEquals(Integer.valueOf(100), tables.get(2).getSampleEvery().get());
+        assertFalse(tables.get(1).getSignature().equals(tables.get(0).getSignature()));
+    }
+
+    @Test
+    public void shouldFindUnknownListedColumn() throws Exception
+    {
+        String yaml =
+                "- name: staff\n" +
+                "  excludeColumns: [picture, LAST_UPDATE]\n" +
+                "- name: actor\n" +
+                "  columns: [actor_id, nickname]\n";
+        List<TableConfig> tables = new ObjectMapper(new YAMLFactory()).readValue(yaml, new TypeReference<List<TableConfig>>() {});
+
+        List<String> staffColumns = Arrays.asList("staff_id", "picture", "email", "last_update");
+        assertFalse(tables.get(0).findUnknownColumn(staffColumns).isPresent());
+
+        List<String> actorColumns = Arrays.asList("actor_id", "first_name", "last_name");
+        assertEquals("nickname", tables.get(1).findUnknownColumn(actorColumns).get());
+    }
+}
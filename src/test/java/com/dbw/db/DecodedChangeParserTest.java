@@ -0,0 +1,60 @@
+package com.dbw.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+public class DecodedChangeParserTest {
+
+    @Test
+    public void shouldParseTransaction() throws Exception
+    {
+        DecodedChangeParser parser = new DecodedChangeParser("public", Sets.newHashSet("film", "actor"), false);
+
+        assertTrue(parser.parse("BEGIN 529").isEmpty());
+        assertTrue(parser.parse("table public.film: INSERT: film_id[integer]:3 title[character varying]:'It''s a title' rating[text]:null").isEmpty());
+        assertTrue(parser.parse("table public.actor: UPDATE: old-key: actor_id[integer]:1 tags[text[]]:'{a,b}' new-tuple: actor_id[integer]:1 tags[text[]]:'{a}'").isEmpty());
+        assertTrue(parser.parse("table public.staff: DELETE: staff_id[integer]:2").isEmpty());
+        assertTrue(parser.parse("table public.film: DELETE: film_id[integer]:3 title[character varying]:'x y' rating[text]:null").isEmpty());
+        List<AuditRecord> auditRecords = parser.parse("COMMIT 529 (at 2020-10-01 12:30:45.123456+02)");
+
+        assertEquals(3, auditRecords.size());
+        AuditRecord insert = auditRecords.get(0);
+        assertEquals(1, insert.getId());
+        assertEquals("film", insert.getTableName());
+        assertEquals(Operation.INSERT, insert.getOperation());
+        assertNull(insert.getOldData());
+        assertEquals("{\"film_id\":\"3\",\"title\":\"It's a title\",\"rating\":null}", insert.getNewData());
+        assertEquals(1601548245123L, insert.getTimestamp().getTime());
+        assertEquals("529", insert.getTransactionId());
+
+        AuditRecord update = auditRecords.get(1);
+        assertEquals(Operation.UPDATE, update.getOperation());
+        assertEquals("{\"actor_id\":\"1\",\"tags\":\"{a,b}\"}", update.getOldData());
+        assertEquals("{\"actor_id\":\"1\",\"tags\":\"{a}\"}", update.getNewData());
+
+        AuditRecord delete = auditRecords.get(2);
+        assertEquals(3, delete.getId());
+        assertEquals(Operation.DELETE, delete.getOperation());
+        assertEquals("{\"film_id\":\"3\",\"title\":\"x y\",\"rating\":null}", delete.getOldData());
+    }
+
+    @Test
+    public void shouldNotPassUnchangedToastValuesThrough() throws Exception
+    {
+        DecodedChangeParser parser = new DecodedChangeParser("public", Sets.newHashSet("film"), false);
+
+        parser.parse("BEGIN 530");
+        parser.parse("table public.film: UPDATE: film_id[integer]:3 title[character varying]:'x' description[text]:unchanged-toast-datum");
+        parser.parse("table public.film: UPDATE: old-key: film_id[integer]:4 description[text]:'long' new-tuple: film_id[integer]:5 description[text]:unchanged-toast-datum");
+        List<AuditRecord> auditRecords = parser.parse("COMMIT 530");
+
+        assertEquals("{\"film_id\":\"3\",\"title\":\"x\"}", auditRecords.get(0).getNewData());
+        assertEquals("{\"film_id\":\"5\",\"description\":\"long\"}", auditRecords.get(1).getNewData());
+    }
+}
@@ -0,0 +1,55 @@
+package com.dbw.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class OrclQueriesTest {
+
+    @Test
+    public void shouldCreateAuditSequence() {
+        String ddl = String.format(OrclQueries.CREATE_AUDIT_SEQUENCE, Common.DBW_AUDIT_SEQ_NAME, 42);
+
+        assertEquals("CREATE SEQUENCE DBW_AUDIT_SEQ START WITH 42", ddl);
+    }
+
+    @Test
+    public void shouldTakeAuditTriggerIdsFromSequence() {
+        String ddl = formatAuditTrigger();
+
+        assertTrue(ddl.contains("    v_ids(v_index) := DBW_AUDIT_SEQ.NEXTVAL;\n"));
+        assertFalse(ddl.contains("MAX(ID)"));
+        assertTrue(ddl.contains("TYPE t_ids IS TABLE OF DBW_AUDIT.ID%TYPE INDEX BY PLS_INTEGER;"));
+    }
+
+    @Test
+    public void shouldBatchAuditTriggerRowsIntoBulkInsert() {
+        String ddl = formatAuditTrigger();
+
+        assertTrue(ddl.startsWith("CREATE OR REPLACE TRIGGER DBW_FILM_AUDIT \nFOR INSERT OR UPDATE OR DELETE ON FILM \nCOMPOUND TRIGGER \n"));
+        assertTrue(ddl.contains("        FORALL i IN 1 .. v_ids.COUNT SAVE EXCEPTIONS\n"));
+        assertTrue(ddl.contains("VALUES(v_ids(i), 'FILM', v_old_states(i), v_new_states(i), v_operations(i), v_transaction_ids(i), v_row_keys(i));"));
+        assertTrue(ddl.contains("    IF v_index >= " + OrclQueries.AUDIT_TRIGGER_FLUSH_ROWS + " THEN\n        flush;\n"));
+        assertTrue(ddl.contains("AFTER STATEMENT IS\nBEGIN\n    flush;\n"));
+        assertTrue(ddl.endsWith("END AFTER STATEMENT;\nEND;"));
+    }
+
+    @Test
+    public void shouldClearCollectedRowsAfterFailedBulkInsert() {
+        String ddl = formatAuditTrigger();
+
+        assertTrue(ddl.contains("SQL%BULK_EXCEPTIONS.COUNT"));
+        assertTrue(ddl.contains("    END;\n    v_ids.DELETE;\n"));
+    }
+
+    private String formatAuditTrigger() {
+        return String.format(
+            OrclQueries.CREATE_AUDIT_TRIGGER,
+            "DBW_FILM_AUDIT", OrclQueries.UPDATE_EVENT, "FILM", "FILM",
+            "", "v_old", "v_new", "",
+            "NULL", "NULL"
+        );
+    }
+}
@@ -0,0 +1,69 @@
+package com.dbw.db.query;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class PredicateCompilerTest {
+
+    @Test
+    public void shouldQualifyColumnsWithRowReference()
+    {
+        PredicateCompiler predicateCompiler = new PredicateCompiler("tenant_id IN (1, 2) AND lower(\"Name\") LIKE 'it''s%' AND deleted_at IS NULL");
+
+        assertEquals(
+                "NEW.tenant_id IN (1, 2) AND lower(NEW.\"Name\") LIKE 'it''s%' AND NEW.deleted_at IS NULL",
+                predicateCompiler.compile("NEW")
+        );
+        assertEquals(
+                ":OLD.tenant_id IN (1, 2) AND lower(:OLD.\"Name\") LIKE 'it''s%' AND :OLD.deleted_at IS NULL",
+                predicateCompiler.compile(":OLD")
+        );
+        assertEquals(Arrays.asList("tenant_id", "Name", "deleted_at"), new ArrayList<>(predicateCompiler.getColumnNames()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectStatementSeparator()
+    {
+        new PredicateCompiler("tenant_id = 1; DROP TABLE film").compile("NEW");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectSubquery()
+    {
+        new PredicateCompiler("tenant_id IN (SELECT id FROM tenant)").compile("NEW");
+    }
+
+    @Test
+    public void shouldKeepNumbersWithExponent()
+    {
+        PredicateCompiler predicateCompiler = new PredicateCompiler("amount > 1e5 AND rate < 2.5E-3");
+
+        assertEquals("NEW.amount > 1e5 AND NEW.rate < 2.5E-3", predicateCompiler.compile("NEW"));
+        assertEquals(Arrays.asList("amount", "rate"), new ArrayList<>(predicateCompiler.getColumnNames()));
+    }
+
+    @Test
+    public void shouldNotQualifyNiladicFunctions()
+    {
+        PredicateCompiler predicateCompiler = new PredicateCompiler("valid_to >= current_date AND owner = CURRENT_USER");
+
+        assertEquals("NEW.valid_to >= current_date AND NEW.owner = CURRENT_USER", predicateCompiler.compile("NEW"));
+        assertEquals(Arrays.asList("valid_to", "owner"), new ArrayList<>(predicateCompiler.getColumnNames()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectSchemaQualifiedFunction()
+    {
+        new PredicateCompiler("public.is_active(tenant_id)").compile("NEW");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectFunctionOutsideAllowlist()
+    {
+        new PredicateCompiler("pg_sleep(10) IS NOT NULL").compile("NEW");
+    }
+}
@@ -0,0 +1,42 @@
+package com.dbw.state;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Optional;
+
+import com.dbw.db.Column;
+import com.dbw.db.OrclSpec;
+import org.junit.Test;
+
+public class JsonStateBuilderTest {
+
+    @Test
+    public void shouldBuildJsonObject() {
+        String state = new JsonStateBuilder(Optional.empty()).build(OrclSpec.NEW_STATE_PREFIX, new Column[]{
+                column("ID", "NUMBER"), column("TITLE", "VARCHAR2"), column("PHOTO", "RAW"), column("DOC", "XMLTYPE")
+        });
+
+        assertEquals(
+                "JSON_OBJECT('ID' VALUE :NEW.ID, 'TITLE' VALUE :NEW.TITLE, " +
+                "'PHOTO' VALUE utl_raw.cast_to_varchar2(UTL_ENCODE.BASE64_ENCODE(:NEW.PHOTO)) NULL ON NULL RETURNING CLOB)",
+                state);
+    }
+
+    @Test
+    public void shouldTruncateOnlyTextValues() {
+        String state = new JsonStateBuilder(Optional.of(100)).build(OrclSpec.OLD_STATE_PREFIX, new Column[]{
+                column("ID", "NUMBER"), column("TITLE", "VARCHAR2")
+        });
+
+        assertEquals(
+                "JSON_OBJECT('ID' VALUE :OLD.ID, 'TITLE' VALUE DBW_TRUNCATE_VALUE(:OLD.TITLE, 100) NULL ON NULL RETURNING CLOB)",
+                state);
+    }
+
+    private Column column(String name, String dataType) {
+        Column column = new Column();
+        column.setName(name);
+        column.setDataType(dataType);
+        return column;
+    }
+}
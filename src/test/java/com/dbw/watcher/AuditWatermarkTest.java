@@ -0,0 +1,58 @@
+package com.dbw.watcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dbw.db.AuditRecord;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+public class AuditWatermarkTest {
+
+    @Test
+    public void shouldTrackGapsUntilTheyFill() throws Exception
+    {
+        AuditWatermark watermark = new AuditWatermark(10000);
+        watermark.reset(10);
+
+        watermark.advance(createAuditRecords(11, 14));
+        assertEquals(14, watermark.getMaxId());
+        assertEquals(Sets.newTreeSet(Sets.newHashSet(12, 13)), watermark.getOpenGaps());
+
+        watermark.advance(createAuditRecords(12, 15));
+        assertEquals(15, watermark.getMaxId());
+        assertEquals(Sets.newTreeSet(Sets.newHashSet(13)), watermark.getOpenGaps());
+
+        watermark.advance(createAuditRecords(13));
+        assertFalse(watermark.hasOpenGaps());
+
+        watermark.advance(createAuditRecords(17));
+        assertTrue(watermark.hasOpenGaps());
+        watermark.reset(0);
+        assertFalse(watermark.hasOpenGaps());
+    }
+
+    @Test
+    public void shouldNotTrackGapsWithoutTimeout() throws Exception
+    {
+        AuditWatermark watermark = new AuditWatermark(0);
+
+        watermark.advance(createAuditRecords(1, 5));
+        assertEquals(5, watermark.getMaxId());
+        assertFalse(watermark.hasOpenGaps());
+    }
+
+    private List<AuditRecord> createAuditRecords(int... ids) {
+        List<AuditRecord> auditRecords = new ArrayList<>();
+        for (int id : ids) {
+            AuditRecord auditRecord = new AuditRecord();
+            auditRecord.setId(id);
+            auditRecords.add(auditRecord);
+        }
+        return auditRecords;
+    }
+}